@@ -0,0 +1,239 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.EasyAnimatorModelImpl;
+import model.Shape;
+import model.ShapeTimeline;
+import view.EasyAnimatorPanel;
+import view.EasyAnimatorViewSVG;
+
+/**
+ * Benchmark suite for the Animator pipeline: parsing a file into a model, keyframe lookup, frame
+ * computation, painting the panel into an offscreen image, SVG export and describe. Each benchmark
+ * runs on synthetic scenes for every combination of shape count and motions per shape, with
+ * warmup iterations before the measured ones, in the spirit of JMH. The frame benchmarks cover up
+ * to fifty ticks spread evenly over the animation per operation.
+ *
+ * <p>Usage: {@code java AnimatorBenchmarks [-shapes 100,1000] [-motions 10,100] [-warmup 3]
+ * [-iterations 5] [-only parse,paint] [-save results.csv] [-baseline results.csv]
+ * [-tolerance 0.25]}. With a baseline, the process exits with status 1 if any benchmark is slower
+ * than its baseline by more than the tolerance.</p>
+ */
+public final class AnimatorBenchmarks {
+
+  private static final int SAMPLED_TICKS = 50;
+
+  private static volatile Object sink;
+
+  /**
+   * Operation measured by a benchmark.
+   */
+  private interface Operation {
+
+    /**
+     * Run the operation once.
+     *
+     * @throws Exception if the operation fails.
+     */
+    void run() throws Exception;
+  }
+
+  /**
+   * Main method to run the suite.
+   *
+   * @param args the options described in the class comment.
+   * @throws Exception if a scene cannot be written or a benchmark fails.
+   */
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new HashMap<>();
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      options.put(args[i], args[i + 1]);
+    }
+    int[] shapeCounts = ints(options.getOrDefault("-shapes", "100,1000"));
+    int[] motionCounts = ints(options.getOrDefault("-motions", "10,100"));
+    int warmup = Integer.parseInt(options.getOrDefault("-warmup", "3"));
+    int iterations = Integer.parseInt(options.getOrDefault("-iterations", "5"));
+    List<String> only = options.containsKey("-only")
+            ? Arrays.asList(options.get("-only").split(",")) : null;
+
+    Map<String, Double> results = new LinkedHashMap<>();
+    System.out.printf("%-10s %8s %8s %14s %12s%n", "benchmark", "shapes", "motions", "us/op",
+            "error");
+    for (int shapes : shapeCounts) {
+      for (int motions : motionCounts) {
+        File scene = SyntheticScene.write(shapes, motions);
+        Map<String, Operation> benchmarks = benchmarks(scene);
+        for (Map.Entry<String, Operation> benchmark : benchmarks.entrySet()) {
+          if (only != null && !only.contains(benchmark.getKey())) {
+            continue;
+          }
+          double[] micros = measure(benchmark.getValue(), warmup, iterations);
+          System.out.printf("%-10s %8d %8d %14.1f %12.1f%n", benchmark.getKey(), shapes,
+                  motions, micros[0], micros[1]);
+          results.put(benchmark.getKey() + ":" + shapes + ":" + motions, micros[0]);
+        }
+        scene.delete();
+      }
+    }
+
+    if (options.containsKey("-save")) {
+      try (PrintWriter out = new PrintWriter(options.get("-save"))) {
+        for (Map.Entry<String, Double> result : results.entrySet()) {
+          out.println(result.getKey() + "," + result.getValue());
+        }
+      }
+    }
+    if (options.containsKey("-baseline")) {
+      double tolerance = Double.parseDouble(options.getOrDefault("-tolerance", "0.25"));
+      if (!compare(results, new File(options.get("-baseline")), tolerance)) {
+        System.exit(1);
+      }
+    }
+  }
+
+  /**
+   * Build the benchmarks for one scene. The model, panel and image used by the rendering
+   * benchmarks are set up once, outside the measured operations.
+   *
+   * @param scene the animation file of the scene.
+   * @return the benchmarks by name.
+   * @throws Exception if the scene cannot be loaded.
+   */
+  private static Map<String, Operation> benchmarks(File scene) throws Exception {
+    String path = scene.getAbsolutePath();
+    EasyAnimatorModelImpl model = new EasyAnimatorModelImpl(path);
+    int[] ticks = sampleTicks(model.getDurationTicks());
+
+    EasyAnimatorPanel panel = new EasyAnimatorPanel(model);
+    panel.setSize(model.view_window_width, model.view_window_height);
+    BufferedImage image = new BufferedImage(model.view_window_width,
+            model.view_window_height, BufferedImage.TYPE_INT_RGB);
+    File svg = File.createTempFile("benchmark-", ".svg");
+    svg.deleteOnExit();
+
+    Map<String, Operation> benchmarks = new LinkedHashMap<>();
+    benchmarks.put("parse", () -> sink = new EasyAnimatorModelImpl(path));
+    benchmarks.put("keyframes", () -> {
+      double total = 0;
+      for (int tick : ticks) {
+        for (Shape shape : model.getExactShapes()) {
+          ShapeTimeline timeline = shape.getTimeline();
+          total += timeline.getX(tick, 0) + timeline.getY(tick, 0) + timeline.getScale(tick);
+          sink = timeline.getColor(tick, Color.BLACK);
+        }
+      }
+      sink = total;
+    });
+    benchmarks.put("stateAt", () -> {
+      for (int tick : ticks) {
+        sink = model.stateAt(tick);
+      }
+    });
+    benchmarks.put("paint", () -> {
+      Graphics2D g = image.createGraphics();
+      for (int tick : ticks) {
+        panel.setCurrentTick(tick);
+        panel.paint(g);
+      }
+      g.dispose();
+    });
+    benchmarks.put("svg", () -> new EasyAnimatorViewSVG(model, svg.getPath(), false).animate(1));
+    benchmarks.put("describe", () -> sink = model.describe());
+    return benchmarks;
+  }
+
+  /**
+   * Run an operation for the warmup iterations, then time the measured iterations.
+   *
+   * @param operation  the operation to measure.
+   * @param warmup     the number of unmeasured iterations.
+   * @param iterations the number of measured iterations.
+   * @return the mean time per operation in microseconds and its standard deviation.
+   * @throws Exception if the operation fails.
+   */
+  private static double[] measure(Operation operation, int warmup, int iterations)
+          throws Exception {
+    for (int i = 0; i < warmup; i++) {
+      operation.run();
+    }
+    double[] samples = new double[iterations];
+    double sum = 0;
+    for (int i = 0; i < iterations; i++) {
+      long start = System.nanoTime();
+      operation.run();
+      samples[i] = (System.nanoTime() - start) / 1e3;
+      sum += samples[i];
+    }
+    double mean = sum / iterations;
+    double squares = 0;
+    for (double sample : samples) {
+      squares += (sample - mean) * (sample - mean);
+    }
+    return new double[]{mean, iterations > 1 ? Math.sqrt(squares / (iterations - 1)) : 0};
+  }
+
+  /**
+   * Compare results with a baseline saved by an earlier run and report regressions.
+   *
+   * @param results   the results of this run.
+   * @param baseline  the saved results.
+   * @param tolerance the allowed slowdown as a fraction of the baseline.
+   * @return true if no benchmark regressed.
+   * @throws IOException if the baseline cannot be read.
+   */
+  private static boolean compare(Map<String, Double> results, File baseline, double tolerance)
+          throws IOException {
+    boolean passed = true;
+    for (String line : Files.readAllLines(baseline.toPath())) {
+      String[] fields = line.split(",");
+      Double current = results.get(fields[0]);
+      double before = Double.parseDouble(fields[1]);
+      if (current != null && current > before * (1 + tolerance)) {
+        System.out.printf("REGRESSION %s: %.1f us/op, baseline %.1f us/op%n", fields[0], current,
+                before);
+        passed = false;
+      }
+    }
+    return passed;
+  }
+
+  /**
+   * Spread up to {@link #SAMPLED_TICKS} ticks evenly from the start to the end of an animation.
+   *
+   * @param duration the length of the animation in ticks.
+   * @return the sampled ticks in increasing order.
+   */
+  private static int[] sampleTicks(double duration) {
+    int count = (int) Math.min(SAMPLED_TICKS, Math.max(1, duration + 1));
+    int[] ticks = new int[count];
+    for (int i = 0; i < count; i++) {
+      ticks[i] = (int) (duration * i / Math.max(1, count - 1));
+    }
+    return ticks;
+  }
+
+  /**
+   * Parse a comma separated list of integers.
+   *
+   * @param list the list to parse.
+   * @return the values in the list.
+   */
+  private static int[] ints(String list) {
+    List<Integer> values = new ArrayList<>();
+    for (String value : list.split(",")) {
+      values.add(Integer.parseInt(value.trim()));
+    }
+    return values.stream().mapToInt(Integer::intValue).toArray();
+  }
+}
@@ -0,0 +1,78 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import model.EasyAnimatorModelImpl;
+
+/**
+ * Benchmark that loads synthetic animation files of growing size through the file-loading model
+ * constructor and checks that the cost of each motion line stays flat, i.e. that loading scales
+ * linearly with the size of the file.
+ *
+ * <p>Usage: {@code java LoaderBenchmark [motions...]}, for example
+ * {@code java LoaderBenchmark 10000 100000 1000000}. The process exits with status 1 if the cost
+ * per motion of the largest file is more than {@link #MAX_GROWTH} times that of the smallest.</p>
+ */
+public final class LoaderBenchmark {
+
+  private static final int MOTIONS_PER_SHAPE = 100;
+  private static final int RUNS = 3;
+  private static final double MAX_GROWTH = 2.0;
+
+  /**
+   * Main method to run the benchmark.
+   *
+   * @param args the numbers of motion lines to load, 10k, 100k and 1M by default.
+   * @throws IOException if a synthetic file cannot be written.
+   */
+  public static void main(String[] args) throws IOException {
+    int[] sizes = {10_000, 100_000, 1_000_000};
+    if (args.length > 0) {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+
+    double first = 0;
+    double last = 0;
+    for (int i = 0; i < sizes.length; i++) {
+      File file = SyntheticScene.write(Math.max(1, sizes[i] / MOTIONS_PER_SHAPE),
+              MOTIONS_PER_SHAPE);
+      double nanosPerMotion = bestLoadNanos(file) / sizes[i];
+      System.out.printf("%,10d motions  %8.1f ns/motion%n", sizes[i], nanosPerMotion);
+      if (i == 0) {
+        first = nanosPerMotion;
+      }
+      last = nanosPerMotion;
+      file.delete();
+    }
+
+    double growth = last / first;
+    System.out.printf("growth in cost per motion: %.2fx (limit %.2fx)%n", growth, MAX_GROWTH);
+    if (growth > MAX_GROWTH) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Load the file several times and return the fastest load, so the first runs warm the JIT.
+   *
+   * @param file the animation file to load.
+   * @return the fastest load time in nanoseconds.
+   * @throws FileNotFoundException if the file does not exist.
+   */
+  private static double bestLoadNanos(File file) throws FileNotFoundException {
+    long best = Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      long start = System.nanoTime();
+      EasyAnimatorModelImpl model = new EasyAnimatorModelImpl(file.getAbsolutePath());
+      long elapsed = System.nanoTime() - start;
+      if (model.getExactShapes().isEmpty()) {
+        throw new IllegalStateException("Synthetic animation did not load.");
+      }
+      best = Math.min(best, elapsed);
+    }
+    return best;
+  }
+}
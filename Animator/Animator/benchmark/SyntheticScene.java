@@ -0,0 +1,43 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Helper that writes synthetic animation files for the benchmarks. Every shape moves a short step
+ * across the canvas in each of its motions, alternating between rectangles and ellipses and
+ * between two colors.
+ */
+final class SyntheticScene {
+
+  private SyntheticScene() {
+  }
+
+  /**
+   * Write a synthetic animation to a temporary file that is deleted when the JVM exits.
+   *
+   * @param shapes          the number of shapes.
+   * @param motionsPerShape the number of motion lines for each shape.
+   * @return the file written.
+   * @throws IOException if the file cannot be written.
+   */
+  static File write(int shapes, int motionsPerShape) throws IOException {
+    File file = File.createTempFile("scene-" + shapes + "x" + motionsPerShape + "-", ".txt");
+    file.deleteOnExit();
+    try (PrintWriter out = new PrintWriter(file)) {
+      out.println("canvas 0 0 800 600");
+      for (int s = 0; s < shapes; s++) {
+        out.println("shape S" + s + (s % 2 == 0 ? " rectangle" : " ellipse"));
+      }
+      for (int t = 0; t < motionsPerShape; t++) {
+        for (int s = 0; s < shapes; s++) {
+          int x1 = (s * 7 + t * 5) % 800;
+          int x2 = (s * 7 + (t + 1) * 5) % 800;
+          int y = (s * 3) % 600;
+          out.printf("motion S%d %d %d %d 20 20 255 0 0  %d %d %d 20 20 0 0 255%n",
+                  s, t, x1, y, t + 1, x2, y);
+        }
+      }
+    }
+    return file;
+  }
+}
@@ -1,10 +1,12 @@
 import java.io.FileNotFoundException;
 
-import cs5004.easyanimator.controller.EasyAnimatorControllerImpl;
-import cs5004.easyanimator.model.EasyAnimatorModelImpl;
-import cs5004.easyanimator.view.EasyAnimatorViewSVG;
-import cs5004.easyanimator.view.EasyAnimatorViewVisual;
-import cs5004.easyanimator.view.EasyAnimatorViewVisualPlayback;
+import controller.EasyAnimatorControllerImpl;
+import model.EasyAnimatorModelImpl;
+import view.EasyAnimatorViewGif;
+import view.EasyAnimatorViewOffscreen;
+import view.EasyAnimatorViewSVG;
+import view.EasyAnimatorViewVisual;
+import view.EasyAnimatorViewVisualPlayback;
 
 /**
  * Class that represents the EasyAnimator holding the main method to utilize command line arguments
@@ -27,6 +29,7 @@ public final class EasyAnimator {
     String outfile = null;
     String speed = null;
     String viewtype = null;
+    String precision = null;
 
     for (int i = 0; i < args.length; i++) {
       if (args[i].equals("-in")) {
@@ -41,6 +44,9 @@ public final class EasyAnimator {
       if (args[i].equals("-view")) {
         viewtype = args[i + 1];
       }
+      if (args[i].equals("-compact")) {
+        precision = args[i + 1];
+      }
     }
     if (speed == null) {
       speed = "1";
@@ -54,6 +60,9 @@ public final class EasyAnimator {
     if (infile == null) {
       throw new IllegalArgumentException("Must use -in in command line arguments.");
     }
+    if (precision != null && !viewtype.equals("svg") && !viewtype.equals("text")) {
+      throw new IllegalArgumentException("Only the svg view can use -compact.");
+    }
 
     EasyAnimatorModelImpl model = new EasyAnimatorModelImpl(infile);
 
@@ -67,6 +76,21 @@ public final class EasyAnimator {
       case "svg":
       case "text": {
         EasyAnimatorViewSVG view = new EasyAnimatorViewSVG(model, outfile);
+        if (precision != null) {
+          view.setCompact(Integer.parseInt(precision));
+        }
+        EasyAnimatorControllerImpl controller = new EasyAnimatorControllerImpl(model, view);
+        controller.start(1);
+        break;
+      }
+      case "png": {
+        EasyAnimatorViewOffscreen view = new EasyAnimatorViewOffscreen(model, outfile);
+        EasyAnimatorControllerImpl controller = new EasyAnimatorControllerImpl(model, view);
+        controller.start(1);
+        break;
+      }
+      case "gif": {
+        EasyAnimatorViewGif view = new EasyAnimatorViewGif(model, outfile);
         EasyAnimatorControllerImpl controller = new EasyAnimatorControllerImpl(model, view);
         controller.start(1);
         break;
@@ -1,7 +1,9 @@
 package model;
 
 import java.awt.Color;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class represents the Abstract shape that will be extended by the respective shape classes.
@@ -9,6 +11,8 @@ import java.util.List;
  */
 public abstract class AbstractShape implements Shape {
 
+  private static final AtomicLong MODIFICATIONS = new AtomicLong();
+
   protected String name;
   protected Point2D reference;
   protected Color color;
@@ -18,6 +22,8 @@ public abstract class AbstractShape implements Shape {
   protected double appears;
   protected double disappears;
   protected boolean visible;
+  private volatile ShapeTimeline timeline;
+  private volatile long revision;
 
   /**
    * AbstractShape constructor that creates the AbstractShape object. Each object can be
@@ -68,6 +74,7 @@ public abstract class AbstractShape implements Shape {
       throw new IllegalArgumentException("Position Change cannot be null.");
     }
     this.positionChanges.add(positionChange);
+    this.changed();
   }
 
   @Override
@@ -76,6 +83,7 @@ public abstract class AbstractShape implements Shape {
       throw new IllegalArgumentException("Size Change cannot be null.");
     }
     this.sizeChanges.add(sizeChange);
+    this.changed();
   }
 
   @Override
@@ -84,6 +92,7 @@ public abstract class AbstractShape implements Shape {
       throw new IllegalArgumentException("Color Change cannot be null.");
     }
     this.colorChanges.add(colorChange);
+    this.changed();
   }
 
   @Override
@@ -101,14 +110,12 @@ public abstract class AbstractShape implements Shape {
     if (time < 0) {
       throw new IllegalArgumentException("Time cannot be negative.");
     }
-    Color temp = this.color;
-    for (ColorChange colorChange : this.colorChanges) {
-      if (colorChange.getTime() < time) {
-        temp = this.color;
-      }
-      temp = colorChange.getColor();
-    }
-    return temp;
+    return this.getTimeline().getColor(time, this.color);
+  }
+
+  @Override
+  public Color getInitialColor() {
+    return this.color;
   }
 
   @Override
@@ -121,6 +128,42 @@ public abstract class AbstractShape implements Shape {
     return this.colorChanges;
   }
 
+  @Override
+  public ShapeTimeline getTimeline() {
+    ShapeTimeline current = this.timeline;
+    if (current == null) {
+      current = new ShapeTimeline(this.positionChanges, this.sizeChanges, this.colorChanges);
+      this.timeline = current;
+    }
+    return current;
+  }
+
+  @Override
+  public long getRevision() {
+    return this.revision;
+  }
+
+  /**
+   * Record that the shape or its keyframes changed, dropping the keyframe index so it is rebuilt
+   * the next time it is needed. Subclasses call this when they change their size.
+   */
+  protected void changed() {
+    this.timeline = null;
+    this.revision++;
+    MODIFICATIONS.incrementAndGet();
+  }
+
+  /**
+   * Get a counter that changes whenever any shape changes. A shape can belong to more than one
+   * model, so the counter is kept across all shapes rather than per model; a model that sees it
+   * unchanged knows in constant time that none of its shapes has changed either.
+   *
+   * @return the number of changes made to shapes so far.
+   */
+  static long modifications() {
+    return MODIFICATIONS.get();
+  }
+
   @Override
   public double getAppears() {
     return this.appears;
@@ -132,22 +175,43 @@ public abstract class AbstractShape implements Shape {
   }
 
 
+  @Override
+  public void setLifetime(double appears, double disappears) throws IllegalArgumentException {
+    if (appears < 0 || disappears < 0 || disappears < appears) {
+      throw new IllegalArgumentException("Time cannot be negative.");
+    }
+    this.appears = appears;
+    this.disappears = disappears;
+    this.changed();
+  }
+
+  @Override
+  public boolean isVisible(double time) {
+    if (this.disappears <= this.appears) {
+      return true;
+    }
+    return time >= this.appears && time <= this.disappears;
+  }
+
   @Override
   public void setPosition(Point2D newReference) throws IllegalArgumentException {
     if (newReference == null) {
       throw new IllegalArgumentException("New Reference cannot be null.");
     }
     this.reference = newReference;
+    this.changed();
   }
 
   @Override
   public void setReference(Point2D reference) {
     this.reference = reference;
+    this.changed();
   }
 
   @Override
   public void setColor(Color color) {
     this.color = color;
+    this.changed();
   }
 
   @Override
@@ -161,7 +225,20 @@ public abstract class AbstractShape implements Shape {
               && (positionChange.getTo().getX() == x2)
               && (positionChange.getTo().getY() == y2)) {
         this.positionChanges.remove(i);
+        this.changed();
       }
     }
   }
+
+  @Override
+  public void setKeyframes(List<PositionChange> positionChanges, List<SizeChange> sizeChanges,
+                           List<ColorChange> colorChanges) throws IllegalArgumentException {
+    if (positionChanges == null || sizeChanges == null || colorChanges == null) {
+      throw new IllegalArgumentException("Keyframes cannot be null.");
+    }
+    this.positionChanges = new ArrayList<>(positionChanges);
+    this.sizeChanges = new ArrayList<>(sizeChanges);
+    this.colorChanges = new ArrayList<>(colorChanges);
+    this.changed();
+  }
 }
@@ -0,0 +1,441 @@
+package model;
+
+import java.awt.Color;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class reads and writes animations in the compact binary {@code .eanim} format. A file
+ * holds the view window, a table of the shapes and the keyframes of every shape packed into
+ * columns, so loading it is a matter of copying numbers out of the file rather than parsing text.
+ * Files are read through a memory mapping.
+ *
+ * <p>Layout, with every number big-endian: a 64-byte header of sixteen ints (magic, version,
+ * view window x, y, width and height, then the number of shapes, moves, size changes and color
+ * changes, then reserved zeros); the double columns (shape x, y, width, height, appear and
+ * disappear times; move start, end, from x, from y, to x and to y; size change start, end and
+ * factor; color change time); the int columns (shape color, shape type, and the number of moves,
+ * size changes and color changes of each shape; color change color); and finally the name of
+ * every shape as a length-prefixed UTF-8 string. The keyframes of each shape are contiguous and
+ * in the order the shape holds them.</p>
+ */
+public final class BinaryAnimationFile {
+
+  /**
+   * The file name extension of binary animations.
+   */
+  public static final String EXTENSION = ".eanim";
+
+  private static final int MAGIC = 0x45414E4D;
+  private static final int VERSION = 1;
+  private static final int HEADER_INTS = 16;
+  private static final int TYPE_RECTANGLE = 0;
+  private static final int TYPE_CIRCLE = 1;
+
+  private BinaryAnimationFile() {
+  }
+
+  /**
+   * Write a model to a file in the binary format.
+   *
+   * @param model the model to write.
+   * @param file  the file to write.
+   * @throws IOException if the file cannot be written.
+   * @throws IllegalArgumentException if the model or file is null, or a shape has an unsupported
+   *                                  type.
+   */
+  public static void write(EasyAnimatorModelImpl model, File file) throws IOException,
+          IllegalArgumentException {
+    if (model == null || file == null) {
+      throw new IllegalArgumentException("Model and file cannot be null.");
+    }
+    // A model that is being followed is only changed while its lock is held.
+    synchronized (model) {
+      writeShapes(model, model.getExactShapes(), file);
+    }
+  }
+
+  /**
+   * Helper method to write the shapes of a model to a file in the binary format.
+   *
+   * @param model  the model to write.
+   * @param shapes the shapes of the model.
+   * @param file   the file to write.
+   * @throws IOException if the file cannot be written.
+   * @throws IllegalArgumentException if a shape has an unsupported type.
+   */
+  private static void writeShapes(EasyAnimatorModelImpl model, List<Shape> shapes, File file)
+          throws IOException, IllegalArgumentException {
+    int moveCount = 0;
+    int sizeCount = 0;
+    int colorCount = 0;
+    for (Shape shape : shapes) {
+      typeCode(shape.getType());
+      moveCount += shape.getPositionChanges().size();
+      sizeCount += shape.getSizeChanges().size();
+      colorCount += shape.getColorChanges().size();
+    }
+
+    try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+      int[] header = new int[HEADER_INTS];
+      header[0] = MAGIC;
+      header[1] = VERSION;
+      header[2] = model.view_window_x;
+      header[3] = model.view_window_y;
+      header[4] = model.view_window_width;
+      header[5] = model.view_window_height;
+      header[6] = shapes.size();
+      header[7] = moveCount;
+      header[8] = sizeCount;
+      header[9] = colorCount;
+      for (int value : header) {
+        out.writeInt(value);
+      }
+
+      for (Shape shape : shapes) {
+        out.writeDouble(shape.getReference().getX());
+      }
+      for (Shape shape : shapes) {
+        out.writeDouble(shape.getReference().getY());
+      }
+      for (Shape shape : shapes) {
+        out.writeDouble(shape.getSpecs().get(0));
+      }
+      for (Shape shape : shapes) {
+        List<Double> specs = shape.getSpecs();
+        out.writeDouble(specs.get(specs.size() - 1));
+      }
+      for (Shape shape : shapes) {
+        out.writeDouble(shape.getAppears());
+      }
+      for (Shape shape : shapes) {
+        out.writeDouble(shape.getDisappears());
+      }
+
+      for (Shape shape : shapes) {
+        for (PositionChange move : shape.getPositionChanges()) {
+          out.writeDouble(move.getStartTime());
+        }
+      }
+      for (Shape shape : shapes) {
+        for (PositionChange move : shape.getPositionChanges()) {
+          out.writeDouble(move.getEndTime());
+        }
+      }
+      for (Shape shape : shapes) {
+        for (PositionChange move : shape.getPositionChanges()) {
+          out.writeDouble(move.getFromX());
+        }
+      }
+      for (Shape shape : shapes) {
+        for (PositionChange move : shape.getPositionChanges()) {
+          out.writeDouble(move.getFromY());
+        }
+      }
+      for (Shape shape : shapes) {
+        for (PositionChange move : shape.getPositionChanges()) {
+          out.writeDouble(move.getToX());
+        }
+      }
+      for (Shape shape : shapes) {
+        for (PositionChange move : shape.getPositionChanges()) {
+          out.writeDouble(move.getToY());
+        }
+      }
+
+      for (Shape shape : shapes) {
+        for (SizeChange size : shape.getSizeChanges()) {
+          out.writeDouble(size.getStartTime());
+        }
+      }
+      for (Shape shape : shapes) {
+        for (SizeChange size : shape.getSizeChanges()) {
+          out.writeDouble(size.getEndTime());
+        }
+      }
+      for (Shape shape : shapes) {
+        for (SizeChange size : shape.getSizeChanges()) {
+          out.writeDouble(size.getFactor());
+        }
+      }
+
+      for (Shape shape : shapes) {
+        for (ColorChange color : shape.getColorChanges()) {
+          out.writeDouble(color.getTime());
+        }
+      }
+
+      for (Shape shape : shapes) {
+        out.writeInt(shape.getInitialColor().getRGB());
+      }
+      for (Shape shape : shapes) {
+        out.writeInt(typeCode(shape.getType()));
+      }
+      for (Shape shape : shapes) {
+        out.writeInt(shape.getPositionChanges().size());
+      }
+      for (Shape shape : shapes) {
+        out.writeInt(shape.getSizeChanges().size());
+      }
+      for (Shape shape : shapes) {
+        out.writeInt(shape.getColorChanges().size());
+      }
+      for (Shape shape : shapes) {
+        for (ColorChange color : shape.getColorChanges()) {
+          out.writeInt(color.getColor().getRGB());
+        }
+      }
+
+      for (Shape shape : shapes) {
+        byte[] name = shape.getName().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(name.length);
+        out.write(name);
+      }
+    }
+  }
+
+  /**
+   * Read a binary animation into a model, replacing its shapes and view window.
+   *
+   * @param file  the file to read.
+   * @param model the model to fill.
+   * @throws IOException if the file cannot be read.
+   * @throws IllegalStateException if the file is not a valid binary animation.
+   */
+  static void read(File file, EasyAnimatorModelImpl model) throws IOException,
+          IllegalStateException {
+    ByteBuffer in;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+         FileChannel channel = raf.getChannel()) {
+      in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    try {
+      int[] header = new int[HEADER_INTS];
+      in.asIntBuffer().get(header);
+      in.position(HEADER_INTS * Integer.BYTES);
+      if (header[0] != MAGIC || header[1] != VERSION) {
+        throw new IllegalStateException(file + " is not a binary animation.");
+      }
+      int shapeCount = count(header[6]);
+      int moveCount = count(header[7]);
+      int sizeCount = count(header[8]);
+      int colorCount = count(header[9]);
+      // Check the counts against the size of the file before any column is allocated, counting
+      // at least the length of each name.
+      require(in, (long) shapeCount * (6 * Double.BYTES + 6 * Integer.BYTES)
+              + (long) moveCount * 6 * Double.BYTES + (long) sizeCount * 3 * Double.BYTES
+              + (long) colorCount * (Double.BYTES + Integer.BYTES));
+
+      double[] x = doubles(in, shapeCount);
+      double[] y = doubles(in, shapeCount);
+      double[] width = doubles(in, shapeCount);
+      double[] height = doubles(in, shapeCount);
+      double[] appears = doubles(in, shapeCount);
+      double[] disappears = doubles(in, shapeCount);
+      double[] moveStart = doubles(in, moveCount);
+      double[] moveEnd = doubles(in, moveCount);
+      double[] moveFromX = doubles(in, moveCount);
+      double[] moveFromY = doubles(in, moveCount);
+      double[] moveToX = doubles(in, moveCount);
+      double[] moveToY = doubles(in, moveCount);
+      double[] sizeStart = doubles(in, sizeCount);
+      double[] sizeEnd = doubles(in, sizeCount);
+      double[] sizeFactor = doubles(in, sizeCount);
+      double[] colorTime = doubles(in, colorCount);
+      int[] rgb = ints(in, shapeCount);
+      int[] type = ints(in, shapeCount);
+      int[] shapeMoves = ints(in, shapeCount);
+      int[] shapeSizes = ints(in, shapeCount);
+      int[] shapeColors = ints(in, shapeCount);
+      int[] colorRgb = ints(in, colorCount);
+      checkTotal(shapeMoves, moveCount);
+      checkTotal(shapeSizes, sizeCount);
+      checkTotal(shapeColors, colorCount);
+
+      Map<Integer, Color> palette = new HashMap<>();
+      List<Shape> shapes = new ArrayList<>(shapeCount);
+      int m = 0;
+      int z = 0;
+      int c = 0;
+      for (int s = 0; s < shapeCount; s++) {
+        int nameLength = count(in.getInt());
+        require(in, nameLength);
+        byte[] nameBytes = new byte[nameLength];
+        in.get(nameBytes);
+        String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+        List<PositionChange> moves = new ArrayList<>(shapeMoves[s]);
+        for (int end = m + shapeMoves[s]; m < end; m++) {
+          moves.add(new PositionChange(new Point2D(moveFromX[m], moveFromY[m]), moveToX[m],
+                  moveToY[m], moveStart[m], moveEnd[m]));
+        }
+        List<SizeChange> sizes = new ArrayList<>(shapeSizes[s]);
+        for (int end = z + shapeSizes[s]; z < end; z++) {
+          sizes.add(new SizeChange(sizeFactor[z], sizeStart[z], sizeEnd[z]));
+        }
+        List<ColorChange> colors = new ArrayList<>(shapeColors[s]);
+        for (int end = c + shapeColors[s]; c < end; c++) {
+          colors.add(new ColorChange(palette.computeIfAbsent(colorRgb[c], Color::new),
+                  colorTime[c]));
+        }
+
+        shapes.add(shape(name, type[s], new Color(rgb[s]), x[s], y[s], width[s], height[s],
+                moves, sizes, colors, appears[s], disappears[s]));
+      }
+      model.view_window_x = header[2];
+      model.view_window_y = header[3];
+      model.view_window_width = header[4];
+      model.view_window_height = header[5];
+      model.setShapes(shapes);
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new IllegalStateException(file + " is not a valid binary animation.", e);
+    }
+  }
+
+  /**
+   * Helper method to create a shape from its row of the shape table. Sizes that the shape
+   * constructors reject, such as the zero sizes a text animation can declare, are set afterwards
+   * to exactly the stored values, the same way the text loader sets them.
+   *
+   * @param name        the name of the shape.
+   * @param type        the type code of the shape.
+   * @param color       the color of the shape.
+   * @param x           the x coordinate of the shape.
+   * @param y           the y coordinate of the shape.
+   * @param width       the width of the shape, which is the radius for a circle.
+   * @param height      the height of the shape, which is the radius for a circle.
+   * @param moves       the position changes of the shape.
+   * @param sizes       the size changes of the shape.
+   * @param colors      the color changes of the shape.
+   * @param appears     the time the shape appears.
+   * @param disappears  the time the shape disappears.
+   * @return the shape.
+   * @throws IllegalStateException if the type code is unknown.
+   */
+  private static Shape shape(String name, int type, Color color, double x, double y,
+                             double width, double height, List<PositionChange> moves,
+                             List<SizeChange> sizes, List<ColorChange> colors, double appears,
+                             double disappears) {
+    Shape shape;
+    if (type == TYPE_CIRCLE) {
+      shape = new Circle(name, color, x, y, width > 0 ? width : 1, moves, sizes, colors,
+              appears, disappears);
+    } else if (type == TYPE_RECTANGLE) {
+      shape = new Rectangle(name, color, x, y, width > 0 ? width : 1, height > 0 ? height : 1,
+              moves, sizes, colors, appears, disappears);
+    } else {
+      throw new IllegalStateException("Unknown shape type " + type + ".");
+    }
+    if (width <= 0 || height <= 0) {
+      shape.accepts(new ShapeVisitor(width, height, width));
+    }
+    return shape;
+  }
+
+  /**
+   * Helper method to get the type code stored for a shape type.
+   *
+   * @param type the type of the shape.
+   * @return the type code.
+   * @throws IllegalArgumentException if the type has no code.
+   */
+  private static int typeCode(String type) throws IllegalArgumentException {
+    switch (type) {
+      case "rectangle":
+        return TYPE_RECTANGLE;
+      case "circle":
+        return TYPE_CIRCLE;
+      default:
+        throw new IllegalArgumentException("Unsupported shape type " + type + ".");
+    }
+  }
+
+  /**
+   * Helper method to check a count read from a file.
+   *
+   * @param value the count.
+   * @return the count.
+   * @throws IllegalStateException if the count is negative.
+   */
+  private static int count(int value) throws IllegalStateException {
+    if (value < 0) {
+      throw new IllegalStateException("Negative count in binary animation.");
+    }
+    return value;
+  }
+
+  /**
+   * Helper method to check that the rest of the file holds at least the given number of bytes.
+   *
+   * @param in    the mapped file.
+   * @param bytes the number of bytes still to read.
+   * @throws IllegalStateException if the file is shorter.
+   */
+  private static void require(ByteBuffer in, long bytes) throws IllegalStateException {
+    if (bytes > in.remaining()) {
+      throw new IllegalStateException("Binary animation is shorter than its counts.");
+    }
+  }
+
+  /**
+   * Helper method to check that the keyframe counts of the shapes add up to the total in the
+   * header, so the keyframes of every shape are inside the columns.
+   *
+   * @param perShape the number of keyframes of each shape.
+   * @param total    the total number of keyframes.
+   * @throws IllegalStateException if a count is negative or they do not add up to the total.
+   */
+  private static void checkTotal(int[] perShape, int total) throws IllegalStateException {
+    long sum = 0;
+    for (int value : perShape) {
+      sum += count(value);
+    }
+    if (sum != total) {
+      throw new IllegalStateException("Binary animation has inconsistent keyframe counts.");
+    }
+  }
+
+  /**
+   * Helper method to copy a column of doubles out of the file.
+   *
+   * @param in    the mapped file, positioned at the column.
+   * @param count the length of the column.
+   * @return the column.
+   */
+  private static double[] doubles(ByteBuffer in, int count) {
+    require(in, (long) count * Double.BYTES);
+    double[] values = new double[count];
+    in.asDoubleBuffer().get(values);
+    in.position(in.position() + count * Double.BYTES);
+    return values;
+  }
+
+  /**
+   * Helper method to copy a column of ints out of the file.
+   *
+   * @param in    the mapped file, positioned at the column.
+   * @param count the length of the column.
+   * @return the column.
+   */
+  private static int[] ints(ByteBuffer in, int count) {
+    require(in, (long) count * Integer.BYTES);
+    int[] values = new int[count];
+    in.asIntBuffer().get(values);
+    in.position(in.position() + count * Integer.BYTES);
+    return values;
+  }
+}
@@ -74,7 +74,7 @@ public class Circle extends AbstractShape {
     if (sizeChange == null || sizeChange.getFactor() == 0) {
       throw new IllegalArgumentException("Value cannot be null.");
     }
-    sizeChanges.add(sizeChange);
+    super.addSizeChange(sizeChange);
   }
 
 
@@ -83,13 +83,7 @@ public class Circle extends AbstractShape {
     if (time < this.getAppears() || time > this.getDisappears()) {
       throw new IllegalArgumentException("Cannot get size for shape that doesn't exist yet.");
     }
-    double temp = this.radius;
-    for (SizeChange sizeChange : this.sizeChanges) {
-      if (sizeChange.getStartTime() < time) {
-        temp = this.radius;
-      }
-      temp = this.radius * sizeChange.getFactor();
-    }
+    double temp = this.radius * this.getTimeline().getScale(time);
     return Math.PI * temp * temp;
   }
 
@@ -118,6 +112,7 @@ public class Circle extends AbstractShape {
       throw new IllegalArgumentException("Factor cannot be zero.");
     }
     this.radius = this.radius * factor;
+    this.changed();
   }
 
   @Override
@@ -140,8 +135,9 @@ public class Circle extends AbstractShape {
     visitor.visit(this);
   }
 
-  protected void setRadius(int radius) {
+  protected void setRadius(double radius) {
     this.radius = radius;
+    this.changed();
   }
 
   @Override
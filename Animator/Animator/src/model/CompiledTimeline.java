@@ -0,0 +1,661 @@
+package model;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import util.AnimatorMetrics;
+
+/**
+ * This class represents a compiled, read-only form of the keyframes of every shape in an
+ * animation. The moves, size changes and color changes of all shapes are packed into parallel
+ * primitive columns, sorted by start time within each shape, and each shape owns a contiguous
+ * range of every column given by its offsets. Colors are stored as indexes into a palette of the
+ * distinct colors of the animation, so a frame computed from the compiled form shares its Color
+ * objects instead of creating new ones.
+ *
+ * <p>The lifetimes of the shapes are indexed, so computing a frame only looks at the shapes that
+ * exist at its time. A scene of many shapes that each exist for a short time costs as much per
+ * frame as the shapes on screen, not as every shape of the animation. Where the shapes are over
+ * time can also be indexed, so a frame of only a region of the animation costs as much as the
+ * shapes near that region.</p>
+ *
+ * <p>A compiled timeline remembers the revision of every shape it was built from, so the model
+ * can tell when it is out of date and compile again, reusing the columns of the shapes that did
+ * not change.</p>
+ */
+public final class CompiledTimeline {
+
+  private static final ThreadLocal<int[]> ALIVE = ThreadLocal.withInitial(() -> new int[0]);
+
+  private final Shape[] shapes;
+  private final long[] revisions;
+  private final String[] names;
+  private final String[] types;
+  private final double[] baseX;
+  private final double[] baseY;
+  private final double[] baseWidth;
+  private final double[] baseHeight;
+  private final int[] baseColor;
+  private final double[] appears;
+  private final double[] disappears;
+  private final double[] shapeMoveEnd;
+
+  private final int[] moveOffset;
+  private final double[] moveStart;
+  private final double[] moveEnd;
+  private final double[] moveFromX;
+  private final double[] moveFromY;
+  private final double[] moveToX;
+  private final double[] moveToY;
+
+  private final int[] sizeOffset;
+  private final double[] sizeStart;
+  private final double[] sizeEnd;
+  private final double[] sizeFactor;
+  private final double[] sizeScaleBefore;
+
+  private final int[] colorOffset;
+  private final double[] colorTime;
+  private final int[] colorIndex;
+  private final Color[] palette;
+
+  private final double moveEndTime;
+  private final LifetimeIndex lifetimes;
+  private volatile SpatialIndex spatialIndex;
+
+  /**
+   * Constructor for CompiledTimeline that packs the keyframes of the given shapes.
+   *
+   * @param shapeList the shapes of the animation, in drawing order.
+   * @throws IllegalArgumentException if the list is null.
+   */
+  CompiledTimeline(List<Shape> shapeList) throws IllegalArgumentException {
+    this(shapeList, null);
+  }
+
+  /**
+   * Constructor for CompiledTimeline that packs the keyframes of the given shapes, reusing an
+   * earlier compilation. Only shapes that are new or have changed since the earlier compilation
+   * are read again; the columns of every other shape are copied across in bulk. This keeps
+   * recompiling cheap when a few shapes of a large animation change, such as when motions are
+   * appended to a file that is being followed.
+   *
+   * @param shapeList the shapes of the animation, in drawing order.
+   * @param previous  an earlier compilation of the animation, or null to compile from scratch.
+   * @throws IllegalArgumentException if the list is null.
+   */
+  CompiledTimeline(List<Shape> shapeList, CompiledTimeline previous)
+          throws IllegalArgumentException {
+    if (shapeList == null) {
+      throw new IllegalArgumentException("Shapes cannot be null.");
+    }
+    int count = shapeList.size();
+    this.shapes = shapeList.toArray(new Shape[0]);
+    this.revisions = new long[count];
+    this.names = new String[count];
+    this.types = new String[count];
+    this.baseX = new double[count];
+    this.baseY = new double[count];
+    this.baseWidth = new double[count];
+    this.baseHeight = new double[count];
+    this.baseColor = new int[count];
+    this.appears = new double[count];
+    this.disappears = new double[count];
+    this.shapeMoveEnd = new double[count];
+    this.moveOffset = new int[count + 1];
+    this.sizeOffset = new int[count + 1];
+    this.colorOffset = new int[count + 1];
+
+    boolean[] reused = new boolean[count];
+    for (int s = 0; s < count; s++) {
+      Shape shape = this.shapes[s];
+      reused[s] = previous != null && s < previous.shapes.length
+              && previous.shapes[s] == shape && previous.revisions[s] == shape.getRevision();
+      if (reused[s]) {
+        this.moveOffset[s + 1] = this.moveOffset[s]
+                + previous.moveOffset[s + 1] - previous.moveOffset[s];
+        this.sizeOffset[s + 1] = this.sizeOffset[s]
+                + previous.sizeOffset[s + 1] - previous.sizeOffset[s];
+        this.colorOffset[s + 1] = this.colorOffset[s]
+                + previous.colorOffset[s + 1] - previous.colorOffset[s];
+      } else {
+        this.moveOffset[s + 1] = this.moveOffset[s] + shape.getPositionChanges().size();
+        this.sizeOffset[s + 1] = this.sizeOffset[s] + shape.getSizeChanges().size();
+        this.colorOffset[s + 1] = this.colorOffset[s] + shape.getColorChanges().size();
+      }
+    }
+    this.moveStart = new double[this.moveOffset[count]];
+    this.moveEnd = new double[this.moveOffset[count]];
+    this.moveFromX = new double[this.moveOffset[count]];
+    this.moveFromY = new double[this.moveOffset[count]];
+    this.moveToX = new double[this.moveOffset[count]];
+    this.moveToY = new double[this.moveOffset[count]];
+    this.sizeStart = new double[this.sizeOffset[count]];
+    this.sizeEnd = new double[this.sizeOffset[count]];
+    this.sizeFactor = new double[this.sizeOffset[count]];
+    this.sizeScaleBefore = new double[this.sizeOffset[count]];
+    this.colorTime = new double[this.colorOffset[count]];
+    this.colorIndex = new int[this.colorOffset[count]];
+
+    // The palette only grows, so palette indexes copied from the earlier compilation stay valid.
+    Map<Color, Integer> paletteIndex = new HashMap<>();
+    List<Color> colors = new ArrayList<>();
+    if (previous != null) {
+      for (Color color : previous.palette) {
+        intern(color, paletteIndex, colors);
+      }
+    }
+    double maxEnd = 0;
+    int s = 0;
+    while (s < count) {
+      if (reused[s]) {
+        int end = s;
+        while (end < count && reused[end]) {
+          end++;
+        }
+        this.copyShapes(previous, s, end);
+        s = end;
+      } else {
+        this.compileShape(s, paletteIndex, colors);
+        s++;
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      maxEnd = Math.max(maxEnd, this.shapeMoveEnd[i]);
+    }
+    this.palette = colors.toArray(new Color[0]);
+    this.moveEndTime = maxEnd;
+    this.lifetimes = new LifetimeIndex(this.appears, this.disappears);
+  }
+
+  /**
+   * Helper method to read the attributes and keyframes of one shape into the columns.
+   *
+   * @param s            the index of the shape in drawing order.
+   * @param paletteIndex the index of every color in the palette so far.
+   * @param colors       the palette so far.
+   */
+  private void compileShape(int s, Map<Color, Integer> paletteIndex, List<Color> colors) {
+    Shape shape = this.shapes[s];
+    this.revisions[s] = shape.getRevision();
+    this.names[s] = shape.getName();
+    this.types[s] = shape.getType();
+    this.baseX[s] = shape.getReference().getX();
+    this.baseY[s] = shape.getReference().getY();
+    List<Double> specs = shape.getSpecs();
+    this.baseWidth[s] = specs.get(0);
+    this.baseHeight[s] = specs.get(specs.size() - 1);
+    this.baseColor[s] = intern(shape.getInitialColor(), paletteIndex, colors);
+    this.appears[s] = shape.getAppears();
+    this.disappears[s] = shape.getDisappears();
+
+    List<PositionChange> moves = sorted(shape.getPositionChanges(),
+            Comparator.comparingDouble(PositionChange::getStartTime));
+    int m = this.moveOffset[s];
+    double maxEnd = 0;
+    for (PositionChange move : moves) {
+      this.moveStart[m] = move.getStartTime();
+      this.moveEnd[m] = move.getEndTime();
+      this.moveFromX[m] = move.getFromX();
+      this.moveFromY[m] = move.getFromY();
+      this.moveToX[m] = move.getToX();
+      this.moveToY[m] = move.getToY();
+      maxEnd = Math.max(maxEnd, move.getEndTime());
+      m++;
+    }
+    this.shapeMoveEnd[s] = maxEnd;
+
+    List<SizeChange> sizes = sorted(shape.getSizeChanges(),
+            Comparator.comparingDouble(SizeChange::getStartTime));
+    int z = this.sizeOffset[s];
+    double scale = 1;
+    for (SizeChange size : sizes) {
+      this.sizeStart[z] = size.getStartTime();
+      this.sizeEnd[z] = size.getEndTime();
+      this.sizeFactor[z] = size.getFactor();
+      this.sizeScaleBefore[z] = scale;
+      scale = scale * size.getFactor();
+      z++;
+    }
+
+    List<ColorChange> changes = sorted(shape.getColorChanges(),
+            Comparator.comparingDouble(ColorChange::getTime));
+    int c = this.colorOffset[s];
+    for (ColorChange change : changes) {
+      this.colorTime[c] = change.getTime();
+      this.colorIndex[c] = intern(change.getColor(), paletteIndex, colors);
+      c++;
+    }
+  }
+
+  /**
+   * Helper method to copy the attributes and keyframes of a run of unchanged shapes from an
+   * earlier compilation, one bulk copy per column.
+   *
+   * @param previous the earlier compilation, in which the shapes have the same indexes.
+   * @param from     the index of the first shape of the run.
+   * @param to       one past the index of the last shape of the run.
+   */
+  private void copyShapes(CompiledTimeline previous, int from, int to) {
+    int n = to - from;
+    System.arraycopy(previous.revisions, from, this.revisions, from, n);
+    System.arraycopy(previous.names, from, this.names, from, n);
+    System.arraycopy(previous.types, from, this.types, from, n);
+    System.arraycopy(previous.baseX, from, this.baseX, from, n);
+    System.arraycopy(previous.baseY, from, this.baseY, from, n);
+    System.arraycopy(previous.baseWidth, from, this.baseWidth, from, n);
+    System.arraycopy(previous.baseHeight, from, this.baseHeight, from, n);
+    System.arraycopy(previous.baseColor, from, this.baseColor, from, n);
+    System.arraycopy(previous.appears, from, this.appears, from, n);
+    System.arraycopy(previous.disappears, from, this.disappears, from, n);
+    System.arraycopy(previous.shapeMoveEnd, from, this.shapeMoveEnd, from, n);
+
+    int src = previous.moveOffset[from];
+    int dst = this.moveOffset[from];
+    int len = previous.moveOffset[to] - src;
+    System.arraycopy(previous.moveStart, src, this.moveStart, dst, len);
+    System.arraycopy(previous.moveEnd, src, this.moveEnd, dst, len);
+    System.arraycopy(previous.moveFromX, src, this.moveFromX, dst, len);
+    System.arraycopy(previous.moveFromY, src, this.moveFromY, dst, len);
+    System.arraycopy(previous.moveToX, src, this.moveToX, dst, len);
+    System.arraycopy(previous.moveToY, src, this.moveToY, dst, len);
+
+    src = previous.sizeOffset[from];
+    dst = this.sizeOffset[from];
+    len = previous.sizeOffset[to] - src;
+    System.arraycopy(previous.sizeStart, src, this.sizeStart, dst, len);
+    System.arraycopy(previous.sizeEnd, src, this.sizeEnd, dst, len);
+    System.arraycopy(previous.sizeFactor, src, this.sizeFactor, dst, len);
+    System.arraycopy(previous.sizeScaleBefore, src, this.sizeScaleBefore, dst, len);
+
+    src = previous.colorOffset[from];
+    dst = this.colorOffset[from];
+    len = previous.colorOffset[to] - src;
+    System.arraycopy(previous.colorTime, src, this.colorTime, dst, len);
+    System.arraycopy(previous.colorIndex, src, this.colorIndex, dst, len);
+  }
+
+  /**
+   * Whether the compiled timeline still describes the given shapes: the same shapes in the same
+   * order, none of which has changed since it was compiled.
+   *
+   * @param shapeList the shapes of the animation.
+   * @return true if the compiled timeline is up to date.
+   */
+  boolean isCurrent(List<Shape> shapeList) {
+    if (shapeList.size() != this.shapes.length) {
+      return false;
+    }
+    for (int s = 0; s < this.shapes.length; s++) {
+      Shape shape = shapeList.get(s);
+      if (shape != this.shapes[s] || shape.getRevision() != this.revisions[s]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the number of shapes in the compiled timeline.
+   *
+   * @return the number of shapes.
+   */
+  public int getShapeCount() {
+    return this.shapes.length;
+  }
+
+  /**
+   * Get the total number of moves, size changes and color changes of all shapes.
+   *
+   * @return the number of keyframes.
+   */
+  public int getKeyframeCount() {
+    return this.moveStart.length + this.sizeStart.length + this.colorTime.length;
+  }
+
+  /**
+   * Get the name of a shape.
+   *
+   * @param shape the index of the shape in drawing order.
+   * @return the name of the shape.
+   */
+  public String getName(int shape) {
+    return this.names[shape];
+  }
+
+  /**
+   * Get the type of a shape.
+   *
+   * @param shape the index of the shape in drawing order.
+   * @return the type of the shape.
+   */
+  public String getType(int shape) {
+    return this.types[shape];
+  }
+
+  /**
+   * Get the x coordinate of a shape at the given tick, interpolated the same way as
+   * {@link ShapeTimeline#getX}.
+   *
+   * @param shape the index of the shape in drawing order.
+   * @param time  the tick to look up.
+   * @return the x coordinate of the shape at the tick.
+   */
+  public double getX(int shape, double time) {
+    return ShapeTimeline.interpolate(time, this.baseX[shape], this.moveStart, this.moveEnd,
+            this.moveFromX, this.moveToX, this.moveOffset[shape], this.moveOffset[shape + 1]);
+  }
+
+  /**
+   * Get the y coordinate of a shape at the given tick, interpolated the same way as
+   * {@link ShapeTimeline#getY}.
+   *
+   * @param shape the index of the shape in drawing order.
+   * @param time  the tick to look up.
+   * @return the y coordinate of the shape at the tick.
+   */
+  public double getY(int shape, double time) {
+    return ShapeTimeline.interpolate(time, this.baseY[shape], this.moveStart, this.moveEnd,
+            this.moveFromY, this.moveToY, this.moveOffset[shape], this.moveOffset[shape + 1]);
+  }
+
+  /**
+   * Get the scale of a shape relative to its declared size at the given tick, computed the same
+   * way as {@link ShapeTimeline#getScale}.
+   *
+   * @param shape the index of the shape in drawing order.
+   * @param time  the tick to look up.
+   * @return the scale of the shape at the tick.
+   */
+  public double getScale(int shape, double time) {
+    return ShapeTimeline.scale(time, this.sizeStart, this.sizeEnd, this.sizeFactor,
+            this.sizeScaleBefore, this.sizeOffset[shape], this.sizeOffset[shape + 1]);
+  }
+
+  /**
+   * Get the width of a shape at the given tick. For a circle this is its radius.
+   *
+   * @param shape the index of the shape in drawing order.
+   * @param time  the tick to look up.
+   * @return the width of the shape at the tick.
+   */
+  public double getWidth(int shape, double time) {
+    return this.baseWidth[shape] * this.getScale(shape, time);
+  }
+
+  /**
+   * Get the height of a shape at the given tick. For a circle this is its radius.
+   *
+   * @param shape the index of the shape in drawing order.
+   * @param time  the tick to look up.
+   * @return the height of the shape at the tick.
+   */
+  public double getHeight(int shape, double time) {
+    return this.baseHeight[shape] * this.getScale(shape, time);
+  }
+
+  /**
+   * Get the color of a shape at the given tick, which is the color of its latest color change at
+   * or before the tick, or its own color before its first color change.
+   *
+   * @param shape the index of the shape in drawing order.
+   * @param time  the tick to look up.
+   * @return the color of the shape at the tick.
+   */
+  public Color getColor(int shape, double time) {
+    int lo = this.colorOffset[shape];
+    int i = ShapeTimeline.floor(this.colorTime, time, lo, this.colorOffset[shape + 1]);
+    return this.palette[i < lo ? this.baseColor[shape] : this.colorIndex[i]];
+  }
+
+  /**
+   * Whether a shape exists at the given tick, by the same rule as {@link Shape#isVisible}.
+   *
+   * @param shape the index of the shape in drawing order.
+   * @param time  the tick to look up.
+   * @return true if the shape exists at the tick.
+   */
+  public boolean isVisible(int shape, double time) {
+    if (this.disappears[shape] <= this.appears[shape]) {
+      return true;
+    }
+    return time >= this.appears[shape] && time <= this.disappears[shape];
+  }
+
+  /**
+   * Get the index of the lifetimes of the shapes, in which each shape is known by its index in
+   * drawing order.
+   *
+   * @return the lifetime index.
+   */
+  public LifetimeIndex getLifetimes() {
+    return this.lifetimes;
+  }
+
+  /**
+   * Get the index of where the shapes are over time, in which each shape is known by its index in
+   * drawing order. Each move of a shape gives one box, covering the pixels the shape may cover
+   * from the start of the move to the start of its next move at the largest size the shape ever
+   * has; the shape stays where its first move starts before it, and where it is drawn if it never
+   * moves. The boxes are limited to the lifetime of the shape. The index is built the first time
+   * it is needed, so timelines that are never drawn by region do not pay for it.
+   *
+   * @return the spatial index.
+   */
+  public SpatialIndex getSpatialIndex() {
+    SpatialIndex index = this.spatialIndex;
+    if (index == null) {
+      synchronized (this) {
+        index = this.spatialIndex;
+        if (index == null) {
+          long start = AnimatorMetrics.start();
+          index = this.buildSpatialIndex();
+          this.spatialIndex = index;
+          AnimatorMetrics.record(AnimatorMetrics.Latency.BUILD, start);
+        }
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Helper method to build the index of where the shapes are over time.
+   *
+   * @return the spatial index.
+   */
+  private SpatialIndex buildSpatialIndex() {
+    int count = this.shapes.length;
+    SpatialIndex.Builder boxes = new SpatialIndex.Builder(count, this.moveStart.length + count);
+    for (int s = 0; s < count; s++) {
+      boolean always = this.disappears[s] <= this.appears[s];
+      double appear = always ? Double.NEGATIVE_INFINITY : this.appears[s];
+      double disappear = always ? Double.POSITIVE_INFINITY : this.disappears[s];
+      double scale = 1;
+      for (int z = this.sizeOffset[s]; z < this.sizeOffset[s + 1]; z++) {
+        scale = Math.max(scale, Math.max(Math.abs(this.sizeScaleBefore[z]),
+                Math.abs(this.sizeScaleBefore[z] * this.sizeFactor[z])));
+      }
+      // Shapes are drawn from their truncated position, one pixel past their truncated size.
+      double width = Math.ceil(Math.abs(this.baseWidth[s]) * scale) + 1;
+      double height = Math.ceil(Math.abs(this.baseHeight[s]) * scale) + 1;
+      int lo = this.moveOffset[s];
+      int hi = this.moveOffset[s + 1];
+      if (lo == hi) {
+        addBox(boxes, s, appear, disappear, this.baseX[s], this.baseY[s], this.baseX[s],
+                this.baseY[s], width, height);
+        continue;
+      }
+      addBox(boxes, s, appear, Math.min(disappear, this.moveStart[lo]), this.moveFromX[lo],
+              this.moveFromY[lo], this.moveFromX[lo], this.moveFromY[lo], width, height);
+      for (int m = lo; m < hi; m++) {
+        double next = m + 1 < hi ? this.moveStart[m + 1] : Double.POSITIVE_INFINITY;
+        addBox(boxes, s, Math.max(appear, this.moveStart[m]), Math.min(disappear, next),
+                this.moveFromX[m], this.moveFromY[m], this.moveToX[m], this.moveToY[m], width,
+                height);
+      }
+    }
+    return boxes.build();
+  }
+
+  /**
+   * Helper method to add the box of a shape moving in a straight line during a time, unless the
+   * time is empty.
+   *
+   * @param boxes  the builder of the spatial index.
+   * @param s      the index of the shape in drawing order.
+   * @param start  the start of the time.
+   * @param end    the end of the time.
+   * @param fromX  the x coordinate at one end of the line.
+   * @param fromY  the y coordinate at one end of the line.
+   * @param toX    the x coordinate at the other end of the line.
+   * @param toY    the y coordinate at the other end of the line.
+   * @param width  the most pixels the shape may cover across.
+   * @param height the most pixels the shape may cover down.
+   */
+  private static void addBox(SpatialIndex.Builder boxes, int s, double start, double end,
+                             double fromX, double fromY, double toX, double toY, double width,
+                             double height) {
+    if (start <= end) {
+      boxes.add(s, start, end, Math.floor(Math.min(fromX, toX)),
+              Math.floor(Math.min(fromY, toY)), Math.ceil(Math.max(fromX, toX)) + width,
+              Math.ceil(Math.max(fromY, toY)) + height);
+    }
+  }
+
+  /**
+   * Get the time at which the last move of any shape ends.
+   *
+   * @return the end time of the last move, or 0 if no shape moves.
+   */
+  public double getMoveEndTime() {
+    return this.moveEndTime;
+  }
+
+  /**
+   * Compute the state of every shape that exists at the given tick. The shapes are found in a
+   * scratch array kept by each thread, so the cost depends on the shapes that exist at the tick
+   * rather than on every shape of the animation.
+   *
+   * @param time the tick to compute.
+   * @return the frame at the tick.
+   */
+  public Frame frameAt(double time) {
+    int[] alive = ALIVE.get();
+    if (alive.length < this.shapes.length) {
+      alive = new int[this.shapes.length];
+      ALIVE.set(alive);
+    }
+    int count = this.lifetimes.aliveAt(time, alive);
+    List<ShapeState> states = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      int s = alive[i];
+      double scale = this.getScale(s, time);
+      states.add(new ShapeState(this.names[s], this.types[s], this.getX(s, time),
+              this.getY(s, time), this.baseWidth[s] * scale, this.baseHeight[s] * scale,
+              this.getColor(s, time), true));
+    }
+    return new Frame(time, states, Arrays.copyOf(alive, count));
+  }
+
+  /**
+   * Compute the state of every shape that exists at the given tick into a reusable buffer.
+   * Nothing is allocated unless the buffer has to grow to hold more shapes than before.
+   *
+   * @param time   the tick to compute.
+   * @param buffer the buffer to fill.
+   */
+  public void evaluate(double time, FrameBuffer buffer) {
+    buffer.reset(time, this.shapes.length);
+    int count = this.lifetimes.aliveAt(time, buffer.shapeColumn());
+    this.fill(time, count, buffer);
+  }
+
+  /**
+   * Compute the state of the shapes that exist at the given tick and may touch a region of the
+   * animation into a reusable buffer. The shapes are found in the spatial index, so the cost
+   * depends on the shapes near the region rather than on every shape that exists at the tick.
+   * Every shape whose pixels touch the region is in the buffer, and so may be a few that do not.
+   *
+   * @param time   the tick to compute.
+   * @param x      the leftmost pixel of the region.
+   * @param y      the topmost pixel of the region.
+   * @param width  the width of the region.
+   * @param height the height of the region.
+   * @param buffer the buffer to fill.
+   */
+  public void evaluate(double time, int x, int y, int width, int height, FrameBuffer buffer) {
+    buffer.reset(time, this.shapes.length);
+    int[] found = buffer.shapeColumn();
+    int count = this.getSpatialIndex().shapesAt(time, x, y, width, height, found);
+    int alive = 0;
+    for (int i = 0; i < count; i++) {
+      if (this.isVisible(found[i], time)) {
+        found[alive++] = found[i];
+      }
+    }
+    this.fill(time, alive, buffer);
+  }
+
+  /**
+   * Helper method to fill a buffer with the state of the shapes whose indexes are at the start of
+   * its column of shape indexes.
+   *
+   * @param time   the tick to compute.
+   * @param count  the number of shapes.
+   * @param buffer the buffer to fill.
+   */
+  private void fill(double time, int count, FrameBuffer buffer) {
+    int[] alive = buffer.shapeColumn();
+    buffer.reset(time, count);
+    for (int i = 0; i < count; i++) {
+      int s = alive[i];
+      double scale = this.getScale(s, time);
+      buffer.set(i, s, this.names[s], this.types[s], this.getX(s, time), this.getY(s, time),
+              this.baseWidth[s] * scale, this.baseHeight[s] * scale, this.getColor(s, time),
+              true);
+    }
+  }
+
+  /**
+   * Helper method to get a list in sorted order. Keyframes are usually added in time order, so a
+   * list that is already sorted is used as it is rather than copied.
+   *
+   * @param list       the list.
+   * @param comparator the order to sort in.
+   * @param <T>        the type of the elements.
+   * @return the list itself if it is sorted, or a sorted copy.
+   */
+  private static <T> List<T> sorted(List<T> list, Comparator<T> comparator) {
+    for (int i = 1; i < list.size(); i++) {
+      if (comparator.compare(list.get(i - 1), list.get(i)) > 0) {
+        List<T> copy = new ArrayList<>(list);
+        copy.sort(comparator);
+        return copy;
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Helper method to find the palette index of a color, adding it to the palette if it is new.
+   *
+   * @param color        the color.
+   * @param paletteIndex the index of every color in the palette so far.
+   * @param colors       the palette so far.
+   * @return the index of the color in the palette.
+   */
+  private static int intern(Color color, Map<Color, Integer> paletteIndex, List<Color> colors) {
+    Integer index = paletteIndex.get(color);
+    if (index == null) {
+      index = colors.size();
+      paletteIndex.put(color, index);
+      colors.add(color);
+    }
+    return index;
+  }
+}
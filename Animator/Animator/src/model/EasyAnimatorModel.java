@@ -15,8 +15,42 @@ public interface EasyAnimatorModel {
    */
   List<Shape> getShapes();
 
+  /**
+   * Get the shapes of the animation in drawing order. The list is a snapshot, so it does not
+   * change when shapes are added later, but the shapes in it are the model's own.
+   *
+   * @return the shapes themselves, not copies
+   */
   List<Shape> getExactShapes();
 
+  /**
+   * Get the shapes of the animation that exist at some point from one time to another, in
+   * drawing order. The shapes are looked up in an index of their lifetimes, so the cost depends
+   * on the number of shapes found rather than on the size of the animation.
+   *
+   * @param from the start of the time
+   * @param to   the end of the time
+   * @return the shapes themselves, not copies
+   */
+  List<Shape> getExactShapes(double from, double to);
+
+  /**
+   * Get the shapes of the animation that exist and may touch a region of the animation at some
+   * point from one time to another, in drawing order. The shapes are looked up in an index of
+   * where every shape is over time, so the cost depends on the number of shapes near the region
+   * rather than on the size of the animation. Every shape whose pixels touch the region is found,
+   * and so may be a few that do not.
+   *
+   * @param from   the start of the time
+   * @param to     the end of the time
+   * @param x      the leftmost pixel of the region
+   * @param y      the topmost pixel of the region
+   * @param width  the width of the region
+   * @param height the height of the region
+   * @return the shapes themselves, not copies
+   */
+  List<Shape> getExactShapes(double from, double to, int x, int y, int width, int height);
+
   /**
    * Change a shape in the animation to a different shape.
    *
@@ -64,6 +98,53 @@ public interface EasyAnimatorModel {
    */
   String describe();
 
+  /**
+   * Get a description of the part of the animation from one time to another: the shapes that
+   * exist at some point during that time, and the changes that happen during it.
+   *
+   * @param from the start of the time to describe
+   * @param to   the end of the time to describe
+   * @return a description of the animation during that time
+   */
+  String describe(double from, double to);
+
+  /**
+   * Compute the state of every shape that exists at the given time by interpolating its
+   * keyframes. Shapes that have not appeared yet or have already disappeared are left out of the
+   * frame. The model and its shapes are not changed, so frames can be computed for any time, in
+   * any order and from several threads at once.
+   *
+   * @param time the time of the frame
+   * @return an immutable frame holding the state of every shape that exists at the time
+   */
+  Frame stateAt(double time);
+
+  /**
+   * Compute the state of every shape at the given time into a reusable buffer, the same way as
+   * {@link #stateAt(double)} but without creating a new frame, so a view can compute a frame on
+   * every tick without allocating.
+   *
+   * @param time   the time of the frame
+   * @param buffer the buffer to fill
+   */
+  void stateAt(double time, FrameBuffer buffer);
+
+  /**
+   * Compute the state of the shapes that exist at the given time and may touch a region of the
+   * animation into a reusable buffer. Every shape whose pixels touch the region is in the buffer,
+   * and so may be a few that do not, so a view that only shows the region gets the same picture as
+   * from {@link #stateAt(double, FrameBuffer)}, at a cost that depends on the shapes near the
+   * region rather than on every shape that exists at the time.
+   *
+   * @param time   the time of the frame
+   * @param x      the leftmost pixel of the region
+   * @param y      the topmost pixel of the region
+   * @param width  the width of the region
+   * @param height the height of the region
+   * @param buffer the buffer to fill
+   */
+  void stateAt(double time, int x, int y, int width, int height, FrameBuffer buffer);
+
   /**
    * Get a copy of the model.
    *
@@ -94,6 +175,24 @@ public interface EasyAnimatorModel {
    */
   double getDurationTicks();
 
+  /**
+   * Get the keyframes of every shape in compiled, columnar form. The same compiled timeline is
+   * returned until the keyframes change, so a view can tell whether frames it computed earlier
+   * are still valid by comparing the timelines they were computed from.
+   *
+   * @return the compiled keyframes of the animation.
+   */
+  CompiledTimeline compile();
+
+  /**
+   * Get a counter that changes whenever a shape of the animation is added, replaced or changed.
+   * Reading it takes constant time and no lock, so a view can check on every frame whether the
+   * animation has changed without compiling it.
+   *
+   * @return the revision of the animation.
+   */
+  long getRevision();
+
   /**
    * Set view window x position.
    *
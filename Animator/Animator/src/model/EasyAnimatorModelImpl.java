@@ -2,13 +2,19 @@ package model;
 
 import java.awt.Color;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import util.AnimationBuilder;
 import util.AnimationReader;
+import util.AnimationTailer;
+import util.AnimatorMetrics;
 
 
 /**
@@ -24,6 +30,11 @@ public class EasyAnimatorModelImpl implements EasyAnimatorModel {
   public int view_window_height;
   List<Shape> shapes;
   EasyAnimatorModel model;
+  private Map<String, Shape> shapesByName;
+  private Map<String, Integer> shapeIds;
+  private CompiledTimeline compiled;
+  private long compiledRevision;
+  private volatile long structure;
 
   /**
    * Constructor for EasyAnimatorModelImpl. Parameters are the lists of shape and the duration
@@ -33,10 +44,10 @@ public class EasyAnimatorModelImpl implements EasyAnimatorModel {
    * @throws IllegalArgumentException if the duration or list is invalid.
    */
   public EasyAnimatorModelImpl(List<Shape> shapes) throws IllegalArgumentException {
-    this.shapes = shapes;
     if (shapes == null) {
       throw new IllegalArgumentException("Null or invalid value for ModelImplConstructor.");
     }
+    this.setShapes(shapes);
     this.view_window_x = 10;
     this.view_window_y = 10;
     this.view_window_width = 600;
@@ -44,26 +55,45 @@ public class EasyAnimatorModelImpl implements EasyAnimatorModel {
   }
 
   /**
-   * Secondary constructor for EasyAnimatorModelImpl. Parameter is the string infile.
+   * Secondary constructor for EasyAnimatorModelImpl. Parameter is the string infile. Files
+   * ending in {@value BinaryAnimationFile#EXTENSION} are loaded as binary animations, and any
+   * other file is parsed as a text animation.
    *
    * @param infile input file to use for animation.
    * @throws FileNotFoundException thrown if file does not exist.
    */
   public EasyAnimatorModelImpl(String infile) throws FileNotFoundException {
 
-    this.shapes = new ArrayList<>();
-
-    AnimationBuilder builder = new Builder(this);
+    this.setShapes(new ArrayList<>());
 
     File file = new File(infile);
-    Readable reader = new FileReader(file);
-    this.model = (EasyAnimatorModel) AnimationReader.parseFile(reader, builder);
-    this.shapes = this.model.getShapes();
+    if (infile.endsWith(BinaryAnimationFile.EXTENSION)) {
+      try {
+        BinaryAnimationFile.read(file, this);
+      } catch (FileNotFoundException e) {
+        throw e;
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to read " + infile, e);
+      }
+      this.model = this;
+    } else {
+      AnimationBuilder builder = new Builder(this);
+      try (InputStream input = new FileInputStream(file)) {
+        this.model = (EasyAnimatorModel) AnimationReader.parseFile(input, builder);
+      } catch (FileNotFoundException e) {
+        throw e;
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to read " + infile, e);
+      }
+    }
+
+    // Compile the keyframes once so the render loop never pays for building them.
+    this.compile();
 
   }
 
   @Override
-  public List<Shape> getShapes() {
+  public synchronized List<Shape> getShapes() {
 
     List<Shape> shapes_copy = new ArrayList<>();
     for (Shape shape : this.shapes) {
@@ -75,8 +105,56 @@ public class EasyAnimatorModelImpl implements EasyAnimatorModel {
   }
 
   @Override
-  public List<Shape> getExactShapes() {
-    return this.shapes;
+  public synchronized List<Shape> getExactShapes() {
+    return new ArrayList<>(this.shapes);
+  }
+
+  @Override
+  public synchronized List<Shape> getExactShapes(double from, double to)
+          throws IllegalArgumentException {
+    if (!(from <= to)) {
+      throw new IllegalArgumentException("Start of the time cannot be after its end.");
+    }
+    int[] alive = new int[this.shapes.size()];
+    int count = this.compile().getLifetimes().aliveIn(from, to, alive);
+    return this.shapesAt(alive, count);
+  }
+
+  @Override
+  public synchronized List<Shape> getExactShapes(double from, double to, int x, int y, int width,
+                                                 int height) throws IllegalArgumentException {
+    if (!(from <= to)) {
+      throw new IllegalArgumentException("Start of the time cannot be after its end.");
+    }
+    int[] found = new int[this.shapes.size()];
+    int count = this.compile().getSpatialIndex().shapesIn(from, to, x, y, width, height, found);
+    return this.shapesAt(found, count);
+  }
+
+  /**
+   * Helper method to get the shapes at the given positions of the list of shapes.
+   *
+   * @param indexes the positions of the shapes, in drawing order.
+   * @param count   the number of positions.
+   * @return the shapes themselves, not copies.
+   */
+  private List<Shape> shapesAt(int[] indexes, int count) {
+    List<Shape> shapes = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      shapes.add(this.shapes.get(indexes[i]));
+    }
+    return shapes;
+  }
+
+  /**
+   * Get the dense integer id of a shape, which is its position in the list of shapes.
+   *
+   * @param name name of the shape.
+   * @return the id of the shape, or -1 if no shape has the name.
+   */
+  public int getShapeId(String name) {
+    Integer id = this.shapeIds.get(name);
+    return id == null ? -1 : id;
   }
 
   @Override
@@ -84,10 +162,13 @@ public class EasyAnimatorModelImpl implements EasyAnimatorModel {
     if (shapeInit == null || shapeFinal == null) {
       throw new IllegalArgumentException("changeShape values cannot be null.");
     }
-    for (Shape shape : this.shapes) {
-      if (shape.getName().equals(shapeInit)) {
-        shape = shapeFinal;
-      }
+    Integer id = this.shapeIds.get(shapeInit);
+    if (id != null) {
+      this.shapesByName.remove(shapeInit);
+      this.shapeIds.remove(shapeInit);
+      this.shapes.set(id, shapeFinal);
+      this.index(shapeFinal, id);
+      this.structure++;
     }
   }
 
@@ -100,10 +181,9 @@ public class EasyAnimatorModelImpl implements EasyAnimatorModel {
             || positionChange.getEndTime() <= 0) {
       throw new IllegalArgumentException("Time value must be valid.");
     }
-    for (Shape shape : this.shapes) {
-      if (shape.getName().equals(name)) {
-        shape.addPositionChange(positionChange);
-      }
+    Shape shape = this.shapesByName.get(name);
+    if (shape != null) {
+      shape.addPositionChange(positionChange);
     }
   }
 
@@ -112,10 +192,9 @@ public class EasyAnimatorModelImpl implements EasyAnimatorModel {
     if (name == null || sizeChange == null) {
       throw new IllegalArgumentException("addResize values cannot be null.");
     }
-    for (Shape shape : this.shapes) {
-      if (shape.getName().equals(name)) {
-        shape.addSizeChange(sizeChange);
-      }
+    Shape shape = this.shapesByName.get(name);
+    if (shape != null) {
+      shape.addSizeChange(sizeChange);
     }
   }
 
@@ -128,10 +207,9 @@ public class EasyAnimatorModelImpl implements EasyAnimatorModel {
       throw new IllegalArgumentException("Time value must be valid.");
     }
 
-    for (Shape shape : this.shapes) {
-      if (shape.getName().equals(name)) {
-        shape.addColorChange(colorChange);
-      }
+    Shape shape = this.shapesByName.get(name);
+    if (shape != null) {
+      shape.addColorChange(colorChange);
     }
   }
 
@@ -141,33 +219,61 @@ public class EasyAnimatorModelImpl implements EasyAnimatorModel {
       throw new IllegalArgumentException("Shape cannot be null.");
     }
     this.shapes.add(shape);
+    this.index(shape, this.shapes.size() - 1);
+    this.structure++;
   }
 
   @Override
-  public String describe() {
+  public synchronized String describe() {
+    return describe(this.shapes, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+  }
+
+  @Override
+  public synchronized String describe(double from, double to) throws IllegalArgumentException {
+    return describe(this.getExactShapes(from, to), from, to);
+  }
+
+  /**
+   * Helper method to describe shapes and the changes that overlap a time.
+   *
+   * @param shapes the shapes to describe.
+   * @param from   the start of the time.
+   * @param to     the end of the time.
+   * @return the description.
+   */
+  private static String describe(List<Shape> shapes, double from, double to) {
     StringBuilder str = new StringBuilder("Shapes:\n\n");
-    for (Shape shape : this.shapes) {
+    for (Shape shape : shapes) {
       str.append(String.format("Name: %s\nType: %s\n%s\nAppears at %.2f\nDisappears at %.2f\n\n",
               shape.getName(), shape.getType(), shape.toString(), shape.getAppears(),
               shape.getDisappears()));
     }
-    for (Shape shape : this.shapes) {
+    for (Shape shape : shapes) {
       for (PositionChange positionChange : shape.getPositionChanges()) {
+        if (positionChange.getEndTime() < from || positionChange.getStartTime() > to) {
+          continue;
+        }
         str.append(String.format("Shape %s moves from %s to %s from %.2f to %.2f\n",
                 shape.getName(), positionChange.getFrom().toString(),
                 positionChange.getTo().toString(),
                 positionChange.getStartTime(), positionChange.getEndTime()));
       }
     }
-    for (Shape shape : this.shapes) {
+    for (Shape shape : shapes) {
       for (SizeChange sizeChange : shape.getSizeChanges()) {
+        if (sizeChange.getEndTime() < from || sizeChange.getStartTime() > to) {
+          continue;
+        }
         str.append(String.format("Shape %s scales by %.2f from %.2f to %.2f\n",
                 shape.getName(), sizeChange.getFactor(),
                 sizeChange.getStartTime(), sizeChange.getEndTime()));
       }
     }
-    for (Shape shape : this.shapes) {
+    for (Shape shape : shapes) {
       for (ColorChange colorChange : shape.getColorChanges()) {
+        if (colorChange.getTime() < from || colorChange.getTime() > to) {
+          continue;
+        }
         str.append(String.format("Shape %s changes color to %s at %.2f\n",
                 shape.getName(), ColorName.colorName(colorChange.getColor()),
                 colorChange.getTime()));
@@ -176,6 +282,113 @@ public class EasyAnimatorModelImpl implements EasyAnimatorModel {
     return str.toString();
   }
 
+  @Override
+  public Frame stateAt(double time) throws IllegalArgumentException {
+    if (time < 0) {
+      throw new IllegalArgumentException("Time cannot be negative.");
+    }
+    return this.compile().frameAt(time);
+  }
+
+  @Override
+  public void stateAt(double time, FrameBuffer buffer) throws IllegalArgumentException {
+    if (time < 0) {
+      throw new IllegalArgumentException("Time cannot be negative.");
+    }
+    if (buffer == null) {
+      throw new IllegalArgumentException("Buffer cannot be null.");
+    }
+    this.compile().evaluate(time, buffer);
+  }
+
+  @Override
+  public void stateAt(double time, int x, int y, int width, int height, FrameBuffer buffer)
+          throws IllegalArgumentException {
+    if (time < 0) {
+      throw new IllegalArgumentException("Time cannot be negative.");
+    }
+    if (buffer == null) {
+      throw new IllegalArgumentException("Buffer cannot be null.");
+    }
+    this.compile().evaluate(time, x, y, width, height, buffer);
+  }
+
+  /**
+   * Get the keyframes of every shape in compiled, columnar form. The compiled form is kept until a
+   * shape is added, removed or changed, and is then compiled again the next time it is needed,
+   * reusing the compiled keyframes of every shape that did not change. While the revision of the
+   * animation is the one it was compiled at, the compiled form is returned without looking at the
+   * shapes, so calling this on every frame costs the same however many shapes there are.
+   *
+   * @return the compiled keyframes of the animation.
+   */
+  @Override
+  public synchronized CompiledTimeline compile() {
+    // Read the revision first, so a change made while the shapes are checked shows up next time.
+    long revision = this.getRevision();
+    CompiledTimeline current = this.compiled;
+    if (current != null && revision == this.compiledRevision
+            && current.getShapeCount() == this.shapes.size()) {
+      return current;
+    }
+    if (current == null || !current.isCurrent(this.shapes)) {
+      long start = AnimatorMetrics.start();
+      current = new CompiledTimeline(this.shapes, current);
+      this.compiled = current;
+      AnimatorMetrics.record(AnimatorMetrics.Latency.BUILD, start);
+    }
+    this.compiledRevision = revision;
+    return current;
+  }
+
+  @Override
+  public long getRevision() {
+    // Both counters only grow, so their sum changes whenever either does.
+    return this.structure + AbstractShape.modifications();
+  }
+
+  /**
+   * Remove the keyframes that do not change how the animation looks, as described by
+   * {@link KeyframeCompactor}. Every frame is the same before and after, but playback, export and
+   * the memory used by the model all get cheaper with fewer keyframes.
+   *
+   * @return the number of keyframes removed.
+   */
+  public synchronized int compactKeyframes() {
+    return KeyframeCompactor.compact(this.shapes);
+  }
+
+  /**
+   * Follow a text animation file that is still being written. The lines already in the file are
+   * loaded before this returns, and every later poll of the returned tailer adds the shapes and
+   * motions appended since, updating the model in place: views playing the model pick up the new
+   * keyframes on their next frame without reloading. Lines are parsed while holding the model's
+   * lock, which {@link #compile()} and the readers of the shapes also take, and the keyframes are
+   * compiled again after each poll so the views do not have to. A reader that walks the keyframes
+   * of the shapes it got while the file is followed holds the same lock while it does.
+   *
+   * @param infile the text animation file to follow.
+   * @return the tailer that ingests the file, whose document is the model.
+   * @throws IOException              if the file cannot be read.
+   * @throws IllegalArgumentException if the file is a binary animation, which cannot be followed.
+   */
+  public static AnimationTailer<EasyAnimatorModel> follow(String infile) throws IOException {
+    if (infile.endsWith(BinaryAnimationFile.EXTENSION)) {
+      throw new IllegalArgumentException("Only text animations can be followed.");
+    }
+    EasyAnimatorModelImpl model = new EasyAnimatorModelImpl(new ArrayList<>());
+    model.model = model;
+    AnimationTailer<EasyAnimatorModel> tailer = new AnimationTailer<>(new File(infile),
+            new Builder(model), model, EasyAnimatorModel::compile);
+    try {
+      tailer.poll();
+    } catch (IOException | RuntimeException e) {
+      tailer.close();
+      throw e;
+    }
+    return tailer;
+  }
+
   @Override
   public EasyAnimatorModelImpl copy() {
     return new EasyAnimatorModelImpl(shapes);
@@ -183,33 +396,23 @@ public class EasyAnimatorModelImpl implements EasyAnimatorModel {
 
   @Override
   public void setReference(String name, Point2D reference) {
-    for (Shape shape : this.shapes) {
-      if (shape.getName().equals(name)) {
-        shape.setReference(reference);
-      }
+    Shape shape = this.shapesByName.get(name);
+    if (shape != null) {
+      shape.setReference(reference);
     }
   }
 
   @Override
   public void setColor(String name, Color color) {
-    for (Shape shape : this.shapes) {
-      if (shape.getName().equals(name)) {
-        shape.setColor(color);
-      }
+    Shape shape = this.shapesByName.get(name);
+    if (shape != null) {
+      shape.setColor(color);
     }
   }
 
   @Override
   public double getDurationTicks() {
-    double largest_tick = 0;
-    for (Shape shape : this.shapes) {
-      for (PositionChange positionChange : shape.getPositionChanges()) {
-        if (positionChange.getEndTime() > largest_tick) {
-          largest_tick = positionChange.getEndTime();
-        }
-      }
-    }
-    return largest_tick;
+    return this.compile().getMoveEndTime();
   }
 
   @Override
@@ -235,17 +438,43 @@ public class EasyAnimatorModelImpl implements EasyAnimatorModel {
   @Override
   public void setShapes(List<Shape> shapes) {
     this.shapes = shapes;
+    this.structure++;
+    this.shapesByName = new HashMap<>();
+    this.shapeIds = new HashMap<>();
+    for (int i = 0; i < shapes.size(); i++) {
+      this.index(shapes.get(i), i);
+    }
+  }
+
+  /**
+   * Helper method to add a shape to the name index. Shape names are expected to be unique; if
+   * they are not, the first shape with a name keeps it.
+   *
+   * @param shape the shape to index.
+   * @param id    the position of the shape in the list of shapes.
+   */
+  private void index(Shape shape, int id) {
+    if (!this.shapeIds.containsKey(shape.getName())) {
+      this.shapesByName.put(shape.getName(), shape);
+      this.shapeIds.put(shape.getName(), id);
+    }
   }
 
   /**
    * Public static class that represents the Builder and implements the AnimationBuilder Interface.
+   * Each motion is applied only to the shape it names, so a file is loaded in a single pass in
+   * time proportional to its number of lines.
    */
   public static final class Builder implements AnimationBuilder<EasyAnimatorModel> {
 
     private EasyAnimatorModel model;
+    private Map<String, Shape> declared;
+    private Map<String, Boolean> started;
 
     Builder(EasyAnimatorModel model) {
       this.model = model;
+      this.declared = new HashMap<>();
+      this.started = new HashMap<>();
     }
 
     @Override
@@ -263,40 +492,31 @@ public class EasyAnimatorModelImpl implements EasyAnimatorModel {
       this.model.setViewWindowY(10);
       this.model.setViewWindowWidth(1500);
       this.model.setViewWindowHeight(1000);
-      return null;
+      return this;
     }
 
 
     @Override
     public AnimationBuilder<EasyAnimatorModel> declareShape(String name, String type) {
 
-      List<SizeChange> sizeChanges = new ArrayList<>();
-      sizeChanges.add(new SizeChange(1, 0, 0));
-
-      List<PositionChange> positionChanges = new ArrayList<>();
-      positionChanges.add(new PositionChange(new Point2D(0, 0), 100,
-              1, 0, 1));
-
-      List<ColorChange> colorChanges = new ArrayList<>();
-      colorChanges.add(new ColorChange(Color.BLACK, 0));
-
       Shape shape = null;
       if (type.equals("circle") || type.equals("ellipse")) {
         shape = new Circle(name, Color.YELLOW, 0, 0, 1,
-                positionChanges, sizeChanges, colorChanges, 0, 0);
+                new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), 0, 0);
       }
       if (type.equals("rectangle")) {
         shape = new Rectangle(name, Color.BLACK, 0, 0, 100, 100,
-                positionChanges, sizeChanges, colorChanges, 0, 0);
+                new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), 0, 0);
       }
 
-      try {
-        this.model.addShape(shape);
-      } catch (NullPointerException e) {
+      if (shape == null) {
         System.out.println("A shape in your animation is not currently supported.");
+      } else {
+        this.model.addShape(shape);
+        this.declared.put(name, shape);
       }
 
-      return null;
+      return this;
     }
 
     @Override
@@ -318,46 +538,35 @@ public class EasyAnimatorModelImpl implements EasyAnimatorModel {
                                                          int g2,
                                                          int b2) {
 
-      if (this.model.getShapes() != null) {
-
-        Point2D position_init = new Point2D(x1, y1);
-        Color color_init = new Color(r1, g1, b1);
-
-        List<Shape> shapes = new ArrayList<>();
-
-        for (Shape shape : this.model.getShapes()) {
-
-          // Remove initializer move
-          shape.removeMove(name, new Point2D(0, 0), 100, 1, 0, 1);
-
-          shape.setReference(position_init);
-          shape.setColor(color_init);
-
-          ShapeVisitor visitor = new ShapeVisitor(w1, h1, r1);
-          shape.accepts(visitor);
-          shapes.add(shape);
-        }
-        this.model.setShapes(shapes);
-
+      Shape shape = this.declared.get(name);
+      if (shape == null) {
+        return this;
+      }
 
-        //this.model.setReference(name, position_init);
+      Point2D position_init = new Point2D(x1, y1);
+
+      // The first motion of a shape gives its initial state; later motions only add keyframes.
+      if (this.started.put(name, true) == null) {
+        shape.setReference(position_init);
+        shape.setColor(new Color(r1, g1, b1));
+        shape.accepts(new ShapeVisitor(w1, h1, w1));
+        shape.setLifetime(t1, t2);
+      } else {
+        shape.setLifetime(Math.min(shape.getAppears(), t1),
+                Math.max(shape.getDisappears(), t2));
+      }
 
-        if (t1 != t2) {   // added by CCF, needed for parsing toh-12.txt
-          PositionChange move = new PositionChange(position_init, x2, y2, t1, t2);
-          this.model.addMove(name, move);
-        }
+      if (t1 != t2) {   // added by CCF, needed for parsing toh-12.txt
+        shape.addPositionChange(new PositionChange(position_init, x2, y2, t1, t2));
+      }
 
-        //Color color_init = new Color(r1, g1, b1);
-        //this.model.setColor(name, color_init);
-        Color color_final = new Color(r2, g2, b2);
-        ColorChange colorChange = new ColorChange(color_final, t2);
-        this.model.addColorChange(name, colorChange);
+      Color color_final = new Color(r2, g2, b2);
+      shape.addColorChange(new ColorChange(color_final, t2));
 
-        double factor = (double) (h2 / h1);
-        SizeChange sizeChange = new SizeChange(factor, t1, t2);
-        this.model.addResize(name, sizeChange);
+      if (h1 != 0 && h2 != 0) {
+        shape.addSizeChange(new SizeChange((double) h2 / h1, t1, t2));
       }
-      return null;
+      return this;
     }
   }
 
@@ -0,0 +1,77 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class represents one frame of the animation: the state of every shape that exists at a
+ * single instant. Each instance is immutable and does not refer back to the model it was computed
+ * from.
+ */
+public final class Frame {
+
+  private final double time;
+  private final List<ShapeState> shapeStates;
+  private final int[] shapeIndexes;
+
+  /**
+   * Constructor for Frame that takes the time of the frame and the state of every shape in it.
+   *
+   * @param time        the time of the frame.
+   * @param shapeStates the state of every shape, in drawing order.
+   * @throws IllegalArgumentException if the time is negative or the states are null.
+   */
+  public Frame(double time, List<ShapeState> shapeStates) throws IllegalArgumentException {
+    if (time < 0 || shapeStates == null) {
+      throw new IllegalArgumentException("Invalid frame.");
+    }
+    this.time = time;
+    this.shapeStates = Collections.unmodifiableList(new ArrayList<>(shapeStates));
+    this.shapeIndexes = null;
+  }
+
+  /**
+   * Constructor for Frame that also records which shape of the animation each state belongs to.
+   *
+   * @param time         the time of the frame.
+   * @param shapeStates  the state of every shape that exists at the time, in drawing order.
+   * @param shapeIndexes the index of each of those shapes in the drawing order of the animation;
+   *                     kept, not copied.
+   */
+  Frame(double time, List<ShapeState> shapeStates, int[] shapeIndexes) {
+    this.time = time;
+    this.shapeStates = Collections.unmodifiableList(shapeStates);
+    this.shapeIndexes = shapeIndexes;
+  }
+
+  /**
+   * Getter for the time of the frame.
+   *
+   * @return the time of the frame.
+   */
+  public double getTime() {
+    return this.time;
+  }
+
+  /**
+   * Getter for the state of every shape in the frame, in drawing order.
+   *
+   * @return an unmodifiable list of shape states.
+   */
+  public List<ShapeState> getShapeStates() {
+    return this.shapeStates;
+  }
+
+  /**
+   * Get which shape of the animation a state of the frame belongs to. A frame created without
+   * this information holds every shape of the animation, so each state is the shape at its own
+   * position.
+   *
+   * @param i the index of the state in the frame.
+   * @return the index of the shape in the drawing order of the animation.
+   */
+  public int getShapeIndex(int i) {
+    return this.shapeIndexes == null ? i : this.shapeIndexes[i];
+  }
+}
@@ -0,0 +1,286 @@
+package model;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class represents a reusable, mutable frame of the animation. It holds the same information
+ * as a {@link Frame}, but in parallel arrays that are filled in place, so a view that computes a
+ * frame on every tick can keep reusing the same buffer instead of creating new frame and shape
+ * state objects. The arrays only grow, when a frame has more shapes than any frame before it.
+ *
+ * <p>A frame holds only the shapes that exist at its time, so every entry also records which shape
+ * of the animation it is, by the shape's index in drawing order. Entries are in drawing order,
+ * which lets two frames be compared shape by shape even when different shapes exist in them.</p>
+ */
+public final class FrameBuffer {
+
+  private double time;
+  private int size;
+  private int[] shapes;
+  private String[] names;
+  private String[] types;
+  private double[] x;
+  private double[] y;
+  private double[] width;
+  private double[] height;
+  private Color[] colors;
+  private boolean[] visible;
+
+  /**
+   * Constructor for an empty FrameBuffer.
+   */
+  public FrameBuffer() {
+    this.shapes = new int[0];
+    this.names = new String[0];
+    this.types = new String[0];
+    this.x = new double[0];
+    this.y = new double[0];
+    this.width = new double[0];
+    this.height = new double[0];
+    this.colors = new Color[0];
+    this.visible = new boolean[0];
+  }
+
+  /**
+   * Start filling the buffer with a frame of the given time and number of shapes.
+   *
+   * @param time the time of the frame.
+   * @param size the number of shapes in the frame.
+   */
+  void reset(double time, int size) {
+    if (size > this.names.length) {
+      int capacity = Math.max(size, this.names.length * 2);
+      this.shapes = new int[capacity];
+      this.names = new String[capacity];
+      this.types = new String[capacity];
+      this.x = new double[capacity];
+      this.y = new double[capacity];
+      this.width = new double[capacity];
+      this.height = new double[capacity];
+      this.colors = new Color[capacity];
+      this.visible = new boolean[capacity];
+    }
+    this.time = time;
+    this.size = size;
+  }
+
+  /**
+   * Set the state of one shape in the frame.
+   *
+   * @param i       the index of the entry in the frame.
+   * @param shape   the index of the shape in the drawing order of the animation.
+   * @param name    the name of the shape.
+   * @param type    the type of the shape.
+   * @param x       the x coordinate of the reference point of the shape.
+   * @param y       the y coordinate of the reference point of the shape.
+   * @param width   the width of the shape, which is the radius for a circle.
+   * @param height  the height of the shape, which is the radius for a circle.
+   * @param color   the color of the shape.
+   * @param visible whether the shape exists at the time of the frame.
+   */
+  void set(int i, int shape, String name, String type, double x, double y, double width,
+           double height, Color color, boolean visible) {
+    this.shapes[i] = shape;
+    this.names[i] = name;
+    this.types[i] = type;
+    this.x[i] = x;
+    this.y[i] = y;
+    this.width[i] = width;
+    this.height[i] = height;
+    this.colors[i] = color;
+    this.visible[i] = visible;
+  }
+
+  /**
+   * Fill the buffer with the contents of a frame.
+   *
+   * @param frame the frame to copy.
+   * @throws IllegalArgumentException if the frame is null.
+   */
+  public void copyFrom(Frame frame) throws IllegalArgumentException {
+    if (frame == null) {
+      throw new IllegalArgumentException("Frame cannot be null.");
+    }
+    List<ShapeState> states = frame.getShapeStates();
+    this.reset(frame.getTime(), states.size());
+    for (int i = 0; i < this.size; i++) {
+      ShapeState state = states.get(i);
+      this.set(i, frame.getShapeIndex(i), state.getName(), state.getType(), state.getX(),
+              state.getY(), state.getWidth(), state.getHeight(), state.getColor(),
+              state.isVisible());
+    }
+  }
+
+  /**
+   * Create an immutable frame with the contents of the buffer.
+   *
+   * @return a frame that does not change when the buffer is reused.
+   */
+  public Frame toFrame() {
+    List<ShapeState> states = new ArrayList<>(this.size);
+    for (int i = 0; i < this.size; i++) {
+      states.add(new ShapeState(this.names[i], this.types[i], this.x[i], this.y[i],
+              this.width[i], this.height[i], this.colors[i], this.visible[i]));
+    }
+    return new Frame(this.time, states, Arrays.copyOf(this.shapes, this.size));
+  }
+
+  /**
+   * Getter for the time of the frame in the buffer.
+   *
+   * @return the time of the frame.
+   */
+  public double getTime() {
+    return this.time;
+  }
+
+  /**
+   * Getter for the number of shapes in the frame.
+   *
+   * @return the number of shapes.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Getter for which shape of the animation an entry of the frame is.
+   *
+   * @param i the index of the entry in the frame.
+   * @return the index of the shape in the drawing order of the animation.
+   */
+  public int getShape(int i) {
+    return this.shapes[i];
+  }
+
+  /**
+   * Helper method to get the column of shape indexes, which has room for as many shapes as the
+   * buffer was last reset to, so it can be filled directly before the rest of the frame.
+   *
+   * @return the column of shape indexes.
+   */
+  int[] shapeColumn() {
+    return this.shapes;
+  }
+
+  /**
+   * Getter for the name of a shape.
+   *
+   * @param i the index of the shape in drawing order.
+   * @return the name of the shape.
+   */
+  public String getName(int i) {
+    return this.names[i];
+  }
+
+  /**
+   * Getter for the type of a shape.
+   *
+   * @param i the index of the shape in drawing order.
+   * @return the type of the shape.
+   */
+  public String getType(int i) {
+    return this.types[i];
+  }
+
+  /**
+   * Getter for the x coordinate of a shape.
+   *
+   * @param i the index of the shape in drawing order.
+   * @return the x coordinate of the reference point of the shape.
+   */
+  public double getX(int i) {
+    return this.x[i];
+  }
+
+  /**
+   * Getter for the y coordinate of a shape.
+   *
+   * @param i the index of the shape in drawing order.
+   * @return the y coordinate of the reference point of the shape.
+   */
+  public double getY(int i) {
+    return this.y[i];
+  }
+
+  /**
+   * Getter for the width of a shape, which is the radius for a circle.
+   *
+   * @param i the index of the shape in drawing order.
+   * @return the width of the shape.
+   */
+  public double getWidth(int i) {
+    return this.width[i];
+  }
+
+  /**
+   * Getter for the height of a shape, which is the radius for a circle.
+   *
+   * @param i the index of the shape in drawing order.
+   * @return the height of the shape.
+   */
+  public double getHeight(int i) {
+    return this.height[i];
+  }
+
+  /**
+   * Getter for the color of a shape.
+   *
+   * @param i the index of the shape in drawing order.
+   * @return the color of the shape.
+   */
+  public Color getColor(int i) {
+    return this.colors[i];
+  }
+
+  /**
+   * Whether a shape exists at the time of the frame.
+   *
+   * @param i the index of the shape in drawing order.
+   * @return true if the shape exists.
+   */
+  public boolean isVisible(int i) {
+    return this.visible[i];
+  }
+
+  /**
+   * Whether a shape has the same state in this buffer and in another one.
+   *
+   * @param i     the index of the shape in drawing order.
+   * @param other the other buffer, which must hold at least i + 1 shapes.
+   * @return true if every attribute of the shape is the same in both buffers.
+   */
+  public boolean sameAs(int i, FrameBuffer other) {
+    return this.sameAs(i, other, i);
+  }
+
+  /**
+   * Whether an entry of this buffer has the same state as an entry of another one.
+   *
+   * @param i     the index of the entry in this buffer.
+   * @param other the other buffer.
+   * @param j     the index of the entry in the other buffer.
+   * @return true if every attribute of the two entries is the same.
+   */
+  public boolean sameAs(int i, FrameBuffer other, int j) {
+    return this.names[i].equals(other.names[j]) && this.types[i].equals(other.types[j])
+            && this.x[i] == other.x[j] && this.y[i] == other.y[j]
+            && this.width[i] == other.width[j] && this.height[i] == other.height[j]
+            && this.colors[i].equals(other.colors[j]) && this.visible[i] == other.visible[j];
+  }
+
+  /**
+   * Draw one shape of the frame the same way {@link ShapeState#draw} does.
+   *
+   * @param i the index of the shape in drawing order.
+   * @param g the graphics to draw with.
+   */
+  public void draw(int i, Graphics g) {
+    ShapeState.draw(g, this.types[i], this.x[i], this.y[i], this.width[i], this.height[i],
+            this.colors[i]);
+  }
+}
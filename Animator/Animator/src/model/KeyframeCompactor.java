@@ -0,0 +1,248 @@
+package model;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Optimization pass that removes keyframes which do not change how an animation looks. Animations
+ * written one motion per line describe a shape moving in a straight line at constant speed as many
+ * short moves, repeat the current color on every motion and resize by a factor of 1 whenever the
+ * size does not change. After compaction:
+ *
+ * <ul>
+ *   <li>moves that follow each other without a gap, and continue in the same direction at the same
+ *   speed, are merged into one move;</li>
+ *   <li>color changes that set the color the shape already has, or are overridden by a later color
+ *   change at the same time, are dropped;</li>
+ *   <li>size changes by a factor of 1 that do not interrupt a size change in progress are
+ *   dropped.</li>
+ * </ul>
+ *
+ * <p>Every shape has exactly the same state at every whole tick before and after compaction, so
+ * every rendered frame is the same. Keyframes are kept in the order of their start times, which is
+ * the order the compiled timeline reads them in.</p>
+ */
+public final class KeyframeCompactor {
+
+  private KeyframeCompactor() {
+  }
+
+  /**
+   * Compact the keyframes of every shape in a list.
+   *
+   * @param shapes the shapes to compact.
+   * @return the number of keyframes removed.
+   * @throws IllegalArgumentException if the list is null.
+   */
+  public static int compact(List<Shape> shapes) throws IllegalArgumentException {
+    if (shapes == null) {
+      throw new IllegalArgumentException("Shapes cannot be null.");
+    }
+    int removed = 0;
+    for (Shape shape : shapes) {
+      removed += compact(shape);
+    }
+    return removed;
+  }
+
+  /**
+   * Compact the keyframes of one shape. The shape is only changed if a keyframe is removed.
+   *
+   * @param shape the shape to compact.
+   * @return the number of keyframes removed.
+   * @throws IllegalArgumentException if the shape is null.
+   */
+  public static int compact(Shape shape) throws IllegalArgumentException {
+    if (shape == null) {
+      throw new IllegalArgumentException("Shape cannot be null.");
+    }
+    List<PositionChange> moves = mergeMoves(sorted(shape.getPositionChanges(),
+            Comparator.comparingDouble(PositionChange::getStartTime)));
+    List<SizeChange> sizes = dropSizes(sorted(shape.getSizeChanges(),
+            Comparator.comparingDouble(SizeChange::getStartTime)));
+    List<ColorChange> colors = dropColors(sorted(shape.getColorChanges(),
+            Comparator.comparingDouble(ColorChange::getTime)), shape.getInitialColor());
+    int removed = shape.getPositionChanges().size() - moves.size()
+            + shape.getSizeChanges().size() - sizes.size()
+            + shape.getColorChanges().size() - colors.size();
+    if (removed > 0) {
+      shape.setKeyframes(moves, sizes, colors);
+    }
+    return removed;
+  }
+
+  /**
+   * Helper method to merge runs of moves that continue one another in a straight line at
+   * constant speed. The moves are first split into maximal runs in which every move starts where
+   * and when the previous one ends, and covers the same distance per tick. Interpolating over a
+   * merged move can round differently than over the moves it replaces, so each run is then
+   * checked against one move across all of it in a single pass over its ticks. If some tick
+   * differs, the run is cut before the move holding that tick, the part before it is checked the
+   * same way, and the rest starts a new run.
+   *
+   * @param moves the moves of a shape, sorted by start time.
+   * @return the merged moves, sorted by start time.
+   */
+  private static List<PositionChange> mergeMoves(List<PositionChange> moves) {
+    List<PositionChange> merged = new ArrayList<>(moves.size());
+    int first = 0;
+    int last = -1;
+    while (first < moves.size()) {
+      if (last < first) {
+        last = first;
+        while (last + 1 < moves.size() && continues(moves.get(last), moves.get(last + 1))) {
+          last++;
+        }
+      }
+      int end = last;
+      while (end > first) {
+        int differs = firstDifference(moves, first, end);
+        if (differs > end) {
+          break;
+        }
+        end = Math.max(first, differs - 1);
+      }
+      PositionChange from = moves.get(first);
+      PositionChange to = moves.get(end);
+      merged.add(end == first ? from : new PositionChange(from.getFrom(), to.getToX(),
+              to.getToY(), from.getStartTime(), to.getEndTime()));
+      first = end + 1;
+    }
+    return merged;
+  }
+
+  /**
+   * Helper method to decide whether a move continues another at the same velocity. Both moves
+   * must take time, and their velocities are compared by cross-multiplying so no division is
+   * involved.
+   *
+   * @param first  the earlier move.
+   * @param second the later move.
+   * @return true if the second move starts where and when the first ends, at the same velocity.
+   */
+  private static boolean continues(PositionChange first, PositionChange second) {
+    double firstTime = first.getEndTime() - first.getStartTime();
+    double secondTime = second.getEndTime() - second.getStartTime();
+    return firstTime > 0 && secondTime > 0
+            && first.getEndTime() == second.getStartTime()
+            && first.getToX() == second.getFromX() && first.getToY() == second.getFromY()
+            && (second.getToX() - second.getFromX()) * firstTime
+            == (first.getToX() - first.getFromX()) * secondTime
+            && (second.getToY() - second.getFromY()) * firstTime
+            == (first.getToY() - first.getFromY()) * secondTime;
+  }
+
+  /**
+   * Helper method to find the first whole tick at which one move across a run of moves gives a
+   * different position than the moves of the run do. The ticks are visited in order, and the
+   * move that holds each tick is found by advancing through the run, so the check takes one pass.
+   *
+   * @param moves the moves of a shape, sorted by start time.
+   * @param first the index of the first move of the run.
+   * @param last  the index of the last move of the run, each of which continues the one before.
+   * @return the index of the move holding the first tick that differs, or last + 1 if the
+   *         positions are the same at every whole tick.
+   */
+  private static int firstDifference(List<PositionChange> moves, int first, int last) {
+    PositionChange from = moves.get(first);
+    PositionChange to = moves.get(last);
+    double start = from.getStartTime();
+    double end = to.getEndTime();
+    int part = first;
+    for (double tick = Math.ceil(start); tick <= end; tick++) {
+      while (part < last && tick >= moves.get(part + 1).getStartTime()) {
+        part++;
+      }
+      PositionChange move = moves.get(part);
+      if (position(from.getFromX(), to.getToX(), start, end, tick)
+              != position(move.getFromX(), move.getToX(), move.getStartTime(), move.getEndTime(),
+              tick)
+              || position(from.getFromY(), to.getToY(), start, end, tick)
+              != position(move.getFromY(), move.getToY(), move.getStartTime(), move.getEndTime(),
+              tick)) {
+        return part;
+      }
+    }
+    return last + 1;
+  }
+
+  /**
+   * Helper method to interpolate one coordinate over a move exactly the way the timeline does.
+   *
+   * @param from  the coordinate at the start of the move.
+   * @param to    the coordinate at the end of the move.
+   * @param start the start time of the move.
+   * @param end   the end time of the move.
+   * @param time  a time during the move.
+   * @return the coordinate at the time.
+   */
+  private static double position(double from, double to, double start, double end,
+                                 double time) {
+    if (time >= end) {
+      return to;
+    }
+    double progress = (time - start) / (end - start);
+    return from + (to - from) * progress;
+  }
+
+  /**
+   * Helper method to drop size changes by a factor of 1. Such a change keeps the scale the
+   * earlier changes left, which is also what the shape has without it, unless the previous
+   * change is still in progress when it starts.
+   *
+   * @param sizes the size changes of a shape, sorted by start time.
+   * @return the size changes that are kept, sorted by start time.
+   */
+  private static List<SizeChange> dropSizes(List<SizeChange> sizes) {
+    List<SizeChange> kept = new ArrayList<>(sizes.size());
+    for (SizeChange size : sizes) {
+      boolean previousDone = kept.isEmpty()
+              || kept.get(kept.size() - 1).getEndTime() <= size.getStartTime();
+      if (size.getFactor() != 1 || !previousDone) {
+        kept.add(size);
+      }
+    }
+    return kept;
+  }
+
+  /**
+   * Helper method to drop color changes that do not change the color. Of several changes at the
+   * same time only the last takes effect, and a change to the color the shape already has has no
+   * effect.
+   *
+   * @param colors  the color changes of a shape, sorted by time.
+   * @param initial the color of the shape before its first color change.
+   * @return the color changes that are kept, sorted by time.
+   */
+  private static List<ColorChange> dropColors(List<ColorChange> colors, Color initial) {
+    List<ColorChange> kept = new ArrayList<>(colors.size());
+    Color current = initial;
+    for (int i = 0; i < colors.size(); i++) {
+      ColorChange change = colors.get(i);
+      boolean overridden = i + 1 < colors.size()
+              && colors.get(i + 1).getTime() == change.getTime();
+      if (!overridden && !change.getColor().equals(current)) {
+        kept.add(change);
+        current = change.getColor();
+      }
+    }
+    return kept;
+  }
+
+  /**
+   * Helper method to sort a copy of a list of keyframes, keeping keyframes with equal keys in
+   * their original order.
+   *
+   * @param list       the keyframes.
+   * @param comparator the order to sort them in.
+   * @param <T>        the type of keyframe.
+   * @return a sorted copy of the list.
+   */
+  private static <T> List<T> sorted(List<T> list, Comparator<T> comparator) {
+    List<T> copy = new ArrayList<>(list);
+    copy.sort(comparator);
+    return copy;
+  }
+}
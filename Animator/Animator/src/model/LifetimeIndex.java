@@ -0,0 +1,316 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * This class represents an index over the lifetimes of the shapes of an animation, answering
+ * which shapes exist at a tick or at some point during a range of ticks. A shape exists from the
+ * time it appears to the time it disappears, inclusive, and a shape that disappears when it
+ * appears has no lifetime and exists at every tick, the same rule as {@link Shape#isVisible}.
+ *
+ * <p>The index is a centered interval tree packed into arrays. Each node holds a center time and
+ * the lifetimes that contain it, sorted once by start and once by end; lifetimes that end before
+ * the center go to the left subtree and lifetimes that start after it to the right. A query walks
+ * one path down the tree and, at each node, reads only the lifetimes it reports, so it costs
+ * O(log n + k) for k shapes found among n. Scenes where many shapes each exist for a short time
+ * only pay for the shapes on screen. Nodes are numbered in the order they are built, so every
+ * subtree is a run of consecutive nodes whose lifetimes are stored next to each other, and a
+ * query that covers a whole subtree copies them in one go.</p>
+ */
+public final class LifetimeIndex {
+
+  private final int size;
+  private final double[] starts;
+  private final double[] ends;
+  private final double[] centers;
+  private final int[] left;
+  private final int[] right;
+  private final int[] subtreeEnd;
+  private final int[] nodeOffset;
+  private final int[] byStart;
+  private final int[] byEnd;
+  private int nodes;
+  private int filled;
+
+  /**
+   * Constructor for LifetimeIndex that indexes the lifetimes of shapes given by their appear and
+   * disappear times. Shape i is the shape at index i of both arrays. A lifetime may also begin at
+   * negative infinity or end at positive infinity.
+   *
+   * @param appears    the time each shape appears.
+   * @param disappears the time each shape disappears.
+   * @throws IllegalArgumentException if an array is null or the arrays differ in length.
+   */
+  public LifetimeIndex(double[] appears, double[] disappears) throws IllegalArgumentException {
+    if (appears == null || disappears == null || appears.length != disappears.length) {
+      throw new IllegalArgumentException("Appear and disappear times must match.");
+    }
+    this.size = appears.length;
+    this.starts = new double[this.size];
+    this.ends = new double[this.size];
+    for (int s = 0; s < this.size; s++) {
+      boolean always = disappears[s] <= appears[s];
+      this.starts[s] = always ? Double.NEGATIVE_INFINITY : appears[s];
+      this.ends[s] = always ? Double.POSITIVE_INFINITY : disappears[s];
+    }
+    // Every node holds at least one lifetime, so there are at most as many nodes as shapes.
+    this.centers = new double[this.size];
+    this.left = new int[this.size];
+    this.right = new int[this.size];
+    this.subtreeEnd = new int[this.size];
+    this.nodeOffset = new int[this.size + 1];
+    this.byStart = new int[this.size];
+    this.byEnd = new int[this.size];
+
+    this.build(order(this.starts, false), order(this.ends, true), this.size);
+  }
+
+  /**
+   * Helper method to order the shapes by a time, packing the rank of the time of each shape and
+   * the shape into one number so the order is found by sorting numbers rather than shapes.
+   *
+   * @param times      the time of every shape.
+   * @param descending whether the latest time comes first.
+   * @return the shapes in order, shapes with the same time in drawing order.
+   */
+  private static int[] order(double[] times, boolean descending) {
+    double[] sorted = times.clone();
+    Arrays.sort(sorted);
+    long[] keys = new long[times.length];
+    for (int s = 0; s < times.length; s++) {
+      long rank = Arrays.binarySearch(sorted, times[s]);
+      keys[s] = (descending ? times.length - rank : rank) << 32 | s;
+    }
+    Arrays.sort(keys);
+    int[] shapes = new int[times.length];
+    for (int i = 0; i < times.length; i++) {
+      shapes[i] = (int) keys[i];
+    }
+    return shapes;
+  }
+
+  /**
+   * Helper method to build the subtree over a set of lifetimes and return its root. The center
+   * of the node is the median of the finite end points of its lifetimes, which is an end point of
+   * at least one of them, so every node holds a lifetime and each subtree holds at most half of
+   * the end points. The lifetimes are given in both orders a node keeps them in, and splitting
+   * them keeps those orders, so no node sorts its lifetimes and the median is found by merging
+   * the two orders.
+   *
+   * @param byStart the shapes whose lifetimes go in the subtree, by start.
+   * @param byEnd   the same shapes, latest end first.
+   * @param count   the number of shapes.
+   * @return the index of the root node, or -1 if there are no shapes.
+   */
+  private int build(int[] byStart, int[] byEnd, int count) {
+    if (count == 0) {
+      return -1;
+    }
+    // Infinite starts come first by start and infinite ends first by end; skip both.
+    int nextStart = 0;
+    while (nextStart < count && this.starts[byStart[nextStart]] == Double.NEGATIVE_INFINITY) {
+      nextStart++;
+    }
+    int lastEnd = 0;
+    while (lastEnd < count && this.ends[byEnd[lastEnd]] == Double.POSITIVE_INFINITY) {
+      lastEnd++;
+    }
+    int nextEnd = count - 1;
+    double center = 0;
+    for (int taken = (count - nextStart + count - lastEnd) / 2; taken >= 0
+            && (nextStart < count || nextEnd >= lastEnd); taken--) {
+      if (nextEnd < lastEnd || nextStart < count
+              && this.starts[byStart[nextStart]] <= this.ends[byEnd[nextEnd]]) {
+        center = this.starts[byStart[nextStart++]];
+      } else {
+        center = this.ends[byEnd[nextEnd--]];
+      }
+    }
+
+    // Split into lifetimes before the center, containing it, and after it, in both orders.
+    int node = this.nodes++;
+    this.centers[node] = center;
+    int offset = this.filled;
+    this.nodeOffset[node] = offset;
+    int[] beforeByStart = new int[count];
+    int[] afterByStart = new int[count];
+    int beforeCount = 0;
+    int afterCount = 0;
+    int here = 0;
+    for (int i = 0; i < count; i++) {
+      int s = byStart[i];
+      if (this.ends[s] < center) {
+        beforeByStart[beforeCount++] = s;
+      } else if (this.starts[s] > center) {
+        afterByStart[afterCount++] = s;
+      } else {
+        this.byStart[offset + here++] = s;
+      }
+    }
+    int[] beforeByEnd = new int[beforeCount];
+    int[] afterByEnd = new int[afterCount];
+    beforeCount = 0;
+    afterCount = 0;
+    here = 0;
+    for (int i = 0; i < count; i++) {
+      int s = byEnd[i];
+      if (this.ends[s] < center) {
+        beforeByEnd[beforeCount++] = s;
+      } else if (this.starts[s] > center) {
+        afterByEnd[afterCount++] = s;
+      } else {
+        this.byEnd[offset + here++] = s;
+      }
+    }
+    this.filled += here;
+    this.nodeOffset[node + 1] = this.filled;
+
+    this.left[node] = this.build(beforeByStart, beforeByEnd, beforeCount);
+    this.right[node] = this.build(afterByStart, afterByEnd, afterCount);
+    this.subtreeEnd[node] = this.nodes;
+    return node;
+  }
+
+  /**
+   * Get the number of shapes in the index.
+   *
+   * @return the number of shapes.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Find the shapes that exist at a tick. The shapes are written to the result in drawing order.
+   *
+   * @param time   the tick.
+   * @param result where the indexes of the shapes are written, with room for every shape.
+   * @return the number of shapes found.
+   * @throws IllegalArgumentException if the result has less room than the number of shapes.
+   */
+  public int aliveAt(double time, int[] result) throws IllegalArgumentException {
+    return this.aliveIn(time, time, result);
+  }
+
+  /**
+   * Find the shapes that exist at some point from one tick to another, inclusive. The shapes are
+   * written to the result in drawing order.
+   *
+   * @param from   the first tick.
+   * @param to     the last tick.
+   * @param result where the indexes of the shapes are written, with room for every shape.
+   * @return the number of shapes found.
+   * @throws IllegalArgumentException if the range is empty or the result has less room than the
+   *                                  number of shapes.
+   */
+  public int aliveIn(double from, double to, int[] result) throws IllegalArgumentException {
+    if (!(from <= to)) {
+      throw new IllegalArgumentException("Range cannot be empty.");
+    }
+    if (result == null || result.length < this.size) {
+      throw new IllegalArgumentException("Result must have room for every shape.");
+    }
+    int count = this.aliveInAnyOrder(from, to, result);
+    Arrays.sort(result, 0, count);
+    return count;
+  }
+
+  /**
+   * Find the shapes that exist at some point from one tick to another, inclusive, in no
+   * particular order, for callers that merge the results of several indexes and order them once.
+   *
+   * @param from   the first tick, no later than the last.
+   * @param to     the last tick.
+   * @param result where the indexes of the shapes are written, with room for every shape.
+   * @return the number of shapes found.
+   */
+  int aliveInAnyOrder(double from, double to, int[] result) {
+    int count = 0;
+    int node = this.nodes > 0 ? 0 : -1;
+    // Walk down until a node whose center is inside the range, reporting the lifetimes of the
+    // nodes passed that reach into the range.
+    while (node >= 0 && (to < this.centers[node] || from > this.centers[node])) {
+      count = this.reportOverlapping(node, from, to, result, count);
+      node = to < this.centers[node] ? this.left[node] : this.right[node];
+    }
+    if (node < 0) {
+      return count;
+    }
+    count = this.reportSubtrees(node, node + 1, result, count);
+
+    // Left of that node every lifetime ends before the range does, so only the start of the
+    // range matters, and a node whose center is inside the range is reported together with its
+    // whole right subtree. The right side is the mirror image.
+    for (int n = this.left[node]; n >= 0; ) {
+      if (from > this.centers[n]) {
+        count = this.reportOverlapping(n, from, to, result, count);
+        n = this.right[n];
+      } else {
+        count = this.reportSubtrees(n, n + 1, result, count);
+        if (this.right[n] >= 0) {
+          count = this.reportSubtrees(this.right[n], this.subtreeEnd[this.right[n]], result,
+                  count);
+        }
+        n = this.left[n];
+      }
+    }
+    for (int n = this.right[node]; n >= 0; ) {
+      if (to < this.centers[n]) {
+        count = this.reportOverlapping(n, from, to, result, count);
+        n = this.left[n];
+      } else {
+        count = this.reportSubtrees(n, n + 1, result, count);
+        if (this.left[n] >= 0) {
+          count = this.reportSubtrees(this.left[n], this.subtreeEnd[this.left[n]], result,
+                  count);
+        }
+        n = this.right[n];
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Helper method to report the lifetimes of a node whose center is outside a range and that
+   * reach into the range. Lifetimes after the range are those sorted last by start, and lifetimes
+   * before it those sorted last by end, so the scan stops at the first lifetime that does not.
+   *
+   * @param node   the node, whose center is before or after the range.
+   * @param from   the first tick of the range.
+   * @param to     the last tick of the range.
+   * @param result where the indexes of the shapes are written.
+   * @param count  the number of shapes written so far.
+   * @return the number of shapes written.
+   */
+  private int reportOverlapping(int node, double from, double to, int[] result, int count) {
+    int lo = this.nodeOffset[node];
+    int hi = this.nodeOffset[node + 1];
+    if (to < this.centers[node]) {
+      for (int i = lo; i < hi && this.starts[this.byStart[i]] <= to; i++) {
+        result[count++] = this.byStart[i];
+      }
+    } else {
+      for (int i = lo; i < hi && this.ends[this.byEnd[i]] >= from; i++) {
+        result[count++] = this.byEnd[i];
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Helper method to report every lifetime of a run of nodes. Nodes are numbered in the order
+   * they were built, so the nodes of a subtree, and their lifetimes, are next to each other.
+   *
+   * @param first  the first node of the run.
+   * @param end    one past the last node of the run.
+   * @param result where the indexes of the shapes are written.
+   * @param count  the number of shapes written so far.
+   * @return the number of shapes written.
+   */
+  private int reportSubtrees(int first, int end, int[] result, int count) {
+    int lo = this.nodeOffset[first];
+    int hi = this.nodeOffset[end];
+    System.arraycopy(this.byStart, lo, result, count, hi - lo);
+    return count + hi - lo;
+  }
+}
@@ -70,6 +70,42 @@ public class PositionChange implements Change {
     return new Point2D(this.toXCoordinate, this.toYCoordinate);
   }
 
+  /**
+   * Getter for the x coordinate of the point of departure, without creating a point.
+   *
+   * @return the x coordinate from which the shape will be moving.
+   */
+  public double getFromX() {
+    return this.referenceXCoordinate;
+  }
+
+  /**
+   * Getter for the y coordinate of the point of departure, without creating a point.
+   *
+   * @return the y coordinate from which the shape will be moving.
+   */
+  public double getFromY() {
+    return this.referenceYCoordinate;
+  }
+
+  /**
+   * Getter for the x coordinate of the point of arrival, without creating a point.
+   *
+   * @return the x coordinate to which the shape will be arriving.
+   */
+  public double getToX() {
+    return this.toXCoordinate;
+  }
+
+  /**
+   * Getter for the y coordinate of the point of arrival, without creating a point.
+   *
+   * @return the y coordinate to which the shape will be arriving.
+   */
+  public double getToY() {
+    return this.toYCoordinate;
+  }
+
   /**
    * Getter for the time at which the shape will move.
    *
@@ -89,8 +89,7 @@ public class Rectangle extends AbstractShape {
     if (sizeChange == null || sizeChange.getFactor() == 0) {
       throw new IllegalArgumentException("SizeChange must be valid.");
     }
-    this.width = width * sizeChange.getFactor();
-    this.height = height * sizeChange.getFactor();
+    super.addSizeChange(sizeChange);
   }
 
   @Override
@@ -134,6 +133,7 @@ public class Rectangle extends AbstractShape {
     }
     this.height = this.height * factor;
     this.width = this.width * factor;
+    this.changed();
   }
 
   @Override
@@ -141,17 +141,8 @@ public class Rectangle extends AbstractShape {
     if (time < this.getAppears() || time > this.getDisappears()) {
       throw new IllegalArgumentException("Cannot get size for shape that doesn't exist yet.");
     }
-    double tempWidth = this.width;
-    double tempHeight = this.height;
-    for (SizeChange sizeChange : this.sizeChanges) {
-      if (sizeChange.getStartTime() < time) {
-        tempWidth = this.width;
-        tempHeight = this.height;
-      }
-      tempHeight = this.height * sizeChange.getFactor();
-      tempWidth = this.width * sizeChange.getFactor();
-    }
-    return tempWidth * tempHeight;
+    double scale = this.getTimeline().getScale(time);
+    return this.width * scale * this.height * scale;
   }
 
   @Override
@@ -180,12 +171,14 @@ public class Rectangle extends AbstractShape {
     visitor.visit(this);
   }
 
-  protected void setWidth(int width) {
+  protected void setWidth(double width) {
     this.width = width;
+    this.changed();
   }
 
-  protected void setHeight(int height) {
+  protected void setHeight(double height) {
     this.height = height;
+    this.changed();
   }
 
 }
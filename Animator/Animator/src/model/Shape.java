@@ -51,6 +51,13 @@ public interface Shape {
    */
   Color getColor(double time);
 
+  /**
+   * Get color of shape before its first color change.
+   *
+   * @return initial color of shape
+   */
+  Color getInitialColor();
+
   /**
    * Gets area of shape at specified time.
    *
@@ -80,6 +87,21 @@ public interface Shape {
    */
   List<ColorChange> getColorChanges();
 
+  /**
+   * Get the keyframe index of the shape, built from its changes the first time it is needed.
+   *
+   * @return the keyframe index of the shape
+   */
+  ShapeTimeline getTimeline();
+
+  /**
+   * Get a counter that changes whenever the shape, its size or its keyframes are changed, so
+   * anything computed from the shape can tell whether it is out of date.
+   *
+   * @return the revision of the shape
+   */
+  long getRevision();
+
   /**
    * Get time when shape appears.
    *
@@ -94,6 +116,23 @@ public interface Shape {
    */
   double getDisappears();
 
+  /**
+   * Set the time when the shape appears and the time when it disappears.
+   *
+   * @param appears    time shape appears
+   * @param disappears time shape disappears
+   */
+  void setLifetime(double appears, double disappears);
+
+  /**
+   * Whether the shape exists at the given time. A shape whose disappear time is not after its
+   * appear time has no declared lifetime and exists for the whole animation.
+   *
+   * @param time the time to check
+   * @return true if the shape exists at the time
+   */
+  boolean isVisible(double time);
+
   /**
    * Set shape current position.
    */
@@ -175,6 +214,17 @@ public interface Shape {
    */
   void removeMove(String name, Point2D positionInit, double x2, double y2, int t1, int t2);
 
+  /**
+   * Replace every keyframe of a shape.
+   *
+   * @param positionChanges the new moves of the shape.
+   * @param sizeChanges     the new size changes of the shape.
+   * @param colorChanges    the new color changes of the shape.
+   * @throws IllegalArgumentException if any list is null.
+   */
+  void setKeyframes(List<PositionChange> positionChanges, List<SizeChange> sizeChanges,
+                    List<ColorChange> colorChanges) throws IllegalArgumentException;
+
   /**
    * Returns copy of a shape.
    *
@@ -0,0 +1,187 @@
+package model;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.util.Objects;
+
+/**
+ * This class represents the state of one shape in a single frame of the animation. Each instance is
+ * immutable, so states can be shared between threads and kept after the model changes.
+ */
+public final class ShapeState {
+
+  private final String name;
+  private final String type;
+  private final double x;
+  private final double y;
+  private final double width;
+  private final double height;
+  private final Color color;
+  private final boolean visible;
+
+  /**
+   * Constructor for ShapeState that takes every attribute of the shape at one instant.
+   *
+   * @param name    the name of the shape.
+   * @param type    the type of the shape.
+   * @param x       the x coordinate of the reference point of the shape.
+   * @param y       the y coordinate of the reference point of the shape.
+   * @param width   the width of the shape, which is the radius for a circle.
+   * @param height  the height of the shape, which is the radius for a circle.
+   * @param color   the color of the shape.
+   * @param visible whether the shape exists at this instant.
+   * @throws IllegalArgumentException if the name, type or color is null.
+   */
+  public ShapeState(String name, String type, double x, double y, double width, double height,
+                    Color color, boolean visible) throws IllegalArgumentException {
+    if (name == null || type == null || color == null) {
+      throw new IllegalArgumentException("Shape state values cannot be null.");
+    }
+    this.name = name;
+    this.type = type;
+    this.x = x;
+    this.y = y;
+    this.width = width;
+    this.height = height;
+    this.color = color;
+    this.visible = visible;
+  }
+
+  /**
+   * Getter for the name of the shape.
+   *
+   * @return the name of the shape.
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Getter for the type of the shape.
+   *
+   * @return the type of the shape.
+   */
+  public String getType() {
+    return this.type;
+  }
+
+  /**
+   * Getter for the x coordinate of the reference point.
+   *
+   * @return the x coordinate of the shape.
+   */
+  public double getX() {
+    return this.x;
+  }
+
+  /**
+   * Getter for the y coordinate of the reference point.
+   *
+   * @return the y coordinate of the shape.
+   */
+  public double getY() {
+    return this.y;
+  }
+
+  /**
+   * Getter for the width of the shape.
+   *
+   * @return the width of the shape.
+   */
+  public double getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Getter for the height of the shape.
+   *
+   * @return the height of the shape.
+   */
+  public double getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Getter for the color of the shape.
+   *
+   * @return the color of the shape.
+   */
+  public Color getColor() {
+    return this.color;
+  }
+
+  /**
+   * Whether the shape exists at this instant.
+   *
+   * @return true if the shape should be drawn.
+   */
+  public boolean isVisible() {
+    return this.visible;
+  }
+
+  /**
+   * Method to draw the shape in this state using the graphics, the same way the shape draws
+   * itself.
+   *
+   * @param g the graphics used to draw the shape.
+   * @throws IllegalArgumentException if the graphics is null.
+   */
+  public void draw(Graphics g) throws IllegalArgumentException {
+    if (g == null) {
+      throw new IllegalArgumentException("Graphics cannot be null.");
+    }
+    draw(g, this.type, this.x, this.y, this.width, this.height, this.color);
+  }
+
+  /**
+   * Draw a shape with the given attributes: an outlined and filled oval for a circle, and an
+   * outlined and filled rectangle otherwise.
+   *
+   * @param g      the graphics to draw with.
+   * @param type   the type of the shape.
+   * @param x      the x coordinate of the reference point of the shape.
+   * @param y      the y coordinate of the reference point of the shape.
+   * @param width  the width of the shape, which is the radius for a circle.
+   * @param height the height of the shape, which is the radius for a circle.
+   * @param color  the color of the shape.
+   */
+  public static void draw(Graphics g, String type, double x, double y, double width, double height,
+                   Color color) {
+    g.setColor(color);
+    if (type.equals("circle")) {
+      g.drawOval((int) x, (int) y, (int) width, (int) height);
+      g.fillOval((int) x, (int) y, (int) width, (int) height);
+    } else {
+      g.drawRect((int) x, (int) y, (int) width, (int) height);
+      g.fillRect((int) x, (int) y, (int) width, (int) height);
+    }
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof ShapeState)) {
+      return false;
+    }
+    ShapeState that = (ShapeState) other;
+    return this.x == that.x && this.y == that.y
+            && this.width == that.width && this.height == that.height
+            && this.visible == that.visible && this.name.equals(that.name)
+            && this.type.equals(that.type) && this.color.equals(that.color);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(this.name, this.type, this.x, this.y, this.width, this.height,
+            this.color, this.visible);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s %s at (%.2f,%.2f) size %.2f x %.2f, Color: %s%s", this.type,
+            this.name, this.x, this.y, this.width, this.height, ColorName.colorName(this.color),
+            this.visible ? "" : " (hidden)");
+  }
+}
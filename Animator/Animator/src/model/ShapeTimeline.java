@@ -0,0 +1,254 @@
+package model;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * This class represents a read-only index over the keyframes of one shape. The position, size and
+ * color changes of the shape are sorted by start time once when the index is built, so the change
+ * that is active at any tick can be found with a binary search rather than a scan of the shape's
+ * whole history.
+ */
+public final class ShapeTimeline {
+
+  private final double[] moveStart;
+  private final double[] moveEnd;
+  private final double[] moveFromX;
+  private final double[] moveFromY;
+  private final double[] moveToX;
+  private final double[] moveToY;
+  private final double moveEndTime;
+
+  private final double[] sizeStart;
+  private final double[] sizeEnd;
+  private final double[] sizeFactor;
+  private final double[] sizeScaleBefore;
+
+  private final double[] colorTime;
+  private final Color[] colorValue;
+
+  /**
+   * Constructor for ShapeTimeline that indexes the given changes. The lists are copied, so later
+   * changes to them are not reflected in the timeline.
+   *
+   * @param positionChanges the position changes of the shape.
+   * @param sizeChanges     the size changes of the shape.
+   * @param colorChanges    the color changes of the shape.
+   * @throws IllegalArgumentException if any of the lists is null.
+   */
+  ShapeTimeline(List<PositionChange> positionChanges, List<SizeChange> sizeChanges,
+                List<ColorChange> colorChanges) throws IllegalArgumentException {
+    if (positionChanges == null || sizeChanges == null || colorChanges == null) {
+      throw new IllegalArgumentException("Timeline changes cannot be null.");
+    }
+
+    List<PositionChange> moves = new ArrayList<>(positionChanges);
+    moves.sort(Comparator.comparingDouble(PositionChange::getStartTime));
+    int moveCount = moves.size();
+    this.moveStart = new double[moveCount];
+    this.moveEnd = new double[moveCount];
+    this.moveFromX = new double[moveCount];
+    this.moveFromY = new double[moveCount];
+    this.moveToX = new double[moveCount];
+    this.moveToY = new double[moveCount];
+    double maxEnd = 0;
+    for (int i = 0; i < moveCount; i++) {
+      PositionChange move = moves.get(i);
+      this.moveStart[i] = move.getStartTime();
+      this.moveEnd[i] = move.getEndTime();
+      this.moveFromX[i] = move.getFromX();
+      this.moveFromY[i] = move.getFromY();
+      this.moveToX[i] = move.getToX();
+      this.moveToY[i] = move.getToY();
+      maxEnd = Math.max(maxEnd, move.getEndTime());
+    }
+    this.moveEndTime = maxEnd;
+
+    List<SizeChange> sizes = new ArrayList<>(sizeChanges);
+    sizes.sort(Comparator.comparingDouble(SizeChange::getStartTime));
+    int sizeCount = sizes.size();
+    this.sizeStart = new double[sizeCount];
+    this.sizeEnd = new double[sizeCount];
+    this.sizeFactor = new double[sizeCount];
+    this.sizeScaleBefore = new double[sizeCount];
+    double scale = 1;
+    for (int i = 0; i < sizeCount; i++) {
+      SizeChange size = sizes.get(i);
+      this.sizeStart[i] = size.getStartTime();
+      this.sizeEnd[i] = size.getEndTime();
+      this.sizeFactor[i] = size.getFactor();
+      this.sizeScaleBefore[i] = scale;
+      scale = scale * size.getFactor();
+    }
+
+    List<ColorChange> colors = new ArrayList<>(colorChanges);
+    colors.sort(Comparator.comparingDouble(ColorChange::getTime));
+    int colorCount = colors.size();
+    this.colorTime = new double[colorCount];
+    this.colorValue = new Color[colorCount];
+    for (int i = 0; i < colorCount; i++) {
+      this.colorTime[i] = colors.get(i).getTime();
+      this.colorValue[i] = colors.get(i).getColor();
+    }
+  }
+
+  /**
+   * Get the x coordinate of the shape at the given tick. During a move the coordinate is
+   * interpolated linearly between the start and end of the move; between moves the shape rests
+   * where the latest move left it, and before its first move it rests where that move starts.
+   *
+   * @param time     the tick to look up.
+   * @param initialX the x coordinate to use if the shape never moves.
+   * @return the x coordinate of the shape at the tick.
+   */
+  public double getX(double time, double initialX) {
+    return this.interpolateMove(time, initialX, this.moveFromX, this.moveToX);
+  }
+
+  /**
+   * Get the y coordinate of the shape at the given tick, interpolated the same way as
+   * {@link #getX}.
+   *
+   * @param time     the tick to look up.
+   * @param initialY the y coordinate to use if the shape never moves.
+   * @return the y coordinate of the shape at the tick.
+   */
+  public double getY(double time, double initialY) {
+    return this.interpolateMove(time, initialY, this.moveFromY, this.moveToY);
+  }
+
+  /**
+   * Get the scale of the shape relative to its declared size at the given tick. Every size change
+   * that ended before the tick stays applied, and the size change in progress is interpolated
+   * linearly.
+   *
+   * @param time the tick to look up.
+   * @return the scale of the shape at the tick.
+   */
+  public double getScale(double time) {
+    return scale(time, this.sizeStart, this.sizeEnd, this.sizeFactor, this.sizeScaleBefore, 0,
+            this.sizeStart.length);
+  }
+
+  /**
+   * Get the color of the shape at the given tick, which is the color of the latest color change
+   * at or before the tick.
+   *
+   * @param time         the tick to look up.
+   * @param initialColor the color to use before the first color change.
+   * @return the color of the shape at the tick.
+   */
+  public Color getColor(double time, Color initialColor) {
+    int i = floor(this.colorTime, time);
+    return i < 0 ? initialColor : this.colorValue[i];
+  }
+
+  /**
+   * Get the time at which the last move of the shape ends.
+   *
+   * @return the end time of the last move, or 0 if the shape never moves.
+   */
+  public double getMoveEndTime() {
+    return this.moveEndTime;
+  }
+
+  private double interpolateMove(double time, double initial, double[] from, double[] to) {
+    return interpolate(time, initial, this.moveStart, this.moveEnd, from, to, 0,
+            this.moveStart.length);
+  }
+
+  /**
+   * Interpolate one coordinate over a range of moves sorted by start time, the way
+   * {@link #getX} describes. Shared with {@link CompiledTimeline}, which keeps the moves of every
+   * shape in the same arrays.
+   *
+   * @param time    the tick to look up.
+   * @param initial the coordinate to use if the range is empty.
+   * @param start   the start times of the moves.
+   * @param end     the end times of the moves.
+   * @param from    the coordinate at the start of each move.
+   * @param to      the coordinate at the end of each move.
+   * @param lo      the first index of the range.
+   * @param hi      one past the last index of the range.
+   * @return the coordinate at the tick.
+   */
+  static double interpolate(double time, double initial, double[] start, double[] end,
+                            double[] from, double[] to, int lo, int hi) {
+    if (lo == hi) {
+      return initial;
+    }
+    int i = floor(start, time, lo, hi);
+    if (i < lo) {
+      return from[lo];
+    }
+    if (time >= end[i]) {
+      return to[i];
+    }
+    double progress = (time - start[i]) / (end[i] - start[i]);
+    return from[i] + (to[i] - from[i]) * progress;
+  }
+
+  /**
+   * Compute the scale over a range of size changes sorted by start time, the way
+   * {@link #getScale} describes.
+   *
+   * @param time        the tick to look up.
+   * @param start       the start times of the size changes.
+   * @param end         the end times of the size changes.
+   * @param factor      the factor of each size change.
+   * @param scaleBefore the scale in effect when each size change starts.
+   * @param lo          the first index of the range.
+   * @param hi          one past the last index of the range.
+   * @return the scale at the tick.
+   */
+  static double scale(double time, double[] start, double[] end, double[] factor,
+                      double[] scaleBefore, int lo, int hi) {
+    int i = floor(start, time, lo, hi);
+    if (i < lo) {
+      return 1;
+    }
+    double current = factor[i];
+    double dt = end[i] - start[i];
+    if (time < end[i] && dt > 0) {
+      current = 1 + (current - 1) * (time - start[i]) / dt;
+    }
+    return scaleBefore[i] * current;
+  }
+
+  /**
+   * Find the last index whose value is less than or equal to the key.
+   *
+   * @param sorted array sorted in ascending order.
+   * @param key    the value to look up.
+   * @return the last index whose value is at most the key, or -1 if there is none.
+   */
+  static int floor(double[] sorted, double key) {
+    return floor(sorted, key, 0, sorted.length);
+  }
+
+  /**
+   * Find the last index in a sorted range whose value is less than or equal to the key.
+   *
+   * @param sorted array whose range is sorted in ascending order.
+   * @param key    the value to look up.
+   * @param from   the first index of the range.
+   * @param to     one past the last index of the range.
+   * @return the last index in the range whose value is at most the key, or from - 1 if there is
+   *         none.
+   */
+  static int floor(double[] sorted, double key, int from, int to) {
+    int lo = from;
+    int hi = to - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (sorted[mid] <= key) {
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return hi;
+  }
+}
@@ -4,9 +4,9 @@ package model;
  */
 public class ShapeVisitor {
 
-  private int width;
-  private int height;
-  private int radius;
+  private double width;
+  private double height;
+  private double radius;
 
   /**
    * Constructor for ShapeVisitor.
@@ -14,7 +14,7 @@ public class ShapeVisitor {
    * @param height rectangle height
    * @param radius circle radius
    */
-  ShapeVisitor(int width, int height, int radius) {
+  ShapeVisitor(double width, double height, double radius) {
     this.width = width;
     this.height = height;
     this.radius = radius;
@@ -0,0 +1,483 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * This class represents an index over where the shapes of an animation are over time, answering
+ * which shapes may be seen in a region of the animation at a tick or at some point during a range
+ * of ticks. Each shape is described by boxes that each hold every pixel the shape may cover during
+ * a range of time, such as the box swept by one of its moves.
+ *
+ * <p>The boxes are placed in a uniform grid of cells over the animation, and the boxes of each cell
+ * are indexed by time in a {@link LifetimeIndex}, so a query only looks at the cells near the region
+ * and, in each of them, only at the boxes that exist at the time asked for. A zoomed-in view of a
+ * large scene therefore costs as much as the shapes near it, not as every shape that exists at
+ * the time. Each box is kept once, in the cell of its top left corner, and a query also looks at
+ * the cells as far above and to the left of the region as a box may span, so a view of the whole
+ * scene costs no more than looking at every box once. Consecutive boxes of a shape that stay
+ * within the same cells are merged, so a shape that moves a short step on every tick costs one box
+ * for each cell it passes through rather than one for each move. Boxes that span more cells are
+ * kept in one more lifetime index that every query looks at. A query that would look at most of
+ * the cells finds every shape that exists during its time instead, which is cheaper and finds
+ * nearly the same shapes.</p>
+ *
+ * <p>Boxes are conservative: every shape whose pixels touch the region is found, but a shape that
+ * is found may not touch it, so a caller that needs exact bounds tests the shapes it is given. An
+ * index does not change once it is built, so it can be queried from several threads at once.</p>
+ */
+public final class SpatialIndex {
+
+  private static final int SHAPES_PER_CELL = 4;
+  private static final int MAX_CELLS_PER_SIDE = 64;
+  private static final int MAX_CELLS_SPANNED = 4;
+  private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+  /**
+   * Space for the results of one query, kept by each thread so queries do not allocate once it
+   * is large enough. The shapes found are marked in a set of bits, one for each shape, which is
+   * left empty after every query.
+   */
+  private static final class Scratch {
+
+    private int[] local = new int[0];
+    private long[] found = new long[0];
+  }
+
+  /**
+   * Builder that collects the boxes of the shapes before the index is built.
+   */
+  public static final class Builder {
+
+    private final int shapeCount;
+    private int size;
+    private int[] shapes;
+    private double[] starts;
+    private double[] ends;
+    private double[] lefts;
+    private double[] tops;
+    private double[] rights;
+    private double[] bottoms;
+
+    /**
+     * Constructor for Builder that takes the number of shapes in the animation.
+     *
+     * @param shapeCount the number of shapes, which are known by their index in drawing order.
+     * @param capacity   the number of boxes expected, which is only a hint.
+     * @throws IllegalArgumentException if either number is negative.
+     */
+    public Builder(int shapeCount, int capacity) throws IllegalArgumentException {
+      if (shapeCount < 0 || capacity < 0) {
+        throw new IllegalArgumentException("Counts cannot be negative.");
+      }
+      this.shapeCount = shapeCount;
+      this.shapes = new int[capacity];
+      this.starts = new double[capacity];
+      this.ends = new double[capacity];
+      this.lefts = new double[capacity];
+      this.tops = new double[capacity];
+      this.rights = new double[capacity];
+      this.bottoms = new double[capacity];
+    }
+
+    /**
+     * Add a box that holds every pixel a shape may cover from one time to another, inclusive.
+     * Boxes of the same shape are best added one after another in time order, so that the ones
+     * that stay within the same cells can be merged.
+     *
+     * @param shape  the index of the shape in drawing order.
+     * @param start  the first time of the box, which may be negative infinity.
+     * @param end    the last time of the box, which may be positive infinity.
+     * @param left   the leftmost pixel the shape may cover.
+     * @param top    the topmost pixel the shape may cover.
+     * @param right  one past the rightmost pixel the shape may cover.
+     * @param bottom one past the bottommost pixel the shape may cover.
+     * @return this builder.
+     * @throws IllegalArgumentException if the shape is not in the animation or the time ends
+     *                                  before it starts.
+     */
+    public Builder add(int shape, double start, double end, double left, double top,
+                       double right, double bottom) throws IllegalArgumentException {
+      if (shape < 0 || shape >= this.shapeCount) {
+        throw new IllegalArgumentException("No shape " + shape + " in the animation.");
+      }
+      if (!(start <= end)) {
+        throw new IllegalArgumentException("Time of a box cannot end before it starts.");
+      }
+      if (this.size == this.shapes.length) {
+        int capacity = Math.max(16, this.size * 2);
+        this.shapes = Arrays.copyOf(this.shapes, capacity);
+        this.starts = Arrays.copyOf(this.starts, capacity);
+        this.ends = Arrays.copyOf(this.ends, capacity);
+        this.lefts = Arrays.copyOf(this.lefts, capacity);
+        this.tops = Arrays.copyOf(this.tops, capacity);
+        this.rights = Arrays.copyOf(this.rights, capacity);
+        this.bottoms = Arrays.copyOf(this.bottoms, capacity);
+      }
+      this.shapes[this.size] = shape;
+      this.starts[this.size] = start;
+      // The lifetime index treats a lifetime that ends when it starts as lasting forever.
+      this.ends[this.size] = end > start ? end : Math.nextUp(start);
+      this.lefts[this.size] = left;
+      this.tops[this.size] = top;
+      this.rights[this.size] = right;
+      this.bottoms[this.size] = bottom;
+      this.size++;
+      return this;
+    }
+
+    /**
+     * Build the index over the boxes added so far.
+     *
+     * @return the index.
+     */
+    public SpatialIndex build() {
+      return new SpatialIndex(this);
+    }
+  }
+
+  private final int shapeCount;
+  private final double minX;
+  private final double minY;
+  private final double cellWidth;
+  private final double cellHeight;
+  private final int columns;
+  private final int rows;
+  private final int[] boxShape;
+  private final double[] boxLeft;
+  private final double[] boxTop;
+  private final double[] boxRight;
+  private final double[] boxBottom;
+  private final int[] cellOffset;
+  private final int[] cellBoxes;
+  private final LifetimeIndex[] cellIndexes;
+  private final int[] largeBoxes;
+  private final LifetimeIndex largeIndex;
+  private final int[] boxedShapes;
+  private final LifetimeIndex shapeIndex;
+  private final int maxIndexSize;
+
+  /**
+   * Constructor for SpatialIndex that lays out the grid over the boxes of a builder, merges the
+   * boxes that can be merged and indexes the boxes of every cell by time.
+   *
+   * @param boxes the builder holding the boxes.
+   */
+  private SpatialIndex(Builder boxes) {
+    this.shapeCount = boxes.shapeCount;
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < boxes.size; i++) {
+      minX = Math.min(minX, boxes.lefts[i]);
+      minY = Math.min(minY, boxes.tops[i]);
+      maxX = Math.max(maxX, boxes.rights[i]);
+      maxY = Math.max(maxY, boxes.bottoms[i]);
+    }
+    int side = (int) Math.ceil(Math.sqrt((double) this.shapeCount / SHAPES_PER_CELL));
+    side = Math.max(1, Math.min(MAX_CELLS_PER_SIDE, side));
+    boolean bounded = boxes.size > 0 && Double.isFinite(maxX - minX)
+            && Double.isFinite(maxY - minY);
+    this.columns = bounded ? side : 1;
+    this.rows = bounded ? side : 1;
+    this.minX = bounded ? minX : 0;
+    this.minY = bounded ? minY : 0;
+    this.cellWidth = bounded ? Math.max(1, (maxX - minX) / side) : 1;
+    this.cellHeight = bounded ? Math.max(1, (maxY - minY) / side) : 1;
+
+    // Merge consecutive boxes of a shape while the later ones stay within the cells of the first.
+    int[] shapes = new int[boxes.size];
+    double[] starts = new double[boxes.size];
+    double[] ends = new double[boxes.size];
+    double[] lefts = new double[boxes.size];
+    double[] tops = new double[boxes.size];
+    double[] rights = new double[boxes.size];
+    double[] bottoms = new double[boxes.size];
+    int count = 0;
+    for (int i = 0; i < boxes.size; i++) {
+      int last = count - 1;
+      if (last >= 0 && shapes[last] == boxes.shapes[i]
+              && this.column(boxes.lefts[i]) >= this.column(lefts[last])
+              && this.column(boxes.rights[i]) <= this.column(rights[last])
+              && this.row(boxes.tops[i]) >= this.row(tops[last])
+              && this.row(boxes.bottoms[i]) <= this.row(bottoms[last])) {
+        starts[last] = Math.min(starts[last], boxes.starts[i]);
+        ends[last] = Math.max(ends[last], boxes.ends[i]);
+        lefts[last] = Math.min(lefts[last], boxes.lefts[i]);
+        tops[last] = Math.min(tops[last], boxes.tops[i]);
+        rights[last] = Math.max(rights[last], boxes.rights[i]);
+        bottoms[last] = Math.max(bottoms[last], boxes.bottoms[i]);
+        continue;
+      }
+      shapes[count] = boxes.shapes[i];
+      starts[count] = boxes.starts[i];
+      ends[count] = boxes.ends[i];
+      lefts[count] = boxes.lefts[i];
+      tops[count] = boxes.tops[i];
+      rights[count] = boxes.rights[i];
+      bottoms[count] = boxes.bottoms[i];
+      count++;
+    }
+    this.boxShape = Arrays.copyOf(shapes, count);
+    this.boxLeft = Arrays.copyOf(lefts, count);
+    this.boxTop = Arrays.copyOf(tops, count);
+    this.boxRight = Arrays.copyOf(rights, count);
+    this.boxBottom = Arrays.copyOf(bottoms, count);
+
+    // Count the boxes of every cell, then lay them out cell by cell.
+    int cells = this.columns * this.rows;
+    this.cellOffset = new int[cells + 1];
+    int large = 0;
+    for (int b = 0; b < count; b++) {
+      if (this.isLarge(b)) {
+        large++;
+      } else {
+        this.cellOffset[this.row(tops[b]) * this.columns + this.column(lefts[b]) + 1]++;
+      }
+    }
+    for (int cell = 0; cell < cells; cell++) {
+      this.cellOffset[cell + 1] += this.cellOffset[cell];
+    }
+    this.cellBoxes = new int[this.cellOffset[cells]];
+    this.largeBoxes = new int[large];
+    int[] filled = Arrays.copyOf(this.cellOffset, cells);
+    large = 0;
+    for (int b = 0; b < count; b++) {
+      if (this.isLarge(b)) {
+        this.largeBoxes[large++] = b;
+      } else {
+        this.cellBoxes[filled[this.row(tops[b]) * this.columns + this.column(lefts[b])]++] = b;
+      }
+    }
+
+    this.cellIndexes = new LifetimeIndex[cells];
+    int maxSize = this.largeBoxes.length;
+    for (int cell = 0; cell < cells; cell++) {
+      int lo = this.cellOffset[cell];
+      int hi = this.cellOffset[cell + 1];
+      if (hi > lo) {
+        this.cellIndexes[cell] = lifetimes(this.cellBoxes, lo, hi, starts, ends);
+        maxSize = Math.max(maxSize, hi - lo);
+      }
+    }
+    this.largeIndex = large == 0 ? null
+            : lifetimes(this.largeBoxes, 0, large, starts, ends);
+    this.maxIndexSize = maxSize;
+
+    // Index the time from the first box to the last of every shape that has boxes, for queries
+    // that cover so much of the grid that every shape that exists is as good an answer.
+    double[] first = new double[this.shapeCount];
+    double[] last = new double[this.shapeCount];
+    Arrays.fill(first, Double.POSITIVE_INFINITY);
+    Arrays.fill(last, Double.NEGATIVE_INFINITY);
+    for (int b = 0; b < count; b++) {
+      first[shapes[b]] = Math.min(first[shapes[b]], starts[b]);
+      last[shapes[b]] = Math.max(last[shapes[b]], ends[b]);
+    }
+    int boxed = 0;
+    for (int s = 0; s < this.shapeCount; s++) {
+      if (first[s] <= last[s]) {
+        first[boxed] = first[s];
+        last[boxed] = last[s];
+        shapes[boxed++] = s;
+      }
+    }
+    this.boxedShapes = Arrays.copyOf(shapes, boxed);
+    this.shapeIndex = new LifetimeIndex(Arrays.copyOf(first, boxed), Arrays.copyOf(last, boxed));
+  }
+
+  /**
+   * Helper method to index the times of a run of boxes.
+   *
+   * @param boxes  the boxes, by their index in the merged boxes.
+   * @param lo     the first position of the run.
+   * @param hi     one past the last position of the run.
+   * @param starts the first time of every merged box.
+   * @param ends   the last time of every merged box.
+   * @return the index, in which box i is the box at position lo + i of the run.
+   */
+  private static LifetimeIndex lifetimes(int[] boxes, int lo, int hi, double[] starts,
+                                         double[] ends) {
+    double[] from = new double[hi - lo];
+    double[] to = new double[hi - lo];
+    for (int i = lo; i < hi; i++) {
+      from[i - lo] = starts[boxes[i]];
+      to[i - lo] = ends[boxes[i]];
+    }
+    return new LifetimeIndex(from, to);
+  }
+
+  /**
+   * Helper method to decide whether a box is too wide or too tall to be found from the cell of
+   * its top left corner.
+   *
+   * @param b the index of the box.
+   * @return true if the box goes in the index every query looks at.
+   */
+  private boolean isLarge(int b) {
+    return this.boxRight[b] - this.boxLeft[b] > MAX_CELLS_SPANNED * this.cellWidth
+            || this.boxBottom[b] - this.boxTop[b] > MAX_CELLS_SPANNED * this.cellHeight;
+  }
+
+  /**
+   * Helper method to find the column of the grid an x coordinate falls in. Coordinates outside
+   * the grid fall in the nearest column.
+   *
+   * @param x the x coordinate.
+   * @return the column.
+   */
+  private int column(double x) {
+    double c = Math.floor((x - this.minX) / this.cellWidth);
+    return c < 0 ? 0 : c >= this.columns ? this.columns - 1 : (int) c;
+  }
+
+  /**
+   * Helper method to find the row of the grid a y coordinate falls in. Coordinates outside the
+   * grid fall in the nearest row.
+   *
+   * @param y the y coordinate.
+   * @return the row.
+   */
+  private int row(double y) {
+    double r = Math.floor((y - this.minY) / this.cellHeight);
+    return r < 0 ? 0 : r >= this.rows ? this.rows - 1 : (int) r;
+  }
+
+  /**
+   * Get the number of shapes in the index.
+   *
+   * @return the number of shapes.
+   */
+  public int size() {
+    return this.shapeCount;
+  }
+
+  /**
+   * Get the number of boxes in the index once consecutive boxes of a shape have been merged.
+   *
+   * @return the number of boxes.
+   */
+  public int getBoxCount() {
+    return this.boxShape.length;
+  }
+
+  /**
+   * Find the shapes that may touch a region at a tick. The shapes are written to the result in
+   * drawing order, each once.
+   *
+   * @param time   the tick.
+   * @param x      the leftmost pixel of the region.
+   * @param y      the topmost pixel of the region.
+   * @param width  the width of the region.
+   * @param height the height of the region.
+   * @param result where the indexes of the shapes are written, with room for every shape.
+   * @return the number of shapes found.
+   * @throws IllegalArgumentException if the result has less room than the number of shapes.
+   */
+  public int shapesAt(double time, int x, int y, int width, int height, int[] result)
+          throws IllegalArgumentException {
+    return this.shapesIn(time, time, x, y, width, height, result);
+  }
+
+  /**
+   * Find the shapes that may touch a region at some point from one tick to another, inclusive.
+   * The shapes are written to the result in drawing order, each once.
+   *
+   * @param from   the first tick.
+   * @param to     the last tick.
+   * @param x      the leftmost pixel of the region.
+   * @param y      the topmost pixel of the region.
+   * @param width  the width of the region.
+   * @param height the height of the region.
+   * @param result where the indexes of the shapes are written, with room for every shape.
+   * @return the number of shapes found.
+   * @throws IllegalArgumentException if the range of ticks is empty or the result has less room
+   *                                  than the number of shapes.
+   */
+  public int shapesIn(double from, double to, int x, int y, int width, int height, int[] result)
+          throws IllegalArgumentException {
+    if (!(from <= to)) {
+      throw new IllegalArgumentException("Range cannot be empty.");
+    }
+    if (result == null || result.length < this.shapeCount) {
+      throw new IllegalArgumentException("Result must have room for every shape.");
+    }
+    if (width <= 0 || height <= 0) {
+      return 0;
+    }
+    Scratch scratch = SCRATCH.get();
+    if (scratch.local.length < this.maxIndexSize) {
+      scratch.local = new int[this.maxIndexSize];
+    }
+    if (scratch.found.length < (this.shapeCount + 63) >> 6) {
+      scratch.found = new long[(this.shapeCount + 63) >> 6];
+    }
+    double right = (double) x + width;
+    double bottom = (double) y + height;
+    // A box that reaches into the region starts at most as many cells before it as a box spans.
+    int firstRow = this.row(y - MAX_CELLS_SPANNED * this.cellHeight);
+    int firstColumn = this.column(x - MAX_CELLS_SPANNED * this.cellWidth);
+    int lastRow = this.row(bottom);
+    int lastColumn = this.column(right);
+    if (2L * (lastRow - firstRow + 1) * (lastColumn - firstColumn + 1) > this.columns * this.rows) {
+      // Most of the grid would be looked at, and most shapes that exist are in the region.
+      int count = this.shapeIndex.aliveIn(from, to, result);
+      for (int i = 0; i < count; i++) {
+        result[i] = this.boxedShapes[result[i]];
+      }
+      return count;
+    }
+    for (int r = firstRow; r <= lastRow; r++) {
+      for (int c = firstColumn; c <= lastColumn; c++) {
+        int cell = r * this.columns + c;
+        if (this.cellIndexes[cell] != null) {
+          this.collect(this.cellIndexes[cell], this.cellBoxes, this.cellOffset[cell], from, to,
+                  x, y, right, bottom, scratch);
+        }
+      }
+    }
+    if (this.largeIndex != null) {
+      this.collect(this.largeIndex, this.largeBoxes, 0, from, to, x, y, right, bottom, scratch);
+    }
+
+    // A shape with several boxes, or a box in several cells, is marked more than once, and
+    // reading the marks in order gives each shape once in drawing order.
+    long[] found = scratch.found;
+    int count = 0;
+    for (int word = 0; word < (this.shapeCount + 63) >> 6; word++) {
+      for (long bits = found[word]; bits != 0; bits &= bits - 1) {
+        result[count++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+      }
+      found[word] = 0;
+    }
+    return count;
+  }
+
+  /**
+   * Helper method to add the shapes of the boxes of one lifetime index that exist during a range
+   * of ticks and touch a region.
+   *
+   * @param index   the lifetime index of the boxes.
+   * @param boxes   the boxes of the index, by their index in the merged boxes.
+   * @param offset  the position of the first box of the index in the boxes.
+   * @param from    the first tick.
+   * @param to      the last tick.
+   * @param x       the leftmost pixel of the region.
+   * @param y       the topmost pixel of the region.
+   * @param right   one past the rightmost pixel of the region.
+   * @param bottom  one past the bottommost pixel of the region.
+   * @param scratch the space for the results of the query, in which the shapes are marked.
+   */
+  private void collect(LifetimeIndex index, int[] boxes, int offset, double from, double to,
+                       double x, double y, double right, double bottom, Scratch scratch) {
+    int alive = index.aliveInAnyOrder(from, to, scratch.local);
+    for (int i = 0; i < alive; i++) {
+      int b = boxes[offset + scratch.local[i]];
+      if (this.boxLeft[b] < right && x < this.boxRight[b]
+              && this.boxTop[b] < bottom && y < this.boxBottom[b]) {
+        int shape = this.boxShape[b];
+        scratch.found[shape >> 6] |= 1L << shape;
+      }
+    }
+  }
+}
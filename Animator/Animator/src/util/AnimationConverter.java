@@ -0,0 +1,55 @@
+package util;
+
+import java.io.File;
+import java.io.IOException;
+
+import model.BinaryAnimationFile;
+import model.EasyAnimatorModelImpl;
+
+/**
+ * Command line tool that converts a text animation into the binary {@code .eanim} format, which
+ * loads without parsing. Keyframes that do not change how the animation looks are removed first,
+ * so the binary file is smaller as well.
+ *
+ * <p>Usage: {@code java util.AnimationConverter input.txt [output.eanim]}. Without an output
+ * file, the output is written next to the input with its extension replaced.</p>
+ */
+public final class AnimationConverter {
+
+  private AnimationConverter() {
+  }
+
+  /**
+   * Main method to convert one animation.
+   *
+   * @param args the input file and, optionally, the output file.
+   * @throws IOException if the input cannot be read or the output cannot be written.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1 || args.length > 2) {
+      System.out.println("Usage: java util.AnimationConverter input.txt [output"
+              + BinaryAnimationFile.EXTENSION + "]");
+      System.exit(1);
+    }
+    String output = args.length == 2 ? args[1] : binaryName(args[0]);
+    long start = System.nanoTime();
+    EasyAnimatorModelImpl model = new EasyAnimatorModelImpl(args[0]);
+    int removed = model.compactKeyframes();
+    BinaryAnimationFile.write(model, new File(output));
+    System.out.printf("Wrote %s (%d shapes, %d redundant keyframes removed) in %.1f ms%n", output,
+            model.getExactShapes().size(), removed, (System.nanoTime() - start) / 1e6);
+  }
+
+  /**
+   * Helper method to derive the name of the binary file from the name of the text file.
+   *
+   * @param input the name of the text file.
+   * @return the name with its extension replaced by the binary extension.
+   */
+  private static String binaryName(String input) {
+    int dot = input.lastIndexOf('.');
+    int slash = input.lastIndexOf(File.separatorChar);
+    String base = dot > slash ? input.substring(0, dot) : input;
+    return base + BinaryAnimationFile.EXTENSION;
+  }
+}
@@ -0,0 +1,286 @@
+package util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Generator of large synthetic animations in the text format read by {@link AnimationReader}, for
+ * reproducing production-scale loads. Every shape is declared up front and then given a number of
+ * consecutive motions, each a short step to a new position with a new size and color. Where the
+ * shapes start is chosen by an overlap pattern, and the output depends only on the settings and
+ * the seed, so the same file can be generated again anywhere.
+ *
+ * <p>Usage: {@code java util.AnimationGenerator [-shapes 1000] [-motions 100] [-canvas 800x600]
+ * [-overlap spread|clustered|stacked] [-seed 1] output.txt}.</p>
+ */
+public final class AnimationGenerator {
+
+  /**
+   * How the shapes of a generated animation are placed relative to each other.
+   */
+  public enum Overlap {
+    /**
+     * Shapes are scattered over the whole canvas and rarely overlap.
+     */
+    SPREAD,
+    /**
+     * Shapes are packed into a small region in the middle of the canvas and overlap heavily.
+     */
+    CLUSTERED,
+    /**
+     * Shapes are piled on the same spot and move in lockstep, like identical tokens.
+     */
+    STACKED
+  }
+
+  private static final int TICKS_PER_MOTION = 5;
+  private static final int MAX_STEP = 20;
+  private static final int MIN_SIZE = 5;
+  private static final int MAX_SIZE = 60;
+
+  private final int shapes;
+  private final int motionsPerShape;
+  private final int canvasWidth;
+  private final int canvasHeight;
+  private final Overlap overlap;
+  private final long seed;
+
+  /**
+   * Constructor for AnimationGenerator that takes the settings of the animations it writes.
+   *
+   * @param shapes          the number of shapes.
+   * @param motionsPerShape the number of motion lines for each shape.
+   * @param canvasWidth     the width of the canvas.
+   * @param canvasHeight    the height of the canvas.
+   * @param overlap         how the shapes are placed relative to each other.
+   * @param seed            the seed of the random choices.
+   * @throws IllegalArgumentException if a count or size is not positive, or the pattern is null.
+   */
+  public AnimationGenerator(int shapes, int motionsPerShape, int canvasWidth, int canvasHeight,
+                            Overlap overlap, long seed) throws IllegalArgumentException {
+    if (shapes < 1 || motionsPerShape < 1 || canvasWidth < 1 || canvasHeight < 1) {
+      throw new IllegalArgumentException("Counts and canvas size must be positive.");
+    }
+    if (overlap == null) {
+      throw new IllegalArgumentException("Overlap pattern cannot be null.");
+    }
+    this.shapes = shapes;
+    this.motionsPerShape = motionsPerShape;
+    this.canvasWidth = canvasWidth;
+    this.canvasHeight = canvasHeight;
+    this.overlap = overlap;
+    this.seed = seed;
+  }
+
+  /**
+   * Write the animation to a file.
+   *
+   * @param file the file to write.
+   * @return the number of lines written.
+   * @throws IOException if the file cannot be written.
+   */
+  public long write(File file) throws IOException {
+    try (Writer out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+      return this.write(out);
+    }
+  }
+
+  /**
+   * Write the animation. Motions are written tick by tick, interleaving the shapes, the way a
+   * recorder of a running simulation would write them.
+   *
+   * @param out where to write the animation.
+   * @return the number of lines written.
+   * @throws IOException if the animation cannot be written.
+   */
+  public long write(Writer out) throws IOException {
+    Random random = new Random(this.seed);
+    int[] x = new int[this.shapes];
+    int[] y = new int[this.shapes];
+    int[] w = new int[this.shapes];
+    int[] h = new int[this.shapes];
+    int[] rgb = new int[this.shapes];
+    StringBuilder line = new StringBuilder(128);
+
+    line.append("canvas 0 0 ").append(this.canvasWidth).append(' ').append(this.canvasHeight);
+    writeLine(out, line);
+    for (int s = 0; s < this.shapes; s++) {
+      line.append("shape S").append(s).append(s % 2 == 0 ? " rectangle" : " ellipse");
+      writeLine(out, line);
+      this.place(s, random, x, y);
+      w[s] = this.overlap == Overlap.STACKED ? MAX_SIZE / 2 : size(random);
+      h[s] = this.overlap == Overlap.STACKED ? MAX_SIZE / 2 : size(random);
+      rgb[s] = this.overlap == Overlap.STACKED ? 0x3366CC : random.nextInt(0x1000000);
+    }
+
+    int dx = 0;
+    int dy = 0;
+    for (int m = 0; m < this.motionsPerShape; m++) {
+      int t1 = m * TICKS_PER_MOTION;
+      int t2 = t1 + TICKS_PER_MOTION;
+      if (this.overlap == Overlap.STACKED) {
+        dx = random.nextInt(2 * MAX_STEP + 1) - MAX_STEP;
+        dy = random.nextInt(2 * MAX_STEP + 1) - MAX_STEP;
+      }
+      for (int s = 0; s < this.shapes; s++) {
+        if (this.overlap != Overlap.STACKED) {
+          dx = random.nextInt(2 * MAX_STEP + 1) - MAX_STEP;
+          dy = random.nextInt(2 * MAX_STEP + 1) - MAX_STEP;
+        }
+        int x2 = clamp(x[s] + dx, this.canvasWidth);
+        int y2 = clamp(y[s] + dy, this.canvasHeight);
+        int w2 = this.overlap == Overlap.STACKED ? w[s] : size(random);
+        int h2 = this.overlap == Overlap.STACKED ? h[s] : size(random);
+        int rgb2 = this.overlap == Overlap.STACKED || random.nextInt(4) != 0 ? rgb[s]
+                : random.nextInt(0x1000000);
+        line.append("motion S").append(s);
+        appendState(line, t1, x[s], y[s], w[s], h[s], rgb[s]);
+        line.append(' ');
+        appendState(line, t2, x2, y2, w2, h2, rgb2);
+        writeLine(out, line);
+        x[s] = x2;
+        y[s] = y2;
+        w[s] = w2;
+        h[s] = h2;
+        rgb[s] = rgb2;
+      }
+    }
+    return 1 + this.shapes + (long) this.shapes * this.motionsPerShape;
+  }
+
+  /**
+   * Helper method to choose where a shape starts, following the overlap pattern.
+   *
+   * @param s      the index of the shape.
+   * @param random the source of random choices.
+   * @param x      the x coordinates of the shapes.
+   * @param y      the y coordinates of the shapes.
+   */
+  private void place(int s, Random random, int[] x, int[] y) {
+    switch (this.overlap) {
+      case CLUSTERED:
+        x[s] = this.canvasWidth / 2 + random.nextInt(this.canvasWidth / 10 + 1)
+                - this.canvasWidth / 20;
+        y[s] = this.canvasHeight / 2 + random.nextInt(this.canvasHeight / 10 + 1)
+                - this.canvasHeight / 20;
+        break;
+      case STACKED:
+        x[s] = this.canvasWidth / 2;
+        y[s] = this.canvasHeight / 2;
+        break;
+      default:
+        x[s] = random.nextInt(this.canvasWidth);
+        y[s] = random.nextInt(this.canvasHeight);
+    }
+  }
+
+  /**
+   * Helper method to append the time, position, size and color of one end of a motion.
+   *
+   * @param line the line being built.
+   * @param t    the time.
+   * @param x    the x coordinate.
+   * @param y    the y coordinate.
+   * @param w    the width.
+   * @param h    the height.
+   * @param rgb  the color as 0xRRGGBB.
+   */
+  private static void appendState(StringBuilder line, int t, int x, int y, int w, int h,
+                                  int rgb) {
+    line.append(' ').append(t).append(' ').append(x).append(' ').append(y)
+            .append(' ').append(w).append(' ').append(h)
+            .append(' ').append((rgb >> 16) & 0xFF).append(' ').append((rgb >> 8) & 0xFF)
+            .append(' ').append(rgb & 0xFF);
+  }
+
+  /**
+   * Helper method to write a line and clear the builder for the next one.
+   *
+   * @param out  where to write the line.
+   * @param line the line.
+   * @throws IOException if the line cannot be written.
+   */
+  private static void writeLine(Writer out, StringBuilder line) throws IOException {
+    line.append('\n');
+    out.append(line);
+    line.setLength(0);
+  }
+
+  /**
+   * Helper method to choose a random width or height.
+   *
+   * @param random the source of random choices.
+   * @return the size.
+   */
+  private static int size(Random random) {
+    return MIN_SIZE + random.nextInt(MAX_SIZE - MIN_SIZE + 1);
+  }
+
+  /**
+   * Helper method to keep a coordinate on the canvas.
+   *
+   * @param value the coordinate.
+   * @param limit the size of the canvas along the coordinate's axis.
+   * @return the coordinate, moved onto the canvas if it was off it.
+   */
+  private static int clamp(int value, int limit) {
+    return Math.max(0, Math.min(limit - 1, value));
+  }
+
+  /**
+   * Main method to generate one animation.
+   *
+   * @param args the settings, as described in the class comment, and the output file.
+   * @throws IOException if the file cannot be written.
+   */
+  public static void main(String[] args) throws IOException {
+    int shapes = 1000;
+    int motions = 100;
+    int width = 800;
+    int height = 600;
+    Overlap overlap = Overlap.SPREAD;
+    long seed = 1;
+    String output = null;
+    try {
+      for (int i = 0; i < args.length; i++) {
+        switch (args[i]) {
+          case "-shapes":
+            shapes = Integer.parseInt(args[++i]);
+            break;
+          case "-motions":
+            motions = Integer.parseInt(args[++i]);
+            break;
+          case "-canvas":
+            String[] size = args[++i].split("x");
+            width = Integer.parseInt(size[0]);
+            height = Integer.parseInt(size[1]);
+            break;
+          case "-overlap":
+            overlap = Overlap.valueOf(args[++i].toUpperCase());
+            break;
+          case "-seed":
+            seed = Long.parseLong(args[++i]);
+            break;
+          default:
+            output = args[i];
+        }
+      }
+    } catch (RuntimeException e) {
+      output = null;
+    }
+    if (output == null) {
+      System.out.println("Usage: java util.AnimationGenerator [-shapes 1000] [-motions 100]"
+              + " [-canvas 800x600] [-overlap spread|clustered|stacked] [-seed 1] output.txt");
+      System.exit(1);
+    }
+    long start = System.nanoTime();
+    long lines = new AnimationGenerator(shapes, motions, width, height, overlap, seed)
+            .write(new File(output));
+    System.out.printf("Wrote %,d lines to %s in %.1f ms%n", lines, output,
+            (System.nanoTime() - start) / 1e6);
+  }
+}
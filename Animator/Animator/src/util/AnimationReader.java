@@ -1,5 +1,6 @@
 package util;
 
+import java.io.InputStream;
 import java.util.Objects;
 import java.util.Scanner;
 import java.util.regex.Pattern;
@@ -8,6 +9,20 @@ import java.util.regex.Pattern;
  * A helper to read animation data and construct an animation from it.
  */
 public class AnimationReader {
+
+  private static final String[] CANVAS_FIELDS = {"left", "top", "width", "height"};
+
+  private static final String[] MOTION_FIELDS = new String[]{
+    "initial time",
+    "initial x-coordinate", "initial y-coordinate",
+    "initial width", "initial height",
+    "initial red value", "initial green value", "initial blue value",
+    "final time",
+    "final x-coordinate", "final y-coordinate",
+    "final width", "final height",
+    "final red value", "final green value", "final blue value",
+  };
+
   /**
    * A factory for producing new animations, given a source of shapes and a
    * builder for constructing animations.
@@ -34,6 +49,7 @@ public class AnimationReader {
   public static <Doc> Doc parseFile(Readable readable, AnimationBuilder<Doc> builder) {
     Objects.requireNonNull(readable, "Must have non-null readable source");
     Objects.requireNonNull(builder, "Must provide a non-null AnimationBuilder");
+    long start = AnimatorMetrics.start();
     Scanner s = new Scanner(readable);
     // Split at whitespace, and ignore # comment lines
     s.useDelimiter(Pattern.compile("(\\p{Space}+|#.*)+")); 
@@ -53,14 +69,64 @@ public class AnimationReader {
           throw new IllegalStateException("Unexpected keyword: " + word + s.nextLine());
       }
     }
+    // The builder populates the model as records arrive, so this covers building it too.
+    AnimatorMetrics.record(AnimatorMetrics.Latency.PARSE, start);
+    return builder.build();
+  }
+
+  /**
+   * A faster factory for producing new animations from the same input format as
+   * {@link #parseFile(Readable, AnimationBuilder)}. The input is tokenized directly from bytes and
+   * integers are parsed without creating Strings, which makes this the preferred way to read large
+   * animation files. The builder receives exactly the same callbacks.
+   *
+   * @param input   The source of data for the animation
+   * @param builder A builder for helping to construct a new animation
+   * @param <Doc>   The main model interface type describing animations
+   * @return the document built by the builder
+   */
+  public static <Doc> Doc parseFile(InputStream input, AnimationBuilder<Doc> builder) {
+    Objects.requireNonNull(input, "Must have non-null input source");
+    Objects.requireNonNull(builder, "Must provide a non-null AnimationBuilder");
+    long start = AnimatorMetrics.start();
+    AnimationTokenizer tokens = new AnimationTokenizer(input);
+    int[] vals = new int[16];
+    while (tokens.next()) {
+      if (tokens.tokenIs("canvas")) {
+        for (int i = 0; i < 4; i++) {
+          vals[i] = getInt(tokens, "Canvas", CANVAS_FIELDS[i]);
+        }
+        builder.setBounds(vals[0], vals[1], vals[2], vals[3]);
+      } else if (tokens.tokenIs("shape")) {
+        String name = getWord(tokens, "Shape: Expected a name, but no more input available");
+        String type = getWord(tokens, "Shape: Expected a type, but no more input available");
+        builder.declareShape(name, type);
+      } else if (tokens.tokenIs("motion")) {
+        if (!tokens.next()) {
+          throw new IllegalStateException(
+                  "Motion: Expected a shape name, but no more input available");
+        }
+        String name = tokens.tokenName();
+        for (int i = 0; i < 16; i++) {
+          vals[i] = getInt(tokens, "Motion", MOTION_FIELDS[i]);
+        }
+        builder.addMotion(name,
+                vals[0], vals[1], vals[2 ], vals[3 ], vals[4 ], vals[5 ], vals[6 ], vals[7 ],
+                vals[8], vals[9], vals[10], vals[11], vals[12], vals[13], vals[14], vals[15]);
+      } else {
+        throw new IllegalStateException("Unexpected keyword: " + tokens.tokenString()
+                + tokens.restOfLine());
+      }
+    }
+    // The builder populates the model as records arrive, so this covers building it too.
+    AnimatorMetrics.record(AnimatorMetrics.Latency.PARSE, start);
     return builder.build();
   }
 
   private static <Doc> void readCanvas(Scanner s, AnimationBuilder<Doc> builder) {
     int[] vals = new int[4];
-    String[] fieldNames = {"left", "top", "width", "height"};
     for (int i = 0; i < 4; i++) {
-      vals[i] = getInt(s, "Canvas", fieldNames[i]);
+      vals[i] = getInt(s, "Canvas", CANVAS_FIELDS[i]);
     }
     builder.setBounds(vals[0], vals[1], vals[2], vals[3]);
   }
@@ -82,16 +148,6 @@ public class AnimationReader {
   }
 
   private static <Doc> void readMotion(Scanner s, AnimationBuilder<Doc> builder) {
-    String[] fieldNames = new String[]{
-      "initial time",
-      "initial x-coordinate", "initial y-coordinate",
-      "initial width", "initial height",
-      "initial red value", "initial green value", "initial blue value",
-      "final time",
-      "final x-coordinate", "final y-coordinate",
-      "final width", "final height",
-      "final red value", "final green value", "final blue value",
-    };
     int[] vals = new int[16];
     String name;
     if (s.hasNext()) {
@@ -100,7 +156,7 @@ public class AnimationReader {
       throw new IllegalStateException("Motion: Expected a shape name, but no more input available");
     }
     for (int i = 0; i < 16; i++) {
-      vals[i] = getInt(s, "Motion", fieldNames[i]);
+      vals[i] = getInt(s, "Motion", MOTION_FIELDS[i]);
     }
     builder.addMotion(name,
             vals[0], vals[1], vals[2 ], vals[3 ], vals[4 ], vals[5 ], vals[6 ], vals[7 ],
@@ -120,4 +176,25 @@ public class AnimationReader {
     }
   }
 
+  private static String getWord(AnimationTokenizer tokens, String missing) {
+    if (!tokens.next()) {
+      throw new IllegalStateException(missing);
+    }
+    return tokens.tokenString();
+  }
+
+  private static int getInt(AnimationTokenizer tokens, String label, String fieldName) {
+    if (!tokens.next()) {
+      throw new IllegalStateException(
+              String.format("%s: expected integer for %s, but no more input available",
+                            label, fieldName));
+    } else if (tokens.tokenIsInt()) {
+      return tokens.tokenInt();
+    } else {
+      throw new IllegalStateException(
+              String.format("%s: expected integer for %s, got: %s", label, fieldName,
+                            tokens.tokenString()));
+    }
+  }
+
 }
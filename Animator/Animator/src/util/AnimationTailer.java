@@ -0,0 +1,310 @@
+package util;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A helper to follow an animation file that is still being written, in the manner of
+ * {@code tail -f}. Each poll reads only the bytes appended since the previous one and hands the
+ * complete records among them to the same builder, so shapes declared in earlier polls can be
+ * given motions in later ones. A record that has not been finished yet, because its line has not
+ * ended or because it continues on a line that has not been written, is kept until it is
+ * complete.
+ *
+ * <p>The file is read a bounded chunk at a time, and the complete records of each chunk are
+ * parsed before the next one is read, so following a file of any size takes memory for one chunk
+ * and the record it ends in. Each chunk is parsed while holding a lock supplied by the caller, so
+ * a document that is read by another thread, such as a model being played, can be updated in
+ * place: the reader takes the same lock and never sees a half-applied line. The lock is released
+ * between chunks, so readers wait for one chunk at most, even while a large backlog is ingested.
+ * After each poll that ingested anything the document is passed to an optional listener, under
+ * the lock, which may prepare it for the readers.</p>
+ *
+ * @param <Doc> The main model interface type describing animations
+ */
+public final class AnimationTailer<Doc> implements Closeable {
+
+  private static final int CHUNK_BYTES = 1 << 20;
+  private static final String[] KEYWORDS = {"canvas", "shape", "motion"};
+  private static final int[] RECORD_TOKENS = {5, 3, 18};
+
+  private final File file;
+  private final AnimationBuilder<Doc> builder;
+  private final Object lock;
+  private final Consumer<Doc> onIngest;
+  private final FileChannel channel;
+  private final ByteBuffer chunk;
+  private byte[] pending;
+  private int pendingLength;
+  private long position;
+  private ScheduledExecutorService executor;
+  private volatile Exception failure;
+
+  /**
+   * Constructor for AnimationTailer that opens the file to follow. Nothing is read until the
+   * first poll.
+   *
+   * @param file     the animation file to follow.
+   * @param builder  the builder that receives the lines of the file.
+   * @param lock     the object to lock while lines are parsed.
+   * @param onIngest called with the document after each poll that ingested lines, or null.
+   * @throws IOException if the file cannot be opened.
+   */
+  public AnimationTailer(File file, AnimationBuilder<Doc> builder, Object lock,
+                         Consumer<Doc> onIngest) throws IOException {
+    this.file = Objects.requireNonNull(file, "Must provide a non-null file");
+    this.builder = Objects.requireNonNull(builder, "Must provide a non-null AnimationBuilder");
+    this.lock = Objects.requireNonNull(lock, "Must provide a non-null lock");
+    this.onIngest = onIngest;
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    this.chunk = ByteBuffer.allocate(CHUNK_BYTES);
+    this.pending = new byte[CHUNK_BYTES];
+  }
+
+  /**
+   * Read the bytes appended to the file since the last poll and ingest the complete records among
+   * them, one chunk at a time.
+   *
+   * @return the number of bytes ingested, which is 0 if no complete record has been appended.
+   * @throws IOException           if the file cannot be read.
+   * @throws IllegalStateException if the file has shrunk, or a line is not valid.
+   */
+  public synchronized long poll() throws IOException {
+    long size = this.channel.size();
+    if (size < this.position) {
+      throw new IllegalStateException(this.file + " was truncated while being followed.");
+    }
+    long ingested = 0;
+    while (this.position < size) {
+      this.chunk.clear();
+      int read = this.channel.read(this.chunk, this.position);
+      if (read <= 0) {
+        break;
+      }
+      this.append(this.chunk.array(), read);
+      this.position += read;
+      ingested += this.ingest();
+    }
+
+    if (ingested > 0 && this.onIngest != null) {
+      synchronized (this.lock) {
+        this.onIngest.accept(this.builder.build());
+      }
+    }
+    return ingested;
+  }
+
+  /**
+   * Helper method to parse the complete records among the bytes not yet ingested, holding the
+   * lock, and keep only the unfinished record that may follow them.
+   *
+   * @return the number of bytes ingested.
+   * @throws IllegalStateException if a line is not valid.
+   */
+  private int ingest() throws IllegalStateException {
+    int end = this.completeLength();
+    if (end == 0) {
+      return 0;
+    }
+    synchronized (this.lock) {
+      AnimationReader.parseFile(new ByteArrayInputStream(this.pending, 0, end), this.builder);
+    }
+    System.arraycopy(this.pending, end, this.pending, 0, this.pendingLength - end);
+    this.pendingLength -= end;
+    return end;
+  }
+
+  /**
+   * Poll the file in the background every given number of milliseconds until the tailer is
+   * closed. If a poll fails, following stops and the failure is kept.
+   *
+   * @param periodMillis the time between the end of one poll and the start of the next.
+   * @throws IllegalArgumentException if the period is not positive.
+   * @throws IllegalStateException    if the tailer is already polling in the background.
+   */
+  public synchronized void start(long periodMillis) throws IllegalArgumentException {
+    if (periodMillis <= 0) {
+      throw new IllegalArgumentException("Period must be positive.");
+    }
+    if (this.executor != null) {
+      throw new IllegalStateException("Already following " + this.file);
+    }
+    this.executor = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "AnimationTailer " + this.file.getName());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executor.scheduleWithFixedDelay(this::pollInBackground, periodMillis, periodMillis,
+            TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Helper method to poll from the background thread, stopping on the first failure.
+   */
+  private void pollInBackground() {
+    try {
+      this.poll();
+    } catch (IOException | RuntimeException e) {
+      this.failure = e;
+      this.executor.shutdown();
+    }
+  }
+
+  /**
+   * Get the failure that stopped background polling.
+   *
+   * @return the exception thrown by the failed poll, or null if polling has not failed.
+   */
+  public Exception getFailure() {
+    return this.failure;
+  }
+
+  /**
+   * Get the document the lines of the file are ingested into.
+   *
+   * @return the document built by the builder.
+   */
+  public Doc getDocument() {
+    synchronized (this.lock) {
+      return this.builder.build();
+    }
+  }
+
+  /**
+   * Stop polling and close the file.
+   *
+   * @throws IOException if the file cannot be closed.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (this.executor != null) {
+      this.executor.shutdownNow();
+    }
+    this.channel.close();
+  }
+
+  /**
+   * Helper method to find how many of the bytes not yet ingested hold complete records. Records
+   * are separated by whitespace rather than lines, so the bytes up to the last finished line are
+   * complete except for the record starting on the last line that begins with a keyword, which
+   * is complete only once all of its tokens have arrived.
+   *
+   * @return the length of the complete records at the start of the bytes not yet ingested.
+   */
+  private int completeLength() {
+    int end = this.pendingLength;
+    while (end > 0 && this.pending[end - 1] != '\n') {
+      end--;
+    }
+    int line = end;
+    while (line > 0) {
+      int start = line - 1;
+      while (start > 0 && this.pending[start - 1] != '\n') {
+        start--;
+      }
+      int keyword = this.keywordAt(start, line);
+      if (keyword >= 0) {
+        return this.countTokens(start, end) >= RECORD_TOKENS[keyword] ? end : start;
+      }
+      line = start;
+    }
+    return end;
+  }
+
+  /**
+   * Helper method to find which keyword, if any, is the first token of a line.
+   *
+   * @param start the index of the first byte of the line.
+   * @param end   the index one past the last byte of the line.
+   * @return the index of the keyword in {@link #KEYWORDS}, or -1 if the line does not start with
+   *         one.
+   */
+  private int keywordAt(int start, int end) {
+    int from = start;
+    while (from < end && Character.isWhitespace(this.pending[from])) {
+      from++;
+    }
+    int to = from;
+    while (to < end && !Character.isWhitespace(this.pending[to]) && this.pending[to] != '#') {
+      to++;
+    }
+    for (int k = 0; k < KEYWORDS.length; k++) {
+      String word = KEYWORDS[k];
+      if (to - from == word.length() && this.startsWith(from, word)) {
+        return k;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Helper method to check whether the bytes not yet ingested contain a word at an index.
+   *
+   * @param from the index to check at.
+   * @param word the word to look for, in ASCII.
+   * @return true if the bytes at the index are the word.
+   */
+  private boolean startsWith(int from, String word) {
+    for (int i = 0; i < word.length(); i++) {
+      if (this.pending[from + i] != word.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Helper method to count the tokens in a range of the bytes not yet ingested, skipping
+   * comments the way the reader does.
+   *
+   * @param start the index of the first byte.
+   * @param end   the index one past the last byte.
+   * @return the number of tokens in the range.
+   */
+  private int countTokens(int start, int end) {
+    int count = 0;
+    int i = start;
+    while (i < end) {
+      byte b = this.pending[i];
+      if (b == '#') {
+        while (i < end && this.pending[i] != '\n') {
+          i++;
+        }
+      } else if (Character.isWhitespace(b)) {
+        i++;
+      } else {
+        count++;
+        while (i < end && !Character.isWhitespace(this.pending[i]) && this.pending[i] != '#') {
+          i++;
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Helper method to add bytes read from the file to the bytes not yet ingested.
+   *
+   * @param bytes  the bytes read.
+   * @param length the number of bytes read.
+   */
+  private void append(byte[] bytes, int length) {
+    if (this.pendingLength + length > this.pending.length) {
+      this.pending = Arrays.copyOf(this.pending,
+              Math.max(this.pendingLength + length, this.pending.length * 2));
+    }
+    System.arraycopy(bytes, 0, this.pending, this.pendingLength, length);
+    this.pendingLength += length;
+  }
+}
@@ -0,0 +1,200 @@
+package util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A tokenizer for the animation text format that works directly on bytes. Tokens are separated by
+ * whitespace, and a # starts a comment that runs to the end of the line. Integers are parsed from
+ * the token bytes without creating Strings, and shape names that repeat from one line to the next
+ * share a single String.
+ */
+final class AnimationTokenizer {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final InputStream input;
+  private final byte[] buffer;
+  private int position;
+  private int limit;
+
+  private byte[] token;
+  private int tokenLength;
+
+  private byte[] nameBytes;
+  private String name;
+
+  /**
+   * Constructor for AnimationTokenizer that reads from the given stream. The stream is read in
+   * large blocks, so it does not need to be buffered.
+   *
+   * @param input the stream to read.
+   */
+  AnimationTokenizer(InputStream input) {
+    this.input = input;
+    this.buffer = new byte[BUFFER_SIZE];
+    this.token = new byte[64];
+    this.nameBytes = new byte[0];
+  }
+
+  /**
+   * Advance to the next token.
+   *
+   * @return true if a token was read, false at the end of the input.
+   */
+  boolean next() {
+    int b = this.read();
+    while (b != -1 && (isSpace(b) || b == '#')) {
+      if (b == '#') {
+        b = this.skipLine();
+      } else {
+        b = this.read();
+      }
+    }
+    this.tokenLength = 0;
+    while (b != -1 && !isSpace(b) && b != '#') {
+      if (this.tokenLength == this.token.length) {
+        byte[] larger = new byte[this.token.length * 2];
+        System.arraycopy(this.token, 0, larger, 0, this.tokenLength);
+        this.token = larger;
+      }
+      this.token[this.tokenLength++] = (byte) b;
+      b = this.read();
+    }
+    if (b != -1) {
+      // Leave the delimiter unread so restOfLine sees the line exactly as written.
+      this.position--;
+    }
+    return this.tokenLength > 0;
+  }
+
+  /**
+   * Whether the current token is the given keyword.
+   *
+   * @param keyword an ASCII keyword.
+   * @return true if the token matches the keyword.
+   */
+  boolean tokenIs(String keyword) {
+    if (keyword.length() != this.tokenLength) {
+      return false;
+    }
+    for (int i = 0; i < this.tokenLength; i++) {
+      if (this.token[i] != keyword.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the current token as a String.
+   *
+   * @return the current token.
+   */
+  String tokenString() {
+    return new String(this.token, 0, this.tokenLength, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Get the current token as a shape name. If it is the same as the previous name the previous
+   * String is returned instead of a new one.
+   *
+   * @return the current token.
+   */
+  String tokenName() {
+    boolean same = this.nameBytes.length == this.tokenLength;
+    for (int i = 0; same && i < this.tokenLength; i++) {
+      same = this.nameBytes[i] == this.token[i];
+    }
+    if (!same) {
+      this.nameBytes = new byte[this.tokenLength];
+      System.arraycopy(this.token, 0, this.nameBytes, 0, this.tokenLength);
+      this.name = this.tokenString();
+    }
+    return this.name;
+  }
+
+  /**
+   * Whether the current token is an optionally signed decimal integer that fits in an int.
+   *
+   * @return true if the token can be read with {@link #tokenInt}.
+   */
+  boolean tokenIsInt() {
+    int i = 0;
+    if (this.tokenLength > 1 && (this.token[0] == '-' || this.token[0] == '+')) {
+      i = 1;
+    }
+    if (this.tokenLength - i > 10) {
+      return false;
+    }
+    long value = 0;
+    for (; i < this.tokenLength; i++) {
+      int digit = this.token[i] - '0';
+      if (digit < 0 || digit > 9) {
+        return false;
+      }
+      value = value * 10 + digit;
+    }
+    long limit = this.token[0] == '-' ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+    return value <= limit;
+  }
+
+  /**
+   * Get the current token as an int. Only valid after {@link #tokenIsInt} returned true.
+   *
+   * @return the value of the token.
+   */
+  int tokenInt() {
+    boolean negative = this.token[0] == '-';
+    int i = negative || this.token[0] == '+' ? 1 : 0;
+    int value = 0;
+    for (; i < this.tokenLength; i++) {
+      value = value * 10 - (this.token[i] - '0');
+    }
+    return negative ? value : -value;
+  }
+
+  /**
+   * Read the rest of the current line, for use in error messages.
+   *
+   * @return the rest of the line without its line terminator.
+   */
+  String restOfLine() {
+    StringBuilder line = new StringBuilder();
+    int b = this.read();
+    while (b != -1 && b != '\n' && b != '\r') {
+      line.append((char) b);
+      b = this.read();
+    }
+    return line.toString();
+  }
+
+  private int skipLine() {
+    int b = this.read();
+    while (b != -1 && b != '\n') {
+      b = this.read();
+    }
+    return b;
+  }
+
+  private int read() {
+    if (this.position == this.limit) {
+      try {
+        this.limit = this.input.read(this.buffer, 0, this.buffer.length);
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to read animation input.", e);
+      }
+      this.position = 0;
+      if (this.limit <= 0) {
+        this.limit = 0;
+        return -1;
+      }
+    }
+    return this.buffer[this.position++] & 0xff;
+  }
+
+  private static boolean isSpace(int b) {
+    return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f' || b == 0x0b;
+  }
+}
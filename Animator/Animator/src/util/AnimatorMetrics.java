@@ -0,0 +1,455 @@
+package util;
+
+import java.beans.ConstructorProperties;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Instrumentation of where time goes while animations are loaded and played: latency histograms
+ * for parsing, building the model, computing frames and painting them, and counters for frames
+ * shown, ticks skipped, frames dropped and cache lookups. The metrics are exposed as the JMX bean
+ * {@value #OBJECT_NAME} and, if asked for, written to standard error as one line at a fixed
+ * period.
+ *
+ * <p>Metrics are off unless the JVM is started with {@code -Danimator.metrics=true}, and
+ * {@code -Danimator.metrics.logSeconds=N} adds the periodic line. Whether they are on is a
+ * constant, so when they are off the JIT removes the hooks entirely and no clock is read. Every
+ * hook is lock-free and does not allocate, so hooks can be called from any thread.</p>
+ *
+ * <p>A hook that times an operation takes the time from {@link #start()} before it and passes it
+ * to {@link #record(Latency, long)} after it. Latencies are counted in histograms with one bucket
+ * per power of two nanoseconds, so percentiles are reported as the upper bound of their bucket,
+ * which is at most twice the true value.</p>
+ */
+public final class AnimatorMetrics {
+
+  /**
+   * Whether metrics are recorded, read once from the {@code animator.metrics} system property.
+   */
+  public static final boolean ENABLED = Boolean.getBoolean("animator.metrics");
+
+  /**
+   * The name the metrics are registered under with the platform MBean server.
+   */
+  public static final String OBJECT_NAME = "animator:type=Metrics";
+
+  private static final int BUCKETS = 64;
+  private static final double NANOS_PER_MILLI = 1e6;
+
+  /**
+   * The operations whose latency is recorded.
+   */
+  public enum Latency {
+    /**
+     * Reading the records of an animation file into a builder, including adding every shape and
+     * motion to the model the builder populates as the records are read.
+     */
+    PARSE,
+    /**
+     * Compiling the keyframes of a model into its timeline, or indexing where the shapes of a
+     * timeline are over time.
+     */
+    BUILD,
+    /**
+     * Computing the state of every shape at a tick, including cache lookups.
+     */
+    FRAME_STATE,
+    /**
+     * Drawing a computed frame.
+     */
+    PAINT;
+
+    private final LongAdder[] buckets = newAdders(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+  }
+
+  /**
+   * The events that are counted.
+   */
+  public enum Counter {
+    /**
+     * A tick was shown during playback.
+     */
+    FRAMES_SHOWN,
+    /**
+     * A tick was passed over during playback because the refresh came too late to show it.
+     */
+    TICKS_SKIPPED,
+    /**
+     * A frame was drawn in the background but replaced by a newer one before it was shown.
+     */
+    FRAMES_DROPPED,
+    /**
+     * A frame was found in the frame cache.
+     */
+    FRAME_CACHE_HITS,
+    /**
+     * A frame was not found in the frame cache.
+     */
+    FRAME_CACHE_MISSES,
+    /**
+     * A shape was copied from a cached sprite.
+     */
+    SPRITE_CACHE_HITS,
+    /**
+     * A shape had no cached sprite.
+     */
+    SPRITE_CACHE_MISSES;
+
+    private final LongAdder count = new LongAdder();
+  }
+
+  static {
+    if (ENABLED) {
+      register();
+      long period = Long.getLong("animator.metrics.logSeconds", 0);
+      if (period > 0) {
+        ScheduledExecutorService log = Executors.newSingleThreadScheduledExecutor(task -> {
+          Thread thread = new Thread(task, "EasyAnimator metrics");
+          thread.setDaemon(true);
+          return thread;
+        });
+        log.scheduleAtFixedRate(() -> System.err.println(summary()), period, period,
+                TimeUnit.SECONDS);
+      }
+    }
+  }
+
+  private AnimatorMetrics() {
+  }
+
+  /**
+   * Get the time to pass to {@link #record(Latency, long)} once the timed operation is done.
+   *
+   * @return the current time in nanoseconds, or 0 if metrics are off.
+   */
+  public static long start() {
+    return ENABLED ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Record the latency of an operation that began at the given time.
+   *
+   * @param latency    the operation.
+   * @param startNanos the time returned by {@link #start()} before the operation.
+   */
+  public static void record(Latency latency, long startNanos) {
+    if (ENABLED) {
+      long nanos = Math.max(0, System.nanoTime() - startNanos);
+      latency.buckets[BUCKETS - 1 - Long.numberOfLeadingZeros(nanos | 1)].increment();
+      latency.totalNanos.add(nanos);
+      latency.maxNanos.accumulate(nanos);
+    }
+  }
+
+  /**
+   * Count one event.
+   *
+   * @param counter the event.
+   */
+  public static void increment(Counter counter) {
+    if (ENABLED) {
+      counter.count.increment();
+    }
+  }
+
+  /**
+   * Count a number of events at once.
+   *
+   * @param counter the event.
+   * @param events  the number of events.
+   */
+  public static void add(Counter counter, long events) {
+    if (ENABLED) {
+      counter.count.add(events);
+    }
+  }
+
+  /**
+   * Get the number of times an event has been counted.
+   *
+   * @param counter the event.
+   * @return the count.
+   */
+  public static long count(Counter counter) {
+    return counter.count.sum();
+  }
+
+  /**
+   * Get a summary of the latencies recorded for an operation.
+   *
+   * @param latency the operation.
+   * @return the summary.
+   */
+  public static LatencySummary summary(Latency latency) {
+    long[] buckets = new long[BUCKETS];
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets[i] = latency.buckets[i].sum();
+      count += buckets[i];
+    }
+    long total = latency.totalNanos.sum();
+    return new LatencySummary(count, count == 0 ? 0 : total / NANOS_PER_MILLI / count,
+            percentile(buckets, count, 0.5), percentile(buckets, count, 0.9),
+            percentile(buckets, count, 0.99), latency.maxNanos.get() / NANOS_PER_MILLI);
+  }
+
+  /**
+   * Get the share of lookups that were hits.
+   *
+   * @param hits   the event counted for a hit.
+   * @param misses the event counted for a miss.
+   * @return the hit rate between 0 and 1, or 0 if there were no lookups.
+   */
+  public static double hitRate(Counter hits, Counter misses) {
+    long hit = count(hits);
+    long lookups = hit + count(misses);
+    return lookups == 0 ? 0 : (double) hit / lookups;
+  }
+
+  /**
+   * Forget every latency and count recorded so far.
+   */
+  public static void reset() {
+    for (Latency latency : Latency.values()) {
+      for (LongAdder bucket : latency.buckets) {
+        bucket.reset();
+      }
+      latency.totalNanos.reset();
+      latency.maxNanos.reset();
+    }
+    for (Counter counter : Counter.values()) {
+      counter.count.reset();
+    }
+  }
+
+  /**
+   * Get every metric as one line of text, as written by the periodic log.
+   *
+   * @return the summary line.
+   */
+  public static String summary() {
+    StringBuilder line = new StringBuilder("animator metrics:");
+    for (Latency latency : Latency.values()) {
+      LatencySummary summary = summary(latency);
+      line.append(String.format(" %s n=%d mean=%.3fms p99=%.3fms max=%.3fms;",
+              latency.name().toLowerCase(), summary.getCount(), summary.getMeanMillis(),
+              summary.getP99Millis(), summary.getMaxMillis()));
+    }
+    line.append(String.format(" shown=%d skipped=%d dropped=%d frameCache=%.1f%% sprites=%.1f%%",
+            count(Counter.FRAMES_SHOWN), count(Counter.TICKS_SKIPPED),
+            count(Counter.FRAMES_DROPPED),
+            100 * hitRate(Counter.FRAME_CACHE_HITS, Counter.FRAME_CACHE_MISSES),
+            100 * hitRate(Counter.SPRITE_CACHE_HITS, Counter.SPRITE_CACHE_MISSES)));
+    return line.toString();
+  }
+
+  /**
+   * Register the metrics with the platform MBean server, unless they are already registered.
+   * This happens when the class is loaded if metrics are on.
+   */
+  public static synchronized void register() {
+    try {
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), name);
+      }
+    } catch (JMException e) {
+      System.err.println("Unable to register " + OBJECT_NAME + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Helper method to estimate a percentile from a histogram as the upper bound of the bucket it
+   * falls in.
+   *
+   * @param buckets the count in each bucket.
+   * @param count   the total count.
+   * @param rank    the percentile as a fraction between 0 and 1.
+   * @return the percentile in milliseconds, or 0 if nothing was recorded.
+   */
+  private static double percentile(long[] buckets, long count, double rank) {
+    long target = (long) Math.ceil(count * rank);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += buckets[i];
+      if (seen >= target && seen > 0) {
+        return Math.scalb(1.0, i + 1) / NANOS_PER_MILLI;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Helper method to create an array of adders.
+   *
+   * @param size the number of adders.
+   * @return the adders, each at 0.
+   */
+  private static LongAdder[] newAdders(int size) {
+    LongAdder[] adders = new LongAdder[size];
+    for (int i = 0; i < size; i++) {
+      adders[i] = new LongAdder();
+    }
+    return adders;
+  }
+
+  /**
+   * Summary of the latencies recorded for one operation, shown as a composite value by JMX
+   * clients.
+   */
+  public static final class LatencySummary {
+
+    private final long count;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p90Millis;
+    private final double p99Millis;
+    private final double maxMillis;
+
+    /**
+     * Constructor for LatencySummary that takes every value of the summary.
+     *
+     * @param count      the number of operations.
+     * @param meanMillis the mean latency in milliseconds.
+     * @param p50Millis  the median latency in milliseconds.
+     * @param p90Millis  the 90th percentile latency in milliseconds.
+     * @param p99Millis  the 99th percentile latency in milliseconds.
+     * @param maxMillis  the longest latency in milliseconds.
+     */
+    @ConstructorProperties({"count", "meanMillis", "p50Millis", "p90Millis", "p99Millis",
+        "maxMillis"})
+    public LatencySummary(long count, double meanMillis, double p50Millis, double p90Millis,
+                          double p99Millis, double maxMillis) {
+      this.count = count;
+      this.meanMillis = meanMillis;
+      this.p50Millis = p50Millis;
+      this.p90Millis = p90Millis;
+      this.p99Millis = p99Millis;
+      this.maxMillis = maxMillis;
+    }
+
+    /**
+     * Get the number of operations.
+     *
+     * @return the count.
+     */
+    public long getCount() {
+      return this.count;
+    }
+
+    /**
+     * Get the mean latency.
+     *
+     * @return the mean in milliseconds.
+     */
+    public double getMeanMillis() {
+      return this.meanMillis;
+    }
+
+    /**
+     * Get the median latency.
+     *
+     * @return the median in milliseconds.
+     */
+    public double getP50Millis() {
+      return this.p50Millis;
+    }
+
+    /**
+     * Get the 90th percentile latency.
+     *
+     * @return the percentile in milliseconds.
+     */
+    public double getP90Millis() {
+      return this.p90Millis;
+    }
+
+    /**
+     * Get the 99th percentile latency.
+     *
+     * @return the percentile in milliseconds.
+     */
+    public double getP99Millis() {
+      return this.p99Millis;
+    }
+
+    /**
+     * Get the longest latency.
+     *
+     * @return the longest latency in milliseconds.
+     */
+    public double getMaxMillis() {
+      return this.maxMillis;
+    }
+  }
+
+  /**
+   * The bean registered with the platform MBean server, reading the static metrics.
+   */
+  private static final class Bean implements AnimatorMetricsMXBean {
+
+    @Override
+    public LatencySummary getParse() {
+      return summary(Latency.PARSE);
+    }
+
+    @Override
+    public LatencySummary getBuild() {
+      return summary(Latency.BUILD);
+    }
+
+    @Override
+    public LatencySummary getFrameState() {
+      return summary(Latency.FRAME_STATE);
+    }
+
+    @Override
+    public LatencySummary getPaint() {
+      return summary(Latency.PAINT);
+    }
+
+    @Override
+    public long getFramesShown() {
+      return count(Counter.FRAMES_SHOWN);
+    }
+
+    @Override
+    public long getTicksSkipped() {
+      return count(Counter.TICKS_SKIPPED);
+    }
+
+    @Override
+    public long getFramesDropped() {
+      return count(Counter.FRAMES_DROPPED);
+    }
+
+    @Override
+    public double getFrameCacheHitRate() {
+      return hitRate(Counter.FRAME_CACHE_HITS, Counter.FRAME_CACHE_MISSES);
+    }
+
+    @Override
+    public double getSpriteCacheHitRate() {
+      return hitRate(Counter.SPRITE_CACHE_HITS, Counter.SPRITE_CACHE_MISSES);
+    }
+
+    @Override
+    public String getSummary() {
+      return summary();
+    }
+
+    @Override
+    public void reset() {
+      AnimatorMetrics.reset();
+    }
+  }
+}
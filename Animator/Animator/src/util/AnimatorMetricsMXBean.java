@@ -0,0 +1,84 @@
+package util;
+
+/**
+ * Management interface of the animation metrics recorded by {@link AnimatorMetrics}, readable
+ * from any JMX client such as JConsole. Latencies are in milliseconds.
+ */
+public interface AnimatorMetricsMXBean {
+
+  /**
+   * Get the latencies of reading animation files, including populating the models read.
+   *
+   * @return the summary of parse latencies.
+   */
+  AnimatorMetrics.LatencySummary getParse();
+
+  /**
+   * Get the latencies of compiling the keyframes of models and of indexing where their shapes
+   * are.
+   *
+   * @return the summary of build latencies.
+   */
+  AnimatorMetrics.LatencySummary getBuild();
+
+  /**
+   * Get the latencies of computing the state of a frame.
+   *
+   * @return the summary of frame state latencies.
+   */
+  AnimatorMetrics.LatencySummary getFrameState();
+
+  /**
+   * Get the latencies of painting a frame.
+   *
+   * @return the summary of paint latencies.
+   */
+  AnimatorMetrics.LatencySummary getPaint();
+
+  /**
+   * Get the number of ticks shown during playback.
+   *
+   * @return the number of frames shown.
+   */
+  long getFramesShown();
+
+  /**
+   * Get the number of ticks passed over during playback because a refresh came too late.
+   *
+   * @return the number of ticks skipped.
+   */
+  long getTicksSkipped();
+
+  /**
+   * Get the number of frames drawn in the background and replaced before they were shown.
+   *
+   * @return the number of frames dropped.
+   */
+  long getFramesDropped();
+
+  /**
+   * Get the share of frame cache lookups that found their frame.
+   *
+   * @return the hit rate between 0 and 1.
+   */
+  double getFrameCacheHitRate();
+
+  /**
+   * Get the share of shapes copied from a cached sprite.
+   *
+   * @return the hit rate between 0 and 1.
+   */
+  double getSpriteCacheHitRate();
+
+  /**
+   * Get every metric as one line of text.
+   *
+   * @return the summary line.
+   */
+  String getSummary();
+
+  /**
+   * Forget every latency and count recorded so far.
+   */
+  void reset();
+}
@@ -0,0 +1,465 @@
+package view;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.List;
+
+import model.ColorChange;
+import model.CompiledTimeline;
+import model.PositionChange;
+import model.Shape;
+import model.SizeChange;
+
+/**
+ * Helper that writes a shape as a compact SVG element. Each animated attribute of the shape gets
+ * a single {@code <animate>} element whose {@code values} and {@code keyTimes} list the attribute
+ * over the whole animation. Color changes and the shape's lifetime switch rather than change
+ * gradually, so they become {@code <set>} elements, except that a shape whose color switches more
+ * than once gets a single discrete {@code <animate>} listing its colors instead.
+ *
+ * <p>Positions and sizes change linearly between the times at which a move or size change starts
+ * or ends, so the shape is sampled at those times from the compiled timeline, which interpolates
+ * the same way the other views do. A value that jumps, because a move starts somewhere other than
+ * where the shape is, is written as two values at the same key time. Values are rounded to the
+ * requested number of decimal places, and a value that lies exactly on the line through its
+ * neighbors after rounding is left out, so a run of moves at the same speed is written as one
+ * straight segment.</p>
+ */
+final class CompactSvgWriter {
+
+  private static final long[] POWERS_OF_TEN = {1, 10, 100, 1000, 10000, 100000, 1000000};
+
+  /**
+   * The largest number of decimal places values can be rounded to.
+   */
+  static final int MAX_PRECISION = POWERS_OF_TEN.length - 1;
+
+  private static final String[] RECT_ATTRIBUTES = {"x", "y", "width", "height"};
+  private static final String[] ELLIPSE_ATTRIBUTES = {"cx", "cy", "rx", "ry"};
+  private static final int KEY_TIME_DECIMALS = 6;
+
+  private final CompiledTimeline timeline;
+  private final double tempo;
+  private final int precision;
+  private final long scale;
+
+  /**
+   * Constructor for CompactSvgWriter that writes shapes of a compiled animation.
+   *
+   * @param timeline  the compiled animation.
+   * @param tempo     the speed of the animation in ticks per second.
+   * @param precision the number of decimal places of positions and sizes.
+   */
+  CompactSvgWriter(CompiledTimeline timeline, double tempo, int precision) {
+    this.timeline = timeline;
+    this.tempo = tempo;
+    this.precision = precision;
+    this.scale = POWERS_OF_TEN[precision];
+  }
+
+  /**
+   * Write the opening of a document that shows a window of the animation, the same window the
+   * other views draw.
+   *
+   * @param x      the leftmost x coordinate of the window.
+   * @param y      the topmost y coordinate of the window.
+   * @param width  the width of the window.
+   * @param height the height of the window.
+   * @param out    the buffer to append to.
+   */
+  static void appendHeader(int x, int y, int width, int height, StringBuilder out) {
+    out.append("<svg width=\"").append(width).append("\" height=\"").append(height)
+            .append("\" viewBox=\"").append(x).append(' ').append(y).append(' ').append(width)
+            .append(' ').append(height)
+            .append("\" version=\"1.1\" xmlns=\"http://www.w3.org/2000/svg\">\n");
+  }
+
+  /**
+   * Write the element of one shape with its animations. Circles are drawn in their bounding box
+   * the way the other views draw them, so they are written as ellipses.
+   *
+   * @param s     the index of the shape in the compiled animation.
+   * @param shape the shape, whose keyframes give the times to sample.
+   * @param out   the buffer to append to.
+   */
+  void appendShape(int s, Shape shape, StringBuilder out) {
+    boolean ellipse = this.timeline.getType(s).equals("circle");
+    String element = ellipse ? "ellipse" : "rect";
+    String[] attributes = ellipse ? ELLIPSE_ATTRIBUTES : RECT_ATTRIBUTES;
+    double[] times = this.sampleTimes(shape);
+
+    long[][] tracks = new long[attributes.length][];
+    double[][] trackTimes = new double[attributes.length][];
+    out.append("<").append(element).append(" id=\"");
+    appendEscaped(shape.getName(), out);
+    out.append('"');
+    for (int a = 0; a < attributes.length; a++) {
+      double[] keyTimes = new double[2 * times.length];
+      long[] values = new long[2 * times.length];
+      int points = this.track(s, a, ellipse, times, keyTimes, values);
+      tracks[a] = Arrays.copyOf(values, points);
+      trackTimes[a] = Arrays.copyOf(keyTimes, points);
+      out.append(' ').append(attributes[a]).append("=\"");
+      this.appendValue(values[0], out);
+      out.append('"');
+    }
+    Color color = this.timeline.getColor(s, 0);
+    out.append(" fill=\"");
+    appendColor(color, out);
+    out.append('"');
+    boolean hasLifetime = shape.getDisappears() > shape.getAppears();
+    if (hasLifetime && shape.getAppears() > 0) {
+      out.append(" visibility=\"hidden\"");
+    }
+
+    int children = out.length();
+    out.append(">\n");
+    for (int a = 0; a < attributes.length; a++) {
+      if (!isConstant(tracks[a])) {
+        this.appendAnimate(attributes[a], trackTimes[a], tracks[a], out);
+      }
+    }
+    this.appendColorSets(s, shape, color, out);
+    if (hasLifetime) {
+      if (shape.getAppears() > 0) {
+        this.appendSet("visibility", "visible", shape.getAppears(), out);
+      }
+      // A shape is drawn on the tick it disappears, so it is hidden when the next tick begins.
+      this.appendSet("visibility", "hidden", shape.getDisappears() + 1, out);
+    }
+    if (out.length() == children + 2) {
+      out.setLength(children);
+      out.append("/>\n");
+    } else {
+      out.append("</").append(element).append(">\n");
+    }
+  }
+
+  /**
+   * Helper method to find the times at which the position or size of a shape starts or stops
+   * changing linearly: 0 and the start and end of every move and size change, in order.
+   *
+   * @param shape the shape.
+   * @return the distinct times, in ascending order.
+   */
+  private double[] sampleTimes(Shape shape) {
+    List<PositionChange> moves = shape.getPositionChanges();
+    List<SizeChange> sizes = shape.getSizeChanges();
+    double[] times = new double[1 + 2 * moves.size() + 2 * sizes.size()];
+    int n = 1;
+    for (PositionChange move : moves) {
+      times[n++] = move.getStartTime();
+      times[n++] = move.getEndTime();
+    }
+    for (SizeChange size : sizes) {
+      times[n++] = size.getStartTime();
+      times[n++] = size.getEndTime();
+    }
+    Arrays.sort(times);
+    int distinct = 0;
+    for (int i = 0; i < times.length; i++) {
+      if (times[i] >= 0 && (distinct == 0 || times[i] != times[distinct - 1])) {
+        times[distinct++] = times[i];
+      }
+    }
+    return Arrays.copyOf(times, distinct);
+  }
+
+  /**
+   * Helper method to sample one attribute of a shape into a track of rounded values. Between two
+   * sample times the attribute changes linearly, so the value just before a sample time is found
+   * by extending the line through the previous interval, and differs from the value at the
+   * sample time only where the attribute jumps.
+   *
+   * @param s        the index of the shape in the compiled animation.
+   * @param a        which attribute to sample, in the order of the attribute names.
+   * @param ellipse  whether the shape is written as an ellipse.
+   * @param times    the sample times, in ascending order.
+   * @param keyTimes where the times of the track are written.
+   * @param values   where the rounded values of the track are written.
+   * @return the number of points in the track.
+   */
+  private int track(int s, int a, boolean ellipse, double[] times, double[] keyTimes,
+                    long[] values) {
+    int points = 0;
+    double previous = 0;
+    for (int k = 0; k < times.length; k++) {
+      double value = this.attribute(s, a, ellipse, times[k]);
+      if (k > 0) {
+        double middle = this.attribute(s, a, ellipse, (times[k - 1] + times[k]) / 2);
+        long before = Math.round((2 * middle - previous) * this.scale);
+        points = addPoint(times[k], before, keyTimes, values, points);
+      }
+      points = addPoint(times[k], Math.round(value * this.scale), keyTimes, values, points);
+      previous = value;
+    }
+    return points;
+  }
+
+  /**
+   * Helper method to add a point to a track, first dropping the last point if it lies exactly on
+   * the line from the point before it to the new one. Values are compared in whole units of the
+   * rounding, so the check is exact.
+   *
+   * @param time     the time of the point.
+   * @param value    the rounded value of the point.
+   * @param keyTimes the times of the track.
+   * @param values   the values of the track.
+   * @param points   the number of points in the track.
+   * @return the number of points in the track after adding this one.
+   */
+  private static int addPoint(double time, long value, double[] keyTimes, long[] values,
+                              int points) {
+    if (points >= 2) {
+      double t0 = keyTimes[points - 2];
+      double t1 = keyTimes[points - 1];
+      long v0 = values[points - 2];
+      long v1 = values[points - 1];
+      boolean collinear = t0 == time ? v0 == v1 && v1 == value
+              : (double) (v1 - v0) * (time - t0) == (double) (value - v0) * (t1 - t0);
+      if (collinear) {
+        points--;
+      }
+    }
+    keyTimes[points] = time;
+    values[points] = value;
+    return points + 1;
+  }
+
+  /**
+   * Helper method to compute one attribute of a shape at a time. An ellipse is written by its
+   * center and radii, which follow from the bounding box the shape is drawn in.
+   *
+   * @param s       the index of the shape in the compiled animation.
+   * @param a       which attribute, in the order of the attribute names.
+   * @param ellipse whether the shape is written as an ellipse.
+   * @param time    the time.
+   * @return the value of the attribute.
+   */
+  private double attribute(int s, int a, boolean ellipse, double time) {
+    switch (a) {
+      case 0:
+        return this.timeline.getX(s, time)
+                + (ellipse ? this.timeline.getWidth(s, time) / 2 : 0);
+      case 1:
+        return this.timeline.getY(s, time)
+                + (ellipse ? this.timeline.getHeight(s, time) / 2 : 0);
+      case 2:
+        return this.timeline.getWidth(s, time) / (ellipse ? 2 : 1);
+      default:
+        return this.timeline.getHeight(s, time) / (ellipse ? 2 : 1);
+    }
+  }
+
+  /**
+   * Helper method to check whether a track keeps the same value throughout.
+   *
+   * @param values the rounded values of the track.
+   * @return true if every value is the same.
+   */
+  private static boolean isConstant(long[] values) {
+    for (long value : values) {
+      if (value != values[0]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Helper method to write the animation of one attribute over its whole track. The track starts
+   * at time 0, and its key times are fractions of its duration.
+   *
+   * @param attribute the name of the attribute.
+   * @param times     the times of the track.
+   * @param values    the rounded values of the track.
+   * @param out       the buffer to append to.
+   */
+  private void appendAnimate(String attribute, double[] times, long[] values,
+                             StringBuilder out) {
+    double duration = times[times.length - 1];
+    out.append("<animate attributeName=\"").append(attribute).append("\" dur=\"");
+    appendDecimal(duration / this.tempo, KEY_TIME_DECIMALS, out);
+    out.append("s\" fill=\"freeze\" values=\"");
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        out.append(';');
+      }
+      this.appendValue(values[i], out);
+    }
+    out.append("\" keyTimes=\"");
+    for (int i = 0; i < times.length; i++) {
+      if (i > 0) {
+        out.append(';');
+      }
+      if (i == times.length - 1) {
+        out.append('1');
+      } else {
+        appendDecimal(times[i] / duration, KEY_TIME_DECIMALS, out);
+      }
+    }
+    out.append("\"/>\n");
+  }
+
+  /**
+   * Helper method to write the color changes that change the color of the shape, as a set
+   * element if there is one and as a discrete animation if there are more. Of several changes at
+   * the same time only the last takes effect.
+   *
+   * @param s       the index of the shape in the compiled animation.
+   * @param shape   the shape, whose color changes give the times to look at.
+   * @param initial the color of the shape at time 0.
+   * @param out     the buffer to append to.
+   */
+  private void appendColorSets(int s, Shape shape, Color initial, StringBuilder out) {
+    List<ColorChange> changes = shape.getColorChanges();
+    double[] times = new double[changes.size()];
+    for (int i = 0; i < times.length; i++) {
+      times[i] = changes.get(i).getTime();
+    }
+    Arrays.sort(times);
+    double[] switchTimes = new double[times.length];
+    Color[] colors = new Color[times.length];
+    int switches = 0;
+    Color current = initial;
+    for (int i = 0; i < times.length; i++) {
+      if (times[i] <= 0 || (i + 1 < times.length && times[i + 1] == times[i])) {
+        continue;
+      }
+      Color color = this.timeline.getColor(s, times[i]);
+      if (!color.equals(current)) {
+        switchTimes[switches] = times[i];
+        colors[switches++] = color;
+        current = color;
+      }
+    }
+
+    if (switches == 1) {
+      out.append("<set attributeName=\"fill\" to=\"");
+      appendColor(colors[0], out);
+      out.append("\" begin=\"");
+      appendDecimal(switchTimes[0] / this.tempo, KEY_TIME_DECIMALS, out);
+      out.append("s\"/>\n");
+    } else if (switches > 1) {
+      double duration = switchTimes[switches - 1];
+      out.append("<animate attributeName=\"fill\" calcMode=\"discrete\" dur=\"");
+      appendDecimal(duration / this.tempo, KEY_TIME_DECIMALS, out);
+      out.append("s\" fill=\"freeze\" values=\"");
+      appendColor(initial, out);
+      for (int i = 0; i < switches; i++) {
+        out.append(';');
+        appendColor(colors[i], out);
+      }
+      out.append("\" keyTimes=\"0");
+      for (int i = 0; i < switches - 1; i++) {
+        out.append(';');
+        appendDecimal(switchTimes[i] / duration, KEY_TIME_DECIMALS, out);
+      }
+      out.append(";1\"/>\n");
+    }
+  }
+
+  /**
+   * Helper method to write a set element.
+   *
+   * @param attribute the name of the attribute.
+   * @param value     the value it is set to.
+   * @param time      the tick at which it is set.
+   * @param out       the buffer to append to.
+   */
+  private void appendSet(String attribute, String value, double time, StringBuilder out) {
+    out.append("<set attributeName=\"").append(attribute).append("\" to=\"").append(value)
+            .append("\" begin=\"");
+    appendDecimal(time / this.tempo, KEY_TIME_DECIMALS, out);
+    out.append("s\"/>\n");
+  }
+
+  /**
+   * Helper method to write a rounded value, which is in whole units of the rounding.
+   *
+   * @param value the rounded value.
+   * @param out   the buffer to append to.
+   */
+  private void appendValue(long value, StringBuilder out) {
+    appendFixed(value, this.precision, out);
+  }
+
+  /**
+   * Helper method to write a number rounded to a number of decimal places, without trailing
+   * zeros.
+   *
+   * @param value    the number.
+   * @param decimals the number of decimal places.
+   * @param out      the buffer to append to.
+   */
+  private static void appendDecimal(double value, int decimals, StringBuilder out) {
+    appendFixed(Math.round(value * POWERS_OF_TEN[decimals]), decimals, out);
+  }
+
+  /**
+   * Helper method to write a number given in whole units of a number of decimal places, without
+   * trailing zeros.
+   *
+   * @param units    the number in units of the last decimal place.
+   * @param decimals the number of decimal places.
+   * @param out      the buffer to append to.
+   */
+  private static void appendFixed(long units, int decimals, StringBuilder out) {
+    if (units < 0) {
+      out.append('-');
+      units = -units;
+    }
+    long power = POWERS_OF_TEN[decimals];
+    out.append(units / power);
+    long fraction = units % power;
+    if (fraction != 0) {
+      out.append('.');
+      for (long digit = power / 10; digit > 0 && fraction != 0; digit /= 10) {
+        out.append((char) ('0' + fraction / digit));
+        fraction %= digit;
+      }
+    }
+  }
+
+  /**
+   * Helper method to write a color as a hexadecimal RGB triple.
+   *
+   * @param color the color.
+   * @param out   the buffer to append to.
+   */
+  private static void appendColor(Color color, StringBuilder out) {
+    int rgb = color.getRGB();
+    out.append('#');
+    for (int shift = 20; shift >= 0; shift -= 4) {
+      out.append(Character.forDigit((rgb >> shift) & 0xF, 16));
+    }
+  }
+
+  /**
+   * Helper method to write text inside an attribute value, escaping the characters XML reserves.
+   *
+   * @param text the text.
+   * @param out  the buffer to append to.
+   */
+  private static void appendEscaped(String text, StringBuilder out) {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '&':
+          out.append("&amp;");
+          break;
+        case '<':
+          out.append("&lt;");
+          break;
+        case '>':
+          out.append("&gt;");
+          break;
+        case '"':
+          out.append("&quot;");
+          break;
+        default:
+          out.append(c);
+      }
+    }
+  }
+}
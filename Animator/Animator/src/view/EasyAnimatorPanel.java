@@ -2,27 +2,52 @@ package view;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 
 import javax.swing.JPanel;
 
+import model.CompiledTimeline;
 import model.EasyAnimatorModel;
 import model.EasyAnimatorModelImpl;
-import model.Point2D;
-import model.PositionChange;
+import model.Frame;
+import model.FrameBuffer;
 import model.Shape;
-import model.SizeChange;
+import util.AnimatorMetrics;
 
 
 /**
  * Public class that extends JPanel to allow us to animate the animation with actual moving shapes.
  * Each instance of this class represents an animation panel that is actually visualized.
+ *
+ * <p>The panel shows the view window of the model: the top left corner of the window is drawn at
+ * the top left corner of the panel, and the panel shows as much of the animation as its size
+ * allows. Frames are computed only for the shapes the model's spatial index finds in that region,
+ * and painting draws only the shapes that touch the area being repainted.</p>
  */
 public class EasyAnimatorPanel extends JPanel {
 
   private final EasyAnimatorModel model;
+  private final int originX;
+  private final int originY;
   private int currentTick;
   private HashMap<String, Boolean> visibleShapes;
+  private Map<String, Boolean> visibilitySnapshot;
+  private FrameBuffer currentFrame;
+  private FrameBuffer previousFrame;
+  private boolean hasFrame;
+  private int frameWidth;
+  private int frameHeight;
+  private final Rectangle clip;
+  private final Rectangle dirty;
+  private FrameCache frameCache;
+  private SpriteCache spriteCache;
+  private CompiledTimeline cachedTimeline;
+  private int cachedWidth;
+  private int cachedHeight;
+  private RenderWorker renderWorker;
 
   /**
    * Constructor for the panel that takes one parameter which is the Model.
@@ -30,7 +55,7 @@ public class EasyAnimatorPanel extends JPanel {
    * @param model the model that is being passed into the animation and will be animated.
    * @throws IllegalArgumentException if the model is null.
    */
-  EasyAnimatorPanel(EasyAnimatorModelImpl model) throws IllegalArgumentException {
+  public EasyAnimatorPanel(EasyAnimatorModelImpl model) throws IllegalArgumentException {
     super();
     if (model == null) {
       throw new IllegalArgumentException("Model cannot be null.");
@@ -38,7 +63,13 @@ public class EasyAnimatorPanel extends JPanel {
     System.out.println("Setting height of panel:" + model.view_window_height);
     this.setPreferredSize(new Dimension(model.view_window_width, model.view_window_height));
     this.model = model;
+    this.originX = model.view_window_x;
+    this.originY = model.view_window_y;
     this.currentTick = 0;
+    this.currentFrame = new FrameBuffer();
+    this.previousFrame = new FrameBuffer();
+    this.clip = new Rectangle();
+    this.dirty = new Rectangle();
     this.setBackground(Color.WHITE);
 
 
@@ -61,6 +92,7 @@ public class EasyAnimatorPanel extends JPanel {
     }
 
     this.visibleShapes = visibles;
+    this.visibilitySnapshot = Collections.unmodifiableMap(new HashMap<>(visibles));
   }
 
   /**
@@ -72,6 +104,24 @@ public class EasyAnimatorPanel extends JPanel {
     return model;
   }
 
+  /**
+   * Getter for the x coordinate of the animation drawn at the left edge of the panel.
+   *
+   * @return the x coordinate of the view window of the model.
+   */
+  int getWindowX() {
+    return this.originX;
+  }
+
+  /**
+   * Getter for the y coordinate of the animation drawn at the top edge of the panel.
+   *
+   * @return the y coordinate of the view window of the model.
+   */
+  int getWindowY() {
+    return this.originY;
+  }
+
   /**
    * Return the current tick.
    */
@@ -92,6 +142,150 @@ public class EasyAnimatorPanel extends JPanel {
     this.currentTick = tick;
   }
 
+  /**
+   * Set the cache the panel looks up frames in before computing them from the model. Frames the
+   * panel computes are added to the cache.
+   *
+   * @param frameCache the cache to use, or null to always compute frames.
+   */
+  public void setFrameCache(FrameCache frameCache) {
+    this.frameCache = frameCache;
+  }
+
+  /**
+   * Set the cache of rasterized shapes the panel copies shapes from instead of drawing them.
+   *
+   * @param spriteCache the cache to use, or null to always draw shapes.
+   */
+  public void setSpriteCache(SpriteCache spriteCache) {
+    this.spriteCache = spriteCache;
+    this.repaint();
+  }
+
+  /**
+   * Getter for the cache of rasterized shapes the panel copies shapes from.
+   *
+   * @return the cache, or null if shapes are always drawn.
+   */
+  SpriteCache getSpriteCache() {
+    return this.spriteCache;
+  }
+
+  /**
+   * Set whether frames are computed and drawn on a worker thread. In the background, the Event
+   * Dispatch Thread only copies the most recently finished frame to the screen, so a frame that
+   * is slow to compute does not hold up the rest of the interface, and on a machine with more
+   * than one core computing the next frame overlaps with showing the current one.
+   *
+   * @param background true to render on a worker thread, false to render when painting.
+   */
+  public void setRenderInBackground(boolean background) {
+    if (background == (this.renderWorker != null)) {
+      return;
+    }
+    if (background) {
+      this.renderWorker = new RenderWorker(this);
+      this.renderWorker.start();
+      this.renderWorker.request(this.currentTick, this.getWidth(), this.getHeight(),
+              this.visibilitySnapshot);
+    } else {
+      this.renderWorker.stop();
+      this.renderWorker = null;
+      this.hasFrame = false;
+      this.repaint();
+    }
+  }
+
+  /**
+   * Move the panel to the given tick and repaint only the regions that change. The bounds of
+   * every shape in the frame on screen are compared with its bounds at the new tick, and only the
+   * union of the old and new bounds of the shapes that changed is repainted. Shapes that are
+   * static during the tick are not redrawn unless they overlap a changed region.
+   *
+   * <p>The panel computes frames into two buffers that it reuses from tick to tick, so once the
+   * buffers are large enough moving to a tick and painting it do not allocate.</p>
+   *
+   * @param tick the tick to show
+   * @throws IllegalArgumentException if a tick less than 0 is given.
+   */
+  public void showTick(int tick) throws IllegalArgumentException {
+    this.setCurrentTick(tick);
+    int width = this.getWidth();
+    int height = this.getHeight();
+    if (this.renderWorker != null) {
+      this.renderWorker.request(tick, width, height, this.visibilitySnapshot);
+      return;
+    }
+    FrameBuffer next = this.previousFrame;
+    this.frameAt(tick, width, height, next);
+    this.previousFrame = this.currentFrame;
+    this.currentFrame = next;
+    boolean resized = width != this.frameWidth || height != this.frameHeight;
+    this.frameWidth = width;
+    this.frameHeight = height;
+    if (!this.hasFrame || resized) {
+      this.hasFrame = true;
+      this.repaint();
+      return;
+    }
+    this.repaintChanges(this.previousFrame, this.currentFrame);
+  }
+
+  /**
+   * Helper method to compute the frame at a tick into a buffer, copying it from the cache if it
+   * is cached and adding it to the cache otherwise. Only the shapes that may be seen in a panel of
+   * the given size are computed. The cache is emptied whenever the model's keyframes have changed
+   * since the frames in it were computed, such as when motions are appended to a followed file,
+   * and whenever the size has changed. When rendering in the background, only the worker thread
+   * calls this.
+   *
+   * @param tick   the tick of the frame.
+   * @param width  the width of the panel.
+   * @param height the height of the panel.
+   * @param buffer the buffer to fill.
+   */
+  void frameAt(int tick, int width, int height, FrameBuffer buffer) {
+    long start = AnimatorMetrics.start();
+    FrameCache cache = this.frameCache;
+    if (cache == null) {
+      this.model.stateAt(tick, this.originX, this.originY, width, height, buffer);
+      AnimatorMetrics.record(AnimatorMetrics.Latency.FRAME_STATE, start);
+      return;
+    }
+    CompiledTimeline timeline = this.model.compile();
+    if (timeline != this.cachedTimeline || width != this.cachedWidth
+            || height != this.cachedHeight) {
+      cache.clear();
+      this.cachedTimeline = timeline;
+      this.cachedWidth = width;
+      this.cachedHeight = height;
+    }
+    Frame frame = cache.get(tick);
+    if (frame == null) {
+      AnimatorMetrics.increment(AnimatorMetrics.Counter.FRAME_CACHE_MISSES);
+      this.model.stateAt(tick, this.originX, this.originY, width, height, buffer);
+      cache.put(tick, buffer.toFrame());
+    } else {
+      AnimatorMetrics.increment(AnimatorMetrics.Counter.FRAME_CACHE_HITS);
+      buffer.copyFrom(frame);
+    }
+    AnimatorMetrics.record(AnimatorMetrics.Latency.FRAME_STATE, start);
+  }
+
+  /**
+   * Helper method to repaint the region that differs between two frames, moved from the
+   * coordinates of the animation to those of the panel.
+   *
+   * @param before the frame on screen.
+   * @param after  the frame to show.
+   */
+  private void repaintChanges(FrameBuffer before, FrameBuffer after) {
+    if (FramePainter.changes(before, after, this.visibleShapes, this.dirty)) {
+      this.repaint(this.dirty.x - this.originX, this.dirty.y - this.originY, this.dirty.width,
+              this.dirty.height);
+    }
+  }
+
   /**
    * Gets the visible shapes hashmap from the AnimatorPanel.
    *
@@ -113,6 +307,12 @@ public class EasyAnimatorPanel extends JPanel {
       throw new IllegalArgumentException("Shape Name cannot be null.");
     }
     this.visibleShapes.replace(shapeName, visible);
+    // The worker thread draws with its own copy, so it never reads the map being changed here.
+    this.visibilitySnapshot = Collections.unmodifiableMap(new HashMap<>(this.visibleShapes));
+    if (this.renderWorker != null) {
+      this.renderWorker.invalidate(this.visibilitySnapshot);
+    }
+    this.repaint();
   }
 
   @Override
@@ -122,38 +322,31 @@ public class EasyAnimatorPanel extends JPanel {
       throw new IllegalArgumentException("Graphics cannot be null");
     }
 
-    for (Shape shape : model.getExactShapes()) {
-      for (PositionChange move : shape.getPositionChanges()) {
-
-        double dt = move.getEndTime() - move.getStartTime();
-        double x = move.getTo().getX() - move.getFrom().getX();
-        double y = move.getTo().getY() - move.getFrom().getY();
-        double dx = x / dt;
-        double dy = y / dt;
-
-        for (int i = 0; i < dt; i++) {
-          if (currentTick == move.getStartTime() + i) {
-            shape.setPosition(new Point2D(shape.getReference().getX()
-                    + dx, shape.getReference().getY() + dy));
-          }
-        }
-      }
-    }
-
-    for (Shape shape : model.getExactShapes()) {
-      for (SizeChange resize : shape.getSizeChanges()) {
-        if (currentTick == resize.getStartTime()) {
-          shape.setSize(resize.getFactor());
-        }
-      }
+    if (this.renderWorker != null) {
+      this.renderWorker.request(this.currentTick, this.getWidth(), this.getHeight(),
+              this.visibilitySnapshot);
+      this.renderWorker.blit(g);
+      return;
     }
 
-    for (Shape shape : model.getExactShapes()) {
-      if (visibleShapes.get(shape.getName())) {
-        g.setColor(shape.getColor(currentTick));
-        shape.draw(g);
-      }
+    int width = this.getWidth();
+    int height = this.getHeight();
+    if (!this.hasFrame || this.currentFrame.getTime() != this.currentTick
+            || width != this.frameWidth || height != this.frameHeight) {
+      this.frameAt(this.currentTick, width, height, this.currentFrame);
+      this.hasFrame = true;
+      this.frameWidth = width;
+      this.frameHeight = height;
     }
+    // Without a clip the bounds are left as they are, so the whole panel is drawn.
+    this.clip.setBounds(0, 0, width, height);
+    Rectangle region = g.getClipBounds(this.clip);
+    region.translate(this.originX, this.originY);
+    long start = AnimatorMetrics.start();
+    g.translate(-this.originX, -this.originY);
+    FramePainter.paint(g, this.currentFrame, this.visibleShapes, region, this.spriteCache);
+    g.translate(this.originX, this.originY);
+    AnimatorMetrics.record(AnimatorMetrics.Latency.PAINT, start);
   }
 
 
@@ -0,0 +1,251 @@
+package view;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+import model.EasyAnimatorModelImpl;
+
+/**
+ * EasyAnimatorViewGif class that implements EasyAnimatorView to export the animation as an
+ * animated GIF, using only the image writers of the JDK, so it runs on headless machines. Every
+ * tick becomes one frame, shown for as long as a tick lasts at the tempo given to animate. Frames
+ * are drawn by {@link EasyAnimatorViewOffscreen}, so they show the view window of the model and
+ * only the shapes the spatial index finds near it are evaluated.
+ *
+ * <p>Rendering and encoding are pipelined: a rendering thread draws the frames in order into a
+ * bounded queue while the calling thread encodes them, so a frame is rendered while the one before
+ * it is encoded. The queue bounds how many rendered frames are held at once, so memory use does
+ * not grow with the length of the animation. Each instance of this class represents one export of
+ * one model.</p>
+ *
+ * <p>Animations use few flat colors, so the rendering thread also converts each frame to an
+ * indexed image whose palette is exactly the colors in the frame. This keeps the colors exact and
+ * spares the encoder from quantizing the frame, which would otherwise take most of the time. A
+ * frame with more colors than a GIF palette holds is left for the encoder to quantize.</p>
+ */
+public class EasyAnimatorViewGif implements EasyAnimatorView {
+
+  /**
+   * The number of rendered frames that may wait to be encoded when none is given.
+   */
+  public static final int DEFAULT_QUEUE_CAPACITY = 4;
+
+  private static final String GIF_FORMAT = "javax_imageio_gif_image_1.0";
+  private static final BufferedImage END = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+  private static final int PALETTE_SIZE = 256;
+
+  private final EasyAnimatorViewOffscreen renderer;
+  private final File outfile;
+  private final int firstTick;
+  private final int lastTick;
+  private final int queueCapacity;
+  private final boolean loop;
+
+  /**
+   * Constructor for EasyAnimatorViewGif that exports every tick of the animation as a GIF that
+   * loops forever.
+   *
+   * @param model   the model that will be exported.
+   * @param outfile the GIF file to write.
+   * @throws IllegalArgumentException if the model or file is null.
+   */
+  public EasyAnimatorViewGif(EasyAnimatorModelImpl model, String outfile)
+          throws IllegalArgumentException {
+    this(model, outfile, 0, model == null ? 0 : (int) Math.ceil(model.getDurationTicks()),
+            DEFAULT_QUEUE_CAPACITY, true);
+  }
+
+  /**
+   * Constructor for EasyAnimatorViewGif that exports a range of ticks.
+   *
+   * @param model         the model that will be exported.
+   * @param outfile       the GIF file to write.
+   * @param firstTick     the first tick to export.
+   * @param lastTick      the last tick to export, inclusive.
+   * @param queueCapacity the number of rendered frames that may wait to be encoded.
+   * @param loop          whether the GIF plays again from the start after the last frame.
+   * @throws IllegalArgumentException if the model or file is null, or the range or capacity is
+   *                                  invalid.
+   */
+  public EasyAnimatorViewGif(EasyAnimatorModelImpl model, String outfile, int firstTick,
+                             int lastTick, int queueCapacity, boolean loop)
+          throws IllegalArgumentException {
+    if (model == null || outfile == null) {
+      throw new IllegalArgumentException("Model and output file cannot be null.");
+    }
+    if (firstTick < 0 || lastTick < firstTick || queueCapacity < 1) {
+      throw new IllegalArgumentException("Invalid tick range or queue capacity.");
+    }
+    this.outfile = new File(outfile);
+    this.renderer = new EasyAnimatorViewOffscreen(model,
+            String.valueOf(this.outfile.getAbsoluteFile().getParent()), firstTick, lastTick, 1);
+    this.firstTick = firstTick;
+    this.lastTick = lastTick;
+    this.queueCapacity = queueCapacity;
+    this.loop = loop;
+  }
+
+  @Override
+  public void animate(int tempo) throws FileNotFoundException {
+    if (tempo <= 0) {
+      throw new IllegalArgumentException("Tempo must be positive.");
+    }
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+    BlockingQueue<BufferedImage> frames = new ArrayBlockingQueue<>(this.queueCapacity);
+    Throwable[] failure = new Throwable[1];
+    Thread rendering = new Thread(() -> this.render(frames, failure), "GIF renderer");
+    rendering.setDaemon(true);
+
+    this.outfile.delete();
+    try (ImageOutputStream output = ImageIO.createImageOutputStream(this.outfile)) {
+      if (output == null) {
+        throw new FileNotFoundException("Unable to write " + this.outfile);
+      }
+      writer.setOutput(output);
+      writer.prepareWriteSequence(null);
+      rendering.start();
+      int delay = Math.max(1, Math.round(100f / tempo));
+      IIOMetadata first = this.metadata(writer, delay, this.loop);
+      IIOMetadata rest = this.metadata(writer, delay, false);
+      boolean isFirst = true;
+      for (BufferedImage frame = frames.take(); frame != END; frame = frames.take()) {
+        writer.writeToSequence(new IIOImage(frame, null, isFirst ? first : rest), null);
+        isFirst = false;
+      }
+      writer.endWriteSequence();
+    } catch (FileNotFoundException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to write " + this.outfile, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while writing " + this.outfile, e);
+    } finally {
+      rendering.interrupt();
+      writer.dispose();
+    }
+    synchronized (failure) {
+      if (failure[0] != null) {
+        throw new IllegalStateException("Unable to render " + this.outfile, failure[0]);
+      }
+    }
+  }
+
+  /**
+   * Helper method run by the rendering thread to render every tick in order into the queue,
+   * followed by the end marker. A failure is kept for the encoding thread to report, and the end
+   * marker is still queued so the encoding thread stops waiting.
+   *
+   * @param frames  the queue of rendered frames.
+   * @param failure where the failure is kept, if rendering fails.
+   */
+  private void render(BlockingQueue<BufferedImage> frames, Throwable[] failure) {
+    try {
+      try {
+        for (int tick = this.firstTick; tick <= this.lastTick; tick++) {
+          frames.put(indexed(this.renderer.renderFrame(tick)));
+        }
+      } catch (RuntimeException | Error e) {
+        synchronized (failure) {
+          failure[0] = e;
+        }
+      }
+      frames.put(END);
+    } catch (InterruptedException e) {
+      // The encoding thread has stopped and no longer takes frames.
+    }
+  }
+
+  /**
+   * Helper method to convert a frame to an indexed image whose palette holds exactly the colors
+   * of the frame, looking colors up in a small open-addressing table.
+   *
+   * @param frame the rendered frame.
+   * @return the indexed frame, or the frame itself if it has more colors than a palette holds.
+   */
+  private static BufferedImage indexed(BufferedImage frame) {
+    int width = frame.getWidth();
+    int height = frame.getHeight();
+    int[] rgb = frame.getRGB(0, 0, width, height, null, 0, width);
+    int[] keys = new int[PALETTE_SIZE * 4];
+    byte[] slots = new byte[keys.length];
+    boolean[] used = new boolean[keys.length];
+    int[] palette = new int[PALETTE_SIZE];
+    int colors = 0;
+    byte[] pixels = new byte[rgb.length];
+    for (int p = 0; p < rgb.length; p++) {
+      int color = rgb[p] & 0xFFFFFF;
+      int slot = (color * 0x9E3779B1 >>> 22) & (keys.length - 1);
+      while (used[slot] && keys[slot] != color) {
+        slot = (slot + 1) & (keys.length - 1);
+      }
+      if (!used[slot]) {
+        if (colors == PALETTE_SIZE) {
+          return frame;
+        }
+        used[slot] = true;
+        keys[slot] = color;
+        slots[slot] = (byte) colors;
+        palette[colors++] = color;
+      }
+      pixels[p] = slots[slot];
+    }
+    IndexColorModel model = new IndexColorModel(8, Math.max(colors, 2), palette, 0, false, -1,
+            DataBufferByte.TYPE_BYTE);
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED,
+            model);
+    byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    System.arraycopy(pixels, 0, data, 0, pixels.length);
+    return image;
+  }
+
+  /**
+   * Helper method to build the metadata of a frame: how long it is shown and, for the first
+   * frame, whether the GIF loops.
+   *
+   * @param writer the GIF writer.
+   * @param delay  how long the frame is shown, in hundredths of a second.
+   * @param loop   whether to add the extension that makes the GIF loop forever.
+   * @return the metadata of the frame.
+   * @throws IOException if the metadata cannot be built.
+   */
+  private IIOMetadata metadata(ImageWriter writer, int delay, boolean loop) throws IOException {
+    IIOMetadata metadata = writer.getDefaultImageMetadata(
+            ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_INT_RGB), null);
+    IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(GIF_FORMAT);
+
+    IIOMetadataNode control = new IIOMetadataNode("GraphicControlExtension");
+    control.setAttribute("disposalMethod", "none");
+    control.setAttribute("userInputFlag", "FALSE");
+    control.setAttribute("transparentColorFlag", "FALSE");
+    control.setAttribute("delayTime", Integer.toString(delay));
+    control.setAttribute("transparentColorIndex", "0");
+    root.appendChild(control);
+
+    if (loop) {
+      IIOMetadataNode extensions = new IIOMetadataNode("ApplicationExtensions");
+      IIOMetadataNode netscape = new IIOMetadataNode("ApplicationExtension");
+      netscape.setAttribute("applicationID", "NETSCAPE");
+      netscape.setAttribute("authenticationCode", "2.0");
+      netscape.setUserObject(new byte[]{1, 0, 0});
+      extensions.appendChild(netscape);
+      root.appendChild(extensions);
+    }
+    metadata.setFromTree(GIF_FORMAT, root);
+    return metadata;
+  }
+}
@@ -0,0 +1,148 @@
+package view;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import javax.imageio.ImageIO;
+
+import model.EasyAnimatorModel;
+import model.EasyAnimatorModelImpl;
+import model.FrameBuffer;
+
+/**
+ * EasyAnimatorViewOffscreen class that implements EasyAnimatorView to rasterize the animation
+ * without a display. Each tick is rendered into its own image and written as a numbered PNG file,
+ * so it runs on headless machines. The image shows the view window of the model, with the top left
+ * corner of the window at the top left corner of the image. Ticks do not depend on each other, so
+ * they are rendered in parallel, and each rendering thread evaluates ticks into its own reusable
+ * frame buffer and copies shapes from its own cache of rasterized shapes, so the threads never
+ * wait for each other. Each instance of this class represents a batch rendering of one model.
+ */
+public class EasyAnimatorViewOffscreen implements EasyAnimatorView {
+
+  private final EasyAnimatorModel model;
+  private final String outdir;
+  private final Rectangle window;
+  private final int firstTick;
+  private final int lastTick;
+  private final int parallelism;
+  private final ThreadLocal<SpriteCache> sprites;
+  private final ThreadLocal<FrameBuffer> buffers;
+
+  /**
+   * Constructor for EasyAnimatorViewOffscreen that renders every tick of the animation, using one
+   * thread per available processor.
+   *
+   * @param model  the model that will be rendered.
+   * @param outdir the directory the PNG files are written to.
+   * @throws IllegalArgumentException if the model or directory is null.
+   */
+  public EasyAnimatorViewOffscreen(EasyAnimatorModelImpl model, String outdir)
+          throws IllegalArgumentException {
+    this(model, outdir, 0, model == null ? 0 : (int) Math.ceil(model.getDurationTicks()),
+            Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Constructor for EasyAnimatorViewOffscreen that renders a range of ticks.
+   *
+   * @param model       the model that will be rendered.
+   * @param outdir      the directory the PNG files are written to.
+   * @param firstTick   the first tick to render.
+   * @param lastTick    the last tick to render, inclusive.
+   * @param parallelism the number of threads rendering ticks.
+   * @throws IllegalArgumentException if the model or directory is null, or the range or
+   *                                  parallelism is invalid.
+   */
+  public EasyAnimatorViewOffscreen(EasyAnimatorModelImpl model, String outdir, int firstTick,
+                                   int lastTick, int parallelism)
+          throws IllegalArgumentException {
+    if (model == null || outdir == null) {
+      throw new IllegalArgumentException("Model and output directory cannot be null.");
+    }
+    if (firstTick < 0 || lastTick < firstTick || parallelism < 1) {
+      throw new IllegalArgumentException("Invalid tick range or parallelism.");
+    }
+    this.model = model;
+    this.outdir = outdir;
+    this.window = new Rectangle(model.view_window_x, model.view_window_y,
+            model.view_window_width, model.view_window_height);
+    this.firstTick = firstTick;
+    this.lastTick = lastTick;
+    this.parallelism = parallelism;
+    // The threads share the default budget, so rendering in parallel takes no more memory.
+    long budget = SpriteCache.DEFAULT_BUDGET_PIXELS / parallelism;
+    this.sprites = ThreadLocal.withInitial(() -> new SpriteCache(budget));
+    this.buffers = ThreadLocal.withInitial(FrameBuffer::new);
+  }
+
+  @Override
+  public void animate(int tempo) throws FileNotFoundException {
+    if (tempo == 0) {
+      throw new IllegalArgumentException("Tempo cannot be zero.");
+    }
+    File dir = new File(this.outdir);
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new FileNotFoundException("Unable to create directory " + this.outdir);
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+    try {
+      pool.submit(() -> IntStream.rangeClosed(this.firstTick, this.lastTick).parallel()
+              .forEach(tick -> writeFrame(dir, tick))).join();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Render the animation at the given tick into a new image. Only the shapes that may be in the
+   * view window at the tick are found, in the model's spatial index, and evaluated, so a window
+   * onto a small part of a large scene renders in time proportional to what it shows.
+   *
+   * @param tick the tick to render.
+   * @return an image of the animation at the tick.
+   * @throws IllegalArgumentException if the tick is negative.
+   */
+  public BufferedImage renderFrame(int tick) throws IllegalArgumentException {
+    if (tick < 0) {
+      throw new IllegalArgumentException("Tick cannot be negative.");
+    }
+    Rectangle w = this.window;
+    BufferedImage image = new BufferedImage(w.width, w.height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = image.createGraphics();
+    try {
+      g.setColor(Color.WHITE);
+      g.fillRect(0, 0, w.width, w.height);
+      FrameBuffer buffer = this.buffers.get();
+      this.model.stateAt(tick, w.x, w.y, w.width, w.height, buffer);
+      g.translate(-w.x, -w.y);
+      FramePainter.paint(g, buffer, null, w, this.sprites.get());
+    } finally {
+      g.dispose();
+    }
+    return image;
+  }
+
+  /**
+   * Helper method to render one tick and write it as a PNG file.
+   *
+   * @param dir  the directory to write to.
+   * @param tick the tick to render.
+   */
+  private void writeFrame(File dir, int tick) {
+    File file = new File(dir, String.format("frame-%05d.png", tick));
+    try {
+      ImageIO.write(this.renderFrame(tick), "png", file);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to write " + file, e);
+    }
+  }
+}
@@ -2,8 +2,14 @@ package view;
 
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import model.ColorChange;
+import model.CompiledTimeline;
 import model.EasyAnimatorModel;
 import model.EasyAnimatorModelImpl;
 import model.PositionChange;
@@ -14,39 +20,135 @@ import model.SizeChange;
  * EasyAnimatorViewSVG Class that represents the SVG view for a model. It implements the
  * EasyAnimatorView and acts as the spec print out for the SVG Definition of animation. Each
  * instance of this class represents an SVG view of an animation.
+ *
+ * <p>By default each move, size change and color change of a shape is written as its own element.
+ * In the compact format each animated attribute of a shape is written as one element listing its
+ * values over the whole animation, which is many times smaller for long animations.</p>
  */
 public class EasyAnimatorViewSVG implements EasyAnimatorView {
 
+  private static final String HEADER = "<?xml version=\"1.0\" standalone=\"no\"?>\n"
+          + "<!DOCTYPE svg PUBLIC \"-//W3C//DTD SVG 1.1//EN\" \n"
+          + "\t\"http://www.w3.org/Graphics/SVG/1.1/DTD/svg11.dtd\">\n"
+          + "<svg width=\"8cm\" height=\"3cm\"  viewBox=\"0 0 800 300\"\n"
+          + "\txmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\">\n"
+          + "\t<desc> Easy Animation </desc>\n";
+
+  private static final int PARALLEL_BATCH = 4096;
+
   private final EasyAnimatorModel model;
-  private String str;
   private String outfile;
+  private boolean echo;
+  private int parallelism;
+  private double from;
+  private double to;
+  private final int x;
+  private final int y;
+  private final int width;
+  private final int height;
+  private boolean compact;
+  private int precision;
 
   /**
    * EasyAnimatorViewSVG constructor that takes one parameter that is the model. Each instance
-   * represents an SVG animation from the model provided.
+   * represents an SVG animation from the model provided. The SVG is also echoed to the console.
    *
    * @param model the model to be animated.
    * @throws IllegalArgumentException if the model is null.
    */
   public EasyAnimatorViewSVG(EasyAnimatorModelImpl model, String outfile)
           throws IllegalArgumentException {
+    this(model, outfile, true, 1);
+  }
+
+  /**
+   * EasyAnimatorViewSVG constructor that also chooses whether the SVG is echoed to the console.
+   * The document is streamed to the output one shape at a time, so memory use does not grow with
+   * the size of the animation.
+   *
+   * @param model   the model to be animated.
+   * @param outfile the file to write the SVG to.
+   * @param echo    whether to also print the SVG to the console.
+   * @throws IllegalArgumentException if the model or file is null.
+   */
+  public EasyAnimatorViewSVG(EasyAnimatorModelImpl model, String outfile, boolean echo)
+          throws IllegalArgumentException {
+    this(model, outfile, echo, 1);
+  }
+
+  /**
+   * EasyAnimatorViewSVG constructor that also chooses how many threads generate the document.
+   * Shapes do not depend on each other, so with more than one thread the elements of the shapes
+   * are generated in parallel on a fork-join pool and then written in the original shape order.
+   * The output is identical to the output of a single thread.
+   *
+   * @param model       the model to be animated.
+   * @param outfile     the file to write the SVG to.
+   * @param echo        whether to also print the SVG to the console.
+   * @param parallelism the number of threads generating shape elements.
+   * @throws IllegalArgumentException if the model or file is null or parallelism is not positive.
+   */
+  public EasyAnimatorViewSVG(EasyAnimatorModelImpl model, String outfile, boolean echo,
+                             int parallelism) throws IllegalArgumentException {
+    this(model, outfile, echo, parallelism, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * EasyAnimatorViewSVG constructor that exports only the shapes that are in the view window of
+   * the model at some point from one time to another. The shapes are found in the model's index
+   * of where its shapes are over time, so exporting a short window of a long animation, or a small
+   * view window onto a large scene, does not look at every shape.
+   *
+   * @param model       the model to be animated.
+   * @param outfile     the file to write the SVG to.
+   * @param echo        whether to also print the SVG to the console.
+   * @param parallelism the number of threads generating shape elements.
+   * @param from        the start of the time to export.
+   * @param to          the end of the time to export.
+   * @throws IllegalArgumentException if the model or file is null, parallelism is not positive
+   *                                  or the time starts after it ends.
+   */
+  public EasyAnimatorViewSVG(EasyAnimatorModelImpl model, String outfile, boolean echo,
+                             int parallelism, double from, double to)
+          throws IllegalArgumentException {
     if (model == null || outfile == null) {
       throw new IllegalArgumentException("Model to be animated cannot be null.");
     }
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1.");
+    }
+    if (!(from <= to)) {
+      throw new IllegalArgumentException("Start of the time cannot be after its end.");
+    }
+    this.outfile = outfile;
+    this.model = model;
+    this.echo = echo;
+    this.parallelism = parallelism;
+    this.from = from;
+    this.to = to;
+    this.x = model.view_window_x;
+    this.y = model.view_window_y;
+    this.width = model.view_window_width;
+    this.height = model.view_window_height;
+  }
 
-    try {
-      this.outfile = outfile;
-
-      this.model = model;
-      str = "<?xml version=\"1.0\" standalone=\"no\"?>\n"
-              + "<!DOCTYPE svg PUBLIC \"-//W3C//DTD SVG 1.1//EN\" \n"
-              + "\t\"http://www.w3.org/Graphics/SVG/1.1/DTD/svg11.dtd\">\n"
-              + "<svg width=\"8cm\" height=\"3cm\"  viewBox=\"0 0 800 300\"\n"
-              + "\txmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\">\n"
-              + "\t<desc> Easy Animation </desc>\n";
-    } catch (Exception e) {
-      throw new IllegalArgumentException("Unable to locate file.");
+  /**
+   * Switch to the compact format, in which the motion of each attribute of a shape is one
+   * animate element with values and key times, the colors of the shape are one discrete animate
+   * element or a single set element, and its lifetime is a pair of set elements. Times are written
+   * in seconds at the tempo of the animation, and positions and sizes are rounded to a number of
+   * decimal places.
+   *
+   * @param precision the number of decimal places of positions and sizes.
+   * @throws IllegalArgumentException if the precision is negative or more than 6.
+   */
+  public void setCompact(int precision) throws IllegalArgumentException {
+    if (precision < 0 || precision > CompactSvgWriter.MAX_PRECISION) {
+      throw new IllegalArgumentException("Precision must be from 0 to "
+              + CompactSvgWriter.MAX_PRECISION + ".");
     }
+    this.compact = true;
+    this.precision = precision;
   }
 
   @Override
@@ -54,59 +156,193 @@ public class EasyAnimatorViewSVG implements EasyAnimatorView {
     if (tempo == 0) {
       throw new IllegalArgumentException("Tempo cannot be zero.");
     }
-
-    StringBuilder tmp = new StringBuilder();
-    for (Shape shape : model.getShapes()) {
-      tmp.append("\t<").append(shape.getType()).append(" x=\"").append(
-              shape.getReference().getX()).append("\"").append(
-              " y=\"").append(shape.getReference().getY()).append(
-              "\"").append(shape.getSpecsString()).append(
-              " fill= ").append(shape.getColor(0)).append(">\n");
-      for (PositionChange move : shape.getPositionChanges()) {
-        tmp.append("\t\t<animate attributeName=\"x\" attributeType=XML begin=\"").append(
-                move.getStartTime()).append("s\"").append(" dur= ").append(
-                move.getEndTime() - move.getStartTime()).append("s").append(
-                " from=").append(move.getFrom().getX()).append(
-                " to= ").append(move.getTo().getX()).append("/>\n");
-        tmp.append("\t\t<animate attributeName=\"y\" attributeType=XML begin=\"").append(
-                move.getStartTime()).append("s\"").append(" dur= ").append(
-                move.getEndTime() - move.getStartTime()).append("s").append(
-                " from=").append(move.getFrom().getY()).append(" to= ").append(
-                move.getTo().getY()).append("/>\n");
+    // A model that is being followed is only changed while its lock is held, so the shapes and
+    // their keyframes are read under it.
+    synchronized (this.model) {
+      if (this.compact) {
+        this.animateCompact(tempo);
+      } else {
+        this.animateVerbose();
       }
+    }
+  }
 
-      for (SizeChange resize : shape.getSizeChanges()) {
-        if (shape.getType().equals("rect")) {
-          tmp.append("\t\t<animate attributeName=\"width\" attributeType=\"XML\" begin=\"0s\" ")
-                  .append("dur=\"2s\" fill=\"freeze\" from=").append(
-                  shape.getSpecs().get(0)).append(" to= ").append(shape.getSpecs().get(0)
-                  * resize.getFactor()).append("/>\n");
-          tmp.append("\t\t<animate attributeName=\"height\" attributeType=\"XML\" begin=\"0s\" ")
-                  .append("dur=\"2s\" fill=\"freeze\" from=").append(shape.getSpecs().get(1))
-                  .append(" to= ").append(shape.getSpecs().get(1) * resize.getFactor())
-                  .append("/>\n");
+  /**
+   * Helper method to write the document with one element per keyframe of each shape.
+   *
+   * @throws FileNotFoundException if the file cannot be written.
+   */
+  private void animateVerbose() throws FileNotFoundException {
+    List<Shape> shapes = this.from == Double.NEGATIVE_INFINITY
+            && this.to == Double.POSITIVE_INFINITY ? model.getExactShapes()
+            : model.getExactShapes(this.from, this.to, this.x, this.y, this.width, this.height);
+    try (PrintWriter out = new PrintWriter(outfile)) {
+      emit(out, HEADER);
+      if (this.parallelism > 1) {
+        emitShapesParallel(out, shapes.size(), i -> shapeFragment(shapes.get(i)));
+      } else {
+        StringBuilder tmp = new StringBuilder();
+        for (Shape shape : shapes) {
+          tmp.setLength(0);
+          appendShape(shape, tmp);
+          emit(out, tmp);
         }
-        if (shape.getType().equals("circle")) {
-          tmp.append("\t\t<animate attributeName=\" radius\" attributeType=\"XML\" begin=\"0s\" ")
-                  .append("dur=\"2s\" fill=\"freeze\" from=").append(shape.getSpecs().get(0))
-                  .append(" to= ").append(shape.getSpecs().get(0) * resize.getFactor())
-                  .append("/>\n");
+      }
+      emit(out, "</svg>");
+      out.println();
+    }
+  }
+
+  /**
+   * Helper method to write the document in the compact format. Values are read from the compiled
+   * keyframes of the model, whose shapes are numbered the same as the exact shapes.
+   *
+   * @param tempo the speed of the animation in ticks per second.
+   * @throws FileNotFoundException if the file cannot be written.
+   * @throws IllegalArgumentException if the tempo is negative.
+   */
+  private void animateCompact(int tempo) throws FileNotFoundException {
+    if (tempo < 0) {
+      throw new IllegalArgumentException("Tempo cannot be negative.");
+    }
+    CompiledTimeline timeline = model.compile();
+    List<Shape> shapes = model.getExactShapes();
+    int[] indexes = new int[timeline.getShapeCount()];
+    int count;
+    if (this.from == Double.NEGATIVE_INFINITY && this.to == Double.POSITIVE_INFINITY) {
+      count = indexes.length;
+      for (int i = 0; i < count; i++) {
+        indexes[i] = i;
+      }
+    } else {
+      count = timeline.getSpatialIndex().shapesIn(this.from, this.to, this.x, this.y,
+              this.width, this.height, indexes);
+    }
+    CompactSvgWriter writer = new CompactSvgWriter(timeline, tempo, this.precision);
+
+    try (PrintWriter out = new PrintWriter(outfile)) {
+      StringBuilder tmp = new StringBuilder();
+      CompactSvgWriter.appendHeader(this.x, this.y, this.width, this.height, tmp);
+      emit(out, tmp);
+      if (this.parallelism > 1) {
+        emitShapesParallel(out, count, i -> {
+          StringBuilder fragment = new StringBuilder();
+          writer.appendShape(indexes[i], shapes.get(indexes[i]), fragment);
+          return fragment.toString();
+        });
+      } else {
+        for (int i = 0; i < count; i++) {
+          tmp.setLength(0);
+          writer.appendShape(indexes[i], shapes.get(indexes[i]), tmp);
+          emit(out, tmp);
         }
       }
+      emit(out, "</svg>");
+      out.println();
+    }
+  }
 
-      for (ColorChange colorChange : shape.getColorChanges()) {
-        tmp.append("\t\t<animate attributeName=\"fill\" attributeType=\"CSS\"")
-                .append(" to=\"").append(colorChange.getColor()).append("\" ")
-                .append("begin=\"").append(colorChange.getTime()).append("\"/>\n");
+  /**
+   * Helper method to generate the shape elements on a fork-join pool. Shapes are processed in
+   * batches so only one batch of elements is held in memory, and each batch is written in shape
+   * order.
+   *
+   * @param out      the file being written.
+   * @param count    the number of shapes to write.
+   * @param fragment generates the element of the shape at a position.
+   */
+  private void emitShapesParallel(PrintWriter out, int count, IntFunction<String> fragment) {
+    ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+    try {
+      for (int from = 0; from < count; from += PARALLEL_BATCH) {
+        IntStream batch = IntStream.range(from, Math.min(count, from + PARALLEL_BATCH));
+        List<String> fragments = pool.submit(() -> batch.parallel()
+                .mapToObj(fragment)
+                .collect(Collectors.toList())).join();
+        for (String element : fragments) {
+          emit(out, element);
+        }
       }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Helper method to generate the SVG element of one shape, with its animations.
+   *
+   * @param shape the shape to describe.
+   * @return the element of the shape.
+   */
+  private String shapeFragment(Shape shape) {
+    StringBuilder tmp = new StringBuilder();
+    appendShape(shape, tmp);
+    return tmp.toString();
+  }
 
-      tmp.append("\t</").append(shape.getType()).append(">\n");
+  /**
+   * Helper method to write a piece of the document to the file and, if echo is on, the console.
+   *
+   * @param out  the file being written.
+   * @param text the piece of the document.
+   */
+  private void emit(PrintWriter out, CharSequence text) {
+    out.append(text);
+    if (this.echo) {
+      System.out.print(text);
     }
-    str = str + tmp + "</svg>";
-    System.out.print(str);
+  }
 
-    try (PrintWriter out = new PrintWriter(outfile)) {
-      out.println(str);
+  /**
+   * Helper method to append the SVG element of one shape, with its animations, to a buffer.
+   *
+   * @param shape the shape to describe.
+   * @param tmp   the buffer to append to.
+   */
+  private void appendShape(Shape shape, StringBuilder tmp) {
+    tmp.append("\t<").append(shape.getType()).append(" x=\"").append(
+            shape.getReference().getX()).append("\"").append(
+            " y=\"").append(shape.getReference().getY()).append(
+            "\"").append(shape.getSpecsString()).append(
+            " fill= ").append(shape.getColor(0)).append(">\n");
+    for (PositionChange move : shape.getPositionChanges()) {
+      tmp.append("\t\t<animate attributeName=\"x\" attributeType=XML begin=\"").append(
+              move.getStartTime()).append("s\"").append(" dur= ").append(
+              move.getEndTime() - move.getStartTime()).append("s").append(
+              " from=").append(move.getFromX()).append(
+              " to= ").append(move.getToX()).append("/>\n");
+      tmp.append("\t\t<animate attributeName=\"y\" attributeType=XML begin=\"").append(
+              move.getStartTime()).append("s\"").append(" dur= ").append(
+              move.getEndTime() - move.getStartTime()).append("s").append(
+              " from=").append(move.getFromY()).append(" to= ").append(
+              move.getToY()).append("/>\n");
     }
+
+    for (SizeChange resize : shape.getSizeChanges()) {
+      if (shape.getType().equals("rect")) {
+        tmp.append("\t\t<animate attributeName=\"width\" attributeType=\"XML\" begin=\"0s\" ")
+                .append("dur=\"2s\" fill=\"freeze\" from=").append(
+                shape.getSpecs().get(0)).append(" to= ").append(shape.getSpecs().get(0)
+                * resize.getFactor()).append("/>\n");
+        tmp.append("\t\t<animate attributeName=\"height\" attributeType=\"XML\" begin=\"0s\" ")
+                .append("dur=\"2s\" fill=\"freeze\" from=").append(shape.getSpecs().get(1))
+                .append(" to= ").append(shape.getSpecs().get(1) * resize.getFactor())
+                .append("/>\n");
+      }
+      if (shape.getType().equals("circle")) {
+        tmp.append("\t\t<animate attributeName=\" radius\" attributeType=\"XML\" begin=\"0s\" ")
+                .append("dur=\"2s\" fill=\"freeze\" from=").append(shape.getSpecs().get(0))
+                .append(" to= ").append(shape.getSpecs().get(0) * resize.getFactor())
+                .append("/>\n");
+      }
+    }
+
+    for (ColorChange colorChange : shape.getColorChanges()) {
+      tmp.append("\t\t<animate attributeName=\"fill\" attributeType=\"CSS\"")
+              .append(" to=\"").append(colorChange.getColor()).append("\" ")
+              .append("begin=\"").append(colorChange.getTime()).append("\"/>\n");
+    }
+
+    tmp.append("\t</").append(shape.getType()).append(">\n");
   }
 }
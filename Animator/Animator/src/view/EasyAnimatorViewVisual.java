@@ -69,10 +69,7 @@ public class EasyAnimatorViewVisual extends JFrame implements EasyAnimatorView {
     if (tick < 0) {
       throw new IllegalArgumentException("Tick cannot be negative.");
     }
-    easyAnimatorPanel.removeAll();
-    easyAnimatorPanel.setCurrentTick(tick);
-    easyAnimatorPanel.revalidate();
-    easyAnimatorPanel.repaint();
+    easyAnimatorPanel.showTick(tick);
     //System.out.println(tick);
   }
 }
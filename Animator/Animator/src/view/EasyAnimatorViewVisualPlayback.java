@@ -8,6 +8,7 @@ import javax.swing.JOptionPane;
 import javax.swing.Timer;
 
 import model.EasyAnimatorModelImpl;
+import util.AnimatorMetrics;
 
 
 /**
@@ -19,16 +20,17 @@ public class EasyAnimatorViewVisualPlayback extends JFrame
         implements EasyAnimatorView, ActionListener {
 
   private final EasyAnimatorModelImpl orig_model;
+  private static final int REFRESH_MILLIS = 15;
+
   int tick;
-  int tempo;
-  int changing_speed;
-  int looping;
   int window_x;
   int window_y;
   int window_width;
   int window_height;
+  private final FrameCache frameCache;
   private EasyAnimatorPanel easyAnimatorPanel;
-  private Timer timer;
+  private final PlaybackClock clock;
+  private final Timer timer;
 
   /**
    * Constructor for EasyAnimatorViewVisual that takes one parameter and throws an exception. Each
@@ -39,6 +41,20 @@ public class EasyAnimatorViewVisualPlayback extends JFrame
    */
   public EasyAnimatorViewVisualPlayback(EasyAnimatorModelImpl model)
           throws IllegalArgumentException {
+    this(model, FrameCache.DEFAULT_BUDGET_BYTES);
+  }
+
+  /**
+   * Constructor for EasyAnimatorViewVisual that also takes the memory budget for the frames kept
+   * while playing. Frames within the budget are computed once, so looping, restarting and going
+   * back to an earlier tick reuse them instead of computing them again.
+   *
+   * @param model            the model that will be animated.
+   * @param frameCacheBudget the most memory the cached frames may use, in bytes.
+   * @throws IllegalArgumentException if the model is null or the budget is negative.
+   */
+  public EasyAnimatorViewVisualPlayback(EasyAnimatorModelImpl model, long frameCacheBudget)
+          throws IllegalArgumentException {
     super("Easy Animation");
     if (model == null) {
       throw new IllegalArgumentException("Model cannot be null.");
@@ -58,89 +74,74 @@ public class EasyAnimatorViewVisualPlayback extends JFrame
 
 
     setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+    this.frameCache = new FrameCache(frameCacheBudget);
     this.easyAnimatorPanel = new EasyAnimatorPanel(model);
+    this.easyAnimatorPanel.setFrameCache(this.frameCache);
+    this.easyAnimatorPanel.setSpriteCache(new SpriteCache());
+    this.easyAnimatorPanel.setRenderInBackground(true);
     add(this.easyAnimatorPanel);
     pack();
-    this.tempo = 0;
-    this.changing_speed = 0;
-    this.looping = 0;
+    this.tick = -1;
+    this.clock = new PlaybackClock(1, this.orig_model.getDurationTicks());
+    this.timer = new Timer(REFRESH_MILLIS, this);
   }
 
 
   @Override
   public void animate(int tempo) throws IllegalArgumentException {
-    if (tempo == 0) {
-      throw new IllegalArgumentException("Tempo cannot be zero.");
-    }
-
-    this.tempo = tempo;
-    //if ((this.changing_speed == 1)) {
-    // this.tempo = 1;
-    // System.out.println("Tempo must be greater than zero.");
-    //}
-
-    setVisible(true);
-    int delay = 1000 / tempo;
-    ActionListener listener = this;
-
-
-    this.timer = new Timer(delay, listener);
+    this.animate((double) tempo);
+  }
 
-    if (this.changing_speed == 1) {
-      this.timer.start();
-      this.changing_speed = 0;
+  /**
+   * Begin the animation at a tempo that may be fractional. Playback starts when Start is chosen
+   * in the controls.
+   *
+   * @param tempo the speed of playback in ticks per second.
+   * @throws IllegalArgumentException if the tempo is not positive.
+   */
+  public void animate(double tempo) throws IllegalArgumentException {
+    if (!(tempo > 0)) {
+      throw new IllegalArgumentException("Tempo must be positive.");
     }
-
+    this.clock.setTempo(tempo);
+    setVisible(true);
     activatePlayback();
-
   }
 
   private void stopLoop() {
-    this.looping = 0;
+    this.clock.setLooping(false);
   }
 
+  /**
+   * Method for looping the animation. It restarts, and from then on goes back to the first tick
+   * after the last one until the loop is stopped.
+   */
   private void loop() {
-
     restart();
-    this.looping = 1;
-    while (true) {
-      if (this.looping == 1) {
-        if (this.tick == this.orig_model.getDurationTicks()) {
-          restart();
-        }
-      }
-    }
-
+    this.clock.setLooping(true);
   }
 
   /**
-   * Method to increase the speed of the animation.
+   * Method to increase the speed of the animation by one tick per second.
    */
   private void increaseSpeed() {
-    this.timer.stop();
-    this.changing_speed = 1;
-    this.tempo = this.tempo + 1;
-    animate(this.tempo + 1);
+    this.clock.setTempo(this.clock.getTempo() + 1);
   }
 
   /**
-   * Method to decrease the speed of the animation.
+   * Method to decrease the speed of the animation by one tick per second, or to half its speed
+   * once it plays at one tick per second or less.
    */
   private void decreaseSpeed() {
-    this.timer.stop();
-    this.changing_speed = 1;
-    if (this.tempo == 0) {
-      System.out.println("Tempo must be greater than 0.");
-    } else {
-      this.tempo = this.tempo - 1;
-      animate(this.tempo - 1);
-    }
+    double tempo = this.clock.getTempo();
+    this.clock.setTempo(tempo > 1 ? tempo - 1 : tempo / 2);
   }
 
   /**
    * Method for starting the animation.
    */
   private void start() {
+    this.clock.start();
     this.timer.start();
   }
 
@@ -148,6 +149,7 @@ public class EasyAnimatorViewVisualPlayback extends JFrame
    * Method for pausing the animation.
    */
   private void pause() {
+    this.clock.pause();
     this.timer.stop();
   }
 
@@ -155,20 +157,15 @@ public class EasyAnimatorViewVisualPlayback extends JFrame
    * Method for resuming the animation after pausing.
    */
   private void resume() {
-    this.timer.start();
+    this.start();
   }
 
   /**
    * Method for restarting the animation (from the beginning).
    */
   private void restart() {
-    this.tick = 0;
-    this.easyAnimatorPanel = new EasyAnimatorPanel(this.orig_model);
-    add(this.easyAnimatorPanel);
-    repaint();
-    pack();
-    this.timer.start();
-    activatePlayback();
+    this.clock.restart();
+    this.start();
   }
 
 
@@ -179,21 +176,33 @@ public class EasyAnimatorViewVisualPlayback extends JFrame
    */
   private void onTick(int tick) {
 
-    easyAnimatorPanel.removeAll();
-    easyAnimatorPanel.setCurrentTick(tick);
-    easyAnimatorPanel.repaint();
-    easyAnimatorPanel.validate();
-    System.out.println(tick);
+    easyAnimatorPanel.showTick(tick);
     //System.out.println(this.orig_model.describe());
   }
 
+  /**
+   * Show the tick the clock has reached. The timer fires at screen refresh rate rather than once
+   * per tick, so ticks that pass between two refreshes are dropped and nothing is drawn when the
+   * tick has not changed. The length of the animation is read from the model each time, so an
+   * animation that grows while it plays, such as a followed file, plays to its new end.
+   *
+   * @param e the timer event.
+   */
   @Override
   public void actionPerformed(ActionEvent e) {
     if (e == null) {
       throw new IllegalArgumentException("Action event is null");
     }
-    onTick(this.tick);
-    this.tick++;
+    this.clock.setDuration(this.easyAnimatorPanel.getModel().getDurationTicks());
+    int frame = this.clock.getFrame();
+    if (frame != this.tick) {
+      if (frame > this.tick + 1 && this.tick >= 0) {
+        AnimatorMetrics.add(AnimatorMetrics.Counter.TICKS_SKIPPED, frame - this.tick - 1L);
+      }
+      AnimatorMetrics.increment(AnimatorMetrics.Counter.FRAMES_SHOWN);
+      this.tick = frame;
+      onTick(frame);
+    }
   }
 
   private void activatePlayback() {
@@ -0,0 +1,151 @@
+package view;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import model.Frame;
+
+/**
+ * This class represents a bounded cache of computed frames keyed by tick. When the frames held
+ * would use more than the memory budget, the least recently used frames are evicted first, so an
+ * animation that loops, restarts or is scrubbed backwards is served from the cache instead of being
+ * recomputed as long as it fits in the budget. The memory used by a frame is an estimate based on
+ * the number of shapes in it. All methods are synchronized, so one cache can be shared between
+ * threads.
+ */
+public final class FrameCache {
+
+  /**
+   * The budget used when none is given, in bytes.
+   */
+  public static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024;
+
+  private static final long FRAME_OVERHEAD_BYTES = 64;
+  private static final long SHAPE_STATE_BYTES = 96;
+
+  private final long budgetBytes;
+  private final LinkedHashMap<Integer, Frame> frames;
+  private long usedBytes;
+  private long hits;
+  private long misses;
+
+  /**
+   * Constructor for FrameCache with the default memory budget.
+   */
+  public FrameCache() {
+    this(DEFAULT_BUDGET_BYTES);
+  }
+
+  /**
+   * Constructor for FrameCache that takes the memory budget of the cache.
+   *
+   * @param budgetBytes the most memory the cached frames may use, in bytes.
+   * @throws IllegalArgumentException if the budget is negative.
+   */
+  public FrameCache(long budgetBytes) throws IllegalArgumentException {
+    if (budgetBytes < 0) {
+      throw new IllegalArgumentException("Budget cannot be negative.");
+    }
+    this.budgetBytes = budgetBytes;
+    this.frames = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Get the frame cached for the given tick, marking it as the most recently used.
+   *
+   * @param tick the tick of the frame.
+   * @return the cached frame, or null if the tick is not in the cache.
+   */
+  public synchronized Frame get(int tick) {
+    Frame frame = this.frames.get(tick);
+    if (frame == null) {
+      this.misses++;
+    } else {
+      this.hits++;
+    }
+    return frame;
+  }
+
+  /**
+   * Cache the frame for the given tick, evicting the least recently used frames until the cache
+   * fits in its budget again. A frame larger than the whole budget is not cached.
+   *
+   * @param tick  the tick of the frame.
+   * @param frame the frame to cache.
+   * @throws IllegalArgumentException if the frame is null.
+   */
+  public synchronized void put(int tick, Frame frame) throws IllegalArgumentException {
+    if (frame == null) {
+      throw new IllegalArgumentException("Frame cannot be null.");
+    }
+    long size = sizeOf(frame);
+    if (size > this.budgetBytes) {
+      return;
+    }
+    Frame previous = this.frames.put(tick, frame);
+    if (previous != null) {
+      this.usedBytes -= sizeOf(previous);
+    }
+    this.usedBytes += size;
+    Iterator<Map.Entry<Integer, Frame>> eldest = this.frames.entrySet().iterator();
+    while (this.usedBytes > this.budgetBytes) {
+      this.usedBytes -= sizeOf(eldest.next().getValue());
+      eldest.remove();
+    }
+  }
+
+  /**
+   * Remove every frame from the cache, for example after the animation has changed.
+   */
+  public synchronized void clear() {
+    this.frames.clear();
+    this.usedBytes = 0;
+  }
+
+  /**
+   * Get the number of frames in the cache.
+   *
+   * @return the number of cached frames.
+   */
+  public synchronized int size() {
+    return this.frames.size();
+  }
+
+  /**
+   * Get the estimated memory used by the cached frames.
+   *
+   * @return the memory used in bytes.
+   */
+  public synchronized long getUsedBytes() {
+    return this.usedBytes;
+  }
+
+  /**
+   * Get the number of lookups that found their frame in the cache.
+   *
+   * @return the number of hits.
+   */
+  public synchronized long getHits() {
+    return this.hits;
+  }
+
+  /**
+   * Get the number of lookups that did not find their frame in the cache.
+   *
+   * @return the number of misses.
+   */
+  public synchronized long getMisses() {
+    return this.misses;
+  }
+
+  /**
+   * Helper method to estimate the memory used by a frame.
+   *
+   * @param frame the frame.
+   * @return the estimated size of the frame in bytes.
+   */
+  private static long sizeOf(Frame frame) {
+    return FRAME_OVERHEAD_BYTES + SHAPE_STATE_BYTES * frame.getShapeStates().size();
+  }
+}
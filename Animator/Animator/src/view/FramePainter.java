@@ -0,0 +1,183 @@
+package view;
+
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.util.Map;
+
+import model.Frame;
+import model.FrameBuffer;
+import model.ShapeState;
+
+/**
+ * Helper that draws a computed frame of the animation. It is shared by the on-screen panel and the
+ * offscreen renderers so every view draws a frame the same way.
+ */
+final class FramePainter {
+
+  private FramePainter() {
+  }
+
+  /**
+   * Draw every shape of the frame that exists at the frame's time and has not been hidden.
+   *
+   * @param g             the graphics to draw with.
+   * @param frame         the frame to draw.
+   * @param visibleShapes visibility of each shape by name, or null to draw every shape.
+   * @throws IllegalArgumentException if the graphics or frame is null.
+   */
+  static void paint(Graphics g, Frame frame, Map<String, Boolean> visibleShapes)
+          throws IllegalArgumentException {
+    if (g == null || frame == null) {
+      throw new IllegalArgumentException("Graphics and frame cannot be null.");
+    }
+    for (ShapeState state : frame.getShapeStates()) {
+      if (isShown(state, visibleShapes)) {
+        state.draw(g);
+      }
+    }
+  }
+
+  /**
+   * Draw the shapes of a frame buffer that are visible and touch the given region. A buffer
+   * computed for a region holds only the shapes the model's spatial index found near it, and each
+   * of those is still tested against the exact bounds of the region, so drawing does not allocate.
+   * The region is in the coordinates of the animation, as are the shapes.
+   *
+   * @param g             the graphics to draw with.
+   * @param buffer        the frame to draw.
+   * @param visibleShapes visibility of each shape by name, or null to draw every shape.
+   * @param region        the region to draw, or null to draw everywhere.
+   * @param sprites       the cache to copy shapes from, or null to draw every shape directly.
+   * @throws IllegalArgumentException if the graphics or buffer is null.
+   */
+  static void paint(Graphics g, FrameBuffer buffer, Map<String, Boolean> visibleShapes,
+                    Rectangle region, SpriteCache sprites) throws IllegalArgumentException {
+    if (g == null || buffer == null) {
+      throw new IllegalArgumentException("Graphics and frame cannot be null.");
+    }
+    SpriteCache blitter = sprites != null && SpriteCache.canBlit(g) ? sprites : null;
+    for (int i = 0; i < buffer.size(); i++) {
+      if (!isShown(buffer, i, visibleShapes) || (region != null && !touches(buffer, i, region))) {
+        continue;
+      }
+      if (blitter == null) {
+        buffer.draw(i, g);
+      } else {
+        blitter.draw(g, buffer.getType(i), buffer.getX(i), buffer.getY(i), buffer.getWidth(i),
+                buffer.getHeight(i), buffer.getColor(i));
+      }
+    }
+  }
+
+  /**
+   * Find the region that differs between two frames: the union of the old and new bounds of the
+   * shapes that changed, appeared or disappeared. Both frames list the shapes that exist at their
+   * time in drawing order, so they are walked side by side and each shape is matched with itself.
+   * The region is in the coordinates of the animation.
+   *
+   * @param before        the frame drawn.
+   * @param after         the frame to draw.
+   * @param visibleShapes visibility of each shape by name, or null if no shape is hidden.
+   * @param region        where the region is written; left empty if nothing differs.
+   * @return true if the frames differ anywhere.
+   */
+  static boolean changes(FrameBuffer before, FrameBuffer after, Map<String, Boolean> visibleShapes,
+                         Rectangle region) {
+    region.setBounds(0, 0, -1, -1);
+    int i = 0;
+    int j = 0;
+    while (i < before.size() || j < after.size()) {
+      int old = i < before.size() ? before.getShape(i) : Integer.MAX_VALUE;
+      int now = j < after.size() ? after.getShape(j) : Integer.MAX_VALUE;
+      if (old == now) {
+        if (!after.sameAs(j, before, i)) {
+          grow(region, before, i, visibleShapes);
+          grow(region, after, j, visibleShapes);
+        }
+        i++;
+        j++;
+      } else if (old < now) {
+        grow(region, before, i++, visibleShapes);
+      } else {
+        grow(region, after, j++, visibleShapes);
+      }
+    }
+    if (region.width <= 0 || region.height <= 0) {
+      region.setBounds(0, 0, 0, 0);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Helper method to grow a region by the bounds of a shape, if it is drawn. A region with a
+   * negative width is empty.
+   *
+   * @param region        the region to grow.
+   * @param buffer        the frame holding the shape.
+   * @param i             the index of the shape in the frame.
+   * @param visibleShapes visibility of each shape by name, or null if no shape is hidden.
+   */
+  private static void grow(Rectangle region, FrameBuffer buffer, int i,
+                           Map<String, Boolean> visibleShapes) {
+    if (!isShown(buffer, i, visibleShapes)) {
+      return;
+    }
+    int left = (int) buffer.getX(i);
+    int top = (int) buffer.getY(i);
+    int right = left + (int) buffer.getWidth(i) + 1;
+    int bottom = top + (int) buffer.getHeight(i) + 1;
+    if (region.width >= 0) {
+      right = Math.max(right, region.x + region.width);
+      bottom = Math.max(bottom, region.y + region.height);
+      left = Math.min(left, region.x);
+      top = Math.min(top, region.y);
+    }
+    region.setBounds(left, top, right - left, bottom - top);
+  }
+
+  /**
+   * Whether a shape state is drawn: the shape exists and has not been hidden.
+   *
+   * @param state         the state of the shape.
+   * @param visibleShapes visibility of each shape by name, or null if no shape is hidden. Shapes
+   *                      missing from the map, such as shapes added while playing, are shown.
+   * @return true if the shape is drawn.
+   */
+  static boolean isShown(ShapeState state, Map<String, Boolean> visibleShapes) {
+    return state.isVisible() && (visibleShapes == null
+            || !Boolean.FALSE.equals(visibleShapes.get(state.getName())));
+  }
+
+  /**
+   * Whether a shape in a frame buffer is drawn: the shape exists and has not been hidden.
+   *
+   * @param buffer        the frame holding the shape.
+   * @param i             the index of the shape in drawing order.
+   * @param visibleShapes visibility of each shape by name, or null if no shape is hidden. Shapes
+   *                      missing from the map, such as shapes added while playing, are shown.
+   * @return true if the shape is drawn.
+   */
+  static boolean isShown(FrameBuffer buffer, int i, Map<String, Boolean> visibleShapes) {
+    return buffer.isVisible(i) && (visibleShapes == null
+            || !Boolean.FALSE.equals(visibleShapes.get(buffer.getName(i))));
+  }
+
+  /**
+   * Whether the pixels a shape in a frame buffer covers intersect a region. The outline is drawn
+   * one pixel past the width and height, so the bounds include it.
+   *
+   * @param buffer the frame holding the shape.
+   * @param i      the index of the shape in drawing order.
+   * @param region the region.
+   * @return true if the shape touches the region.
+   */
+  static boolean touches(FrameBuffer buffer, int i, Rectangle region) {
+    int left = (int) buffer.getX(i);
+    int top = (int) buffer.getY(i);
+    int right = left + (int) buffer.getWidth(i) + 1;
+    int bottom = top + (int) buffer.getHeight(i) + 1;
+    return left < region.x + region.width && region.x < right
+            && top < region.y + region.height && region.y < bottom;
+  }
+}
@@ -0,0 +1,167 @@
+package view;
+
+/**
+ * This class represents the clock of an animation being played. The current tick is derived from
+ * the wall-clock time elapsed since the clock was last started, so playback stays in step with
+ * real time however often the clock is read: a reader that falls behind skips straight to the
+ * current tick instead of replaying the ticks it missed. The tempo, in ticks per second, may be
+ * fractional, and changing it while playing continues from the current tick. A looping clock
+ * wraps back to the first tick after the last one.
+ */
+public final class PlaybackClock {
+
+  private static final double NANOS_PER_SECOND = 1e9;
+
+  private double duration;
+  private double tempo;
+  private boolean running;
+  private boolean looping;
+  private double anchorTick;
+  private long anchorNanos;
+
+  /**
+   * Constructor for PlaybackClock that takes the tempo and the length of the animation. The
+   * clock starts paused at the first tick.
+   *
+   * @param tempo    the speed of playback in ticks per second.
+   * @param duration the last tick of the animation.
+   * @throws IllegalArgumentException if the tempo is not positive or the duration is negative.
+   */
+  public PlaybackClock(double tempo, double duration) throws IllegalArgumentException {
+    if (!(tempo > 0) || duration < 0) {
+      throw new IllegalArgumentException("Tempo must be positive and duration not negative.");
+    }
+    this.tempo = tempo;
+    this.duration = duration;
+  }
+
+  /**
+   * Get the current tick. While the clock runs this advances with real time; a clock that is not
+   * looping stops at the last tick.
+   *
+   * @return the current tick, which may be fractional.
+   */
+  public synchronized double getTick() {
+    double tick = this.anchorTick;
+    if (this.running) {
+      tick += (System.nanoTime() - this.anchorNanos) / NANOS_PER_SECOND * this.tempo;
+    }
+    if (!this.looping) {
+      return Math.min(tick, Math.max(this.duration, this.anchorTick));
+    }
+    return tick % (this.duration + 1);
+  }
+
+  /**
+   * Get the current tick rounded down to a whole tick, which is the frame to show.
+   *
+   * @return the current whole tick.
+   */
+  public int getFrame() {
+    return (int) this.getTick();
+  }
+
+  /**
+   * Start or resume the clock from the current tick. Starting a running clock has no effect.
+   */
+  public synchronized void start() {
+    if (!this.running) {
+      this.anchorNanos = System.nanoTime();
+      this.running = true;
+    }
+  }
+
+  /**
+   * Pause the clock at the current tick.
+   */
+  public synchronized void pause() {
+    this.reanchor();
+    this.running = false;
+  }
+
+  /**
+   * Go back to the first tick, keeping the clock running or paused as it was.
+   */
+  public synchronized void restart() {
+    this.anchorTick = 0;
+    this.anchorNanos = System.nanoTime();
+  }
+
+  /**
+   * Whether the clock is running.
+   *
+   * @return true if the clock is running.
+   */
+  public synchronized boolean isRunning() {
+    return this.running;
+  }
+
+  /**
+   * Getter for the tempo of the clock.
+   *
+   * @return the speed of playback in ticks per second.
+   */
+  public synchronized double getTempo() {
+    return this.tempo;
+  }
+
+  /**
+   * Change the tempo of the clock, continuing from the current tick.
+   *
+   * @param tempo the speed of playback in ticks per second.
+   * @throws IllegalArgumentException if the tempo is not positive.
+   */
+  public synchronized void setTempo(double tempo) throws IllegalArgumentException {
+    if (!(tempo > 0)) {
+      throw new IllegalArgumentException("Tempo must be positive.");
+    }
+    this.reanchor();
+    this.tempo = tempo;
+  }
+
+  /**
+   * Change the length of the animation, continuing from the current tick. An animation that is
+   * still being written grows while it plays, and a clock that stopped at the old last tick
+   * carries on from there.
+   *
+   * @param duration the last tick of the animation.
+   * @throws IllegalArgumentException if the duration is negative.
+   */
+  public synchronized void setDuration(double duration) throws IllegalArgumentException {
+    if (duration < 0) {
+      throw new IllegalArgumentException("Duration cannot be negative.");
+    }
+    if (duration != this.duration) {
+      this.reanchor();
+      this.duration = duration;
+    }
+  }
+
+  /**
+   * Set whether the clock wraps back to the first tick after the last one.
+   *
+   * @param looping true to loop.
+   */
+  public synchronized void setLooping(boolean looping) {
+    this.reanchor();
+    this.looping = looping;
+  }
+
+  /**
+   * Whether the clock wraps back to the first tick after the last one.
+   *
+   * @return true if the clock loops.
+   */
+  public synchronized boolean isLooping() {
+    return this.looping;
+  }
+
+  /**
+   * Helper method to fold the time elapsed so far into the anchor tick, so a change of tempo or
+   * mode only affects the time after it.
+   */
+  private void reanchor() {
+    this.anchorTick = this.getTick();
+    this.anchorNanos = System.nanoTime();
+  }
+}
@@ -0,0 +1,287 @@
+package view;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import model.FrameBuffer;
+import util.AnimatorMetrics;
+
+/**
+ * Worker that computes and draws the frames of a panel on its own thread, so the Event Dispatch
+ * Thread only copies finished images to the screen. While the screen shows one frame, the worker
+ * computes the next one into a back buffer and rasterizes it into an image.
+ *
+ * <p>Finished images are handed over with triple buffering. The worker draws into the back image,
+ * the Event Dispatch Thread shows the front image, and the most recently finished image waits in
+ * between. Each side exchanges its image with the one in between through a single atomic swap,
+ * so neither side ever waits for the other, and when the worker finishes frames faster than they
+ * are shown the older ones are dropped.</p>
+ *
+ * <p>Each image remembers the frame drawn into it. When the worker draws a frame into an image
+ * of the same size with the same shapes hidden, it compares the two frames and redraws only the
+ * region where they differ, clipped to it, so a frame where little moves costs little to draw. It
+ * then asks the panel to repaint only the region where the new frame differs from the frame it
+ * finished before, which is the last one the screen may be showing or about to show.</p>
+ *
+ * <p>Everything the worker needs from the Event Dispatch Thread comes with a request: the tick,
+ * the size and an immutable snapshot of which shapes are hidden. To tell whether the animation
+ * itself has changed, the worker reads the model's revision, which takes no lock, so waking up
+ * with nothing new to draw costs nothing.</p>
+ */
+final class RenderWorker implements Runnable {
+
+  /**
+   * One image of the triple buffer.
+   */
+  private static final class RenderedFrame {
+
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private FrameBuffer contents = new FrameBuffer();
+    private Map<String, Boolean> visibility;
+    private volatile boolean fresh;
+
+    /**
+     * Whether the image has the given size.
+     *
+     * @param width  the width of the image.
+     * @param height the height of the image.
+     * @return true if there is an image of that size.
+     */
+    private boolean hasSize(int width, int height) {
+      return this.image != null && this.image.getWidth() == width
+              && this.image.getHeight() == height;
+    }
+
+    /**
+     * Make sure the image has the given size, replacing it only if the size has changed.
+     *
+     * @param width  the width of the image.
+     * @param height the height of the image.
+     * @return true if the image was replaced, so nothing is drawn in it.
+     */
+    private boolean ensureSize(int width, int height) {
+      if (this.hasSize(width, height)) {
+        return false;
+      }
+      if (this.graphics != null) {
+        this.graphics.dispose();
+      }
+      this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      this.graphics = this.image.createGraphics();
+      return true;
+    }
+  }
+
+  private final EasyAnimatorPanel panel;
+  private final AtomicReference<RenderedFrame> ready;
+  private final Rectangle region;
+  private final Rectangle damage;
+  private final Thread thread;
+  private FrameBuffer buffer;
+  private RenderedFrame back;
+  private RenderedFrame front;
+  private RenderedFrame published;
+  private volatile int requestedTick;
+  private volatile int requestedWidth;
+  private volatile int requestedHeight;
+  private volatile Map<String, Boolean> requestedVisibility;
+  private volatile boolean running;
+  private int renderedTick;
+  private int renderedWidth;
+  private int renderedHeight;
+  private long renderedRevision;
+  private Map<String, Boolean> renderedVisibility;
+
+  /**
+   * Constructor for RenderWorker that draws the frames of the given panel. The worker does
+   * nothing until it is started.
+   *
+   * @param panel the panel whose frames are drawn.
+   */
+  RenderWorker(EasyAnimatorPanel panel) {
+    this.panel = panel;
+    this.ready = new AtomicReference<>(new RenderedFrame());
+    this.buffer = new FrameBuffer();
+    this.region = new Rectangle();
+    this.damage = new Rectangle();
+    this.back = new RenderedFrame();
+    this.front = new RenderedFrame();
+    this.requestedTick = -1;
+    this.renderedTick = -1;
+    this.thread = new Thread(this, "EasyAnimator renderer");
+    this.thread.setDaemon(true);
+  }
+
+  /**
+   * Start the worker thread.
+   */
+  void start() {
+    this.running = true;
+    this.thread.start();
+  }
+
+  /**
+   * Stop the worker thread once it has finished the frame it is drawing.
+   */
+  void stop() {
+    this.running = false;
+    LockSupport.unpark(this.thread);
+  }
+
+  /**
+   * Ask for the frame at a tick to be drawn at the given size. Only the latest request counts: a
+   * tick that is replaced by a later one before the worker gets to it is never drawn.
+   *
+   * @param tick       the tick to draw.
+   * @param width      the width of the panel.
+   * @param height     the height of the panel.
+   * @param visibility an immutable snapshot of the visibility of each shape by name.
+   */
+  void request(int tick, int width, int height, Map<String, Boolean> visibility) {
+    this.requestedVisibility = visibility;
+    this.requestedWidth = width;
+    this.requestedHeight = height;
+    this.requestedTick = tick;
+    LockSupport.unpark(this.thread);
+  }
+
+  /**
+   * Ask for the current frame to be drawn again with different shapes hidden, even though its
+   * tick has not changed.
+   *
+   * @param visibility an immutable snapshot of the visibility of each shape by name.
+   */
+  void invalidate(Map<String, Boolean> visibility) {
+    this.requestedVisibility = visibility;
+    LockSupport.unpark(this.thread);
+  }
+
+  /**
+   * Copy the most recently finished image to the screen. This is called on the Event Dispatch
+   * Thread and does not wait for the worker.
+   *
+   * @param g the graphics of the panel.
+   * @return true if an image was drawn, or false if no frame has been finished yet.
+   */
+  boolean blit(Graphics g) {
+    if (this.ready.get().fresh) {
+      this.front = this.ready.getAndSet(this.front);
+      this.front.fresh = false;
+    }
+    if (this.front.image == null) {
+      return false;
+    }
+    g.drawImage(this.front.image, 0, 0, null);
+    return true;
+  }
+
+  /**
+   * Draw requested frames until the worker is stopped, sleeping while there is nothing new to
+   * draw.
+   */
+  @Override
+  public void run() {
+    while (this.running) {
+      int tick = this.requestedTick;
+      int width = this.requestedWidth;
+      int height = this.requestedHeight;
+      Map<String, Boolean> visibility = this.requestedVisibility;
+      long revision = this.panel.getModel().getRevision();
+      boolean current = tick == this.renderedTick && width == this.renderedWidth
+              && height == this.renderedHeight && revision == this.renderedRevision
+              && visibility == this.renderedVisibility;
+      if (tick < 0 || width <= 0 || height <= 0 || current) {
+        LockSupport.park(this);
+        continue;
+      }
+      this.render(tick, width, height, visibility);
+      this.renderedTick = tick;
+      this.renderedWidth = width;
+      this.renderedHeight = height;
+      this.renderedRevision = revision;
+      this.renderedVisibility = visibility;
+    }
+  }
+
+  /**
+   * Helper method to compute the frame at a tick, draw it into the back image, swap the back
+   * image with the one waiting to be shown and ask the panel to repaint what changed. Only the
+   * shapes the model's spatial index finds in the part of the animation the panel shows are
+   * computed, and only the region of the back image where the frame differs from the one drawn in
+   * it before is drawn again.
+   *
+   * @param tick       the tick to draw.
+   * @param width      the width of the image.
+   * @param height     the height of the image.
+   * @param visibility the visibility of each shape by name.
+   */
+  private void render(int tick, int width, int height, Map<String, Boolean> visibility) {
+    FrameBuffer next = this.buffer;
+    this.panel.frameAt(tick, width, height, next);
+    RenderedFrame frame = this.back;
+    int x = this.panel.getWindowX();
+    int y = this.panel.getWindowY();
+    long start = AnimatorMetrics.start();
+    if (frame.ensureSize(width, height) || frame.visibility != visibility) {
+      this.region.setBounds(x, y, width, height);
+      this.draw(frame, next, visibility, x, y);
+    } else if (FramePainter.changes(frame.contents, next, visibility, this.region)) {
+      this.draw(frame, next, visibility, x, y);
+    }
+    AnimatorMetrics.record(AnimatorMetrics.Latency.PAINT, start);
+    this.buffer = frame.contents;
+    frame.contents = next;
+    frame.visibility = visibility;
+
+    // The screen shows, or is about to show, the frame finished before, or an older one whose
+    // changes were asked to be repainted when that frame was finished.
+    RenderedFrame before = this.published;
+    boolean whole = before == null || before.visibility != visibility
+            || !before.hasSize(width, height);
+    boolean changed = whole || FramePainter.changes(before.contents, next, visibility,
+            this.damage);
+    this.published = frame;
+    frame.fresh = true;
+    this.back = this.ready.getAndSet(frame);
+    if (this.back.fresh) {
+      // The image replaced was finished but never shown.
+      this.back.fresh = false;
+      AnimatorMetrics.increment(AnimatorMetrics.Counter.FRAMES_DROPPED);
+    }
+    if (whole) {
+      this.panel.repaint();
+    } else if (changed) {
+      this.panel.repaint(this.damage.x - x, this.damage.y - y, this.damage.width,
+              this.damage.height);
+    }
+  }
+
+  /**
+   * Helper method to draw the region of a frame held in {@code this.region} into an image,
+   * clearing the region first and drawing nothing outside it.
+   *
+   * @param frame      the image to draw into.
+   * @param buffer     the frame to draw.
+   * @param visibility the visibility of each shape by name.
+   * @param x          the x coordinate of the animation at the left edge of the image.
+   * @param y          the y coordinate of the animation at the top edge of the image.
+   */
+  private void draw(RenderedFrame frame, FrameBuffer buffer, Map<String, Boolean> visibility,
+                    int x, int y) {
+    Graphics2D g = frame.graphics;
+    Rectangle r = this.region;
+    g.setClip(r.x - x, r.y - y, r.width, r.height);
+    g.setColor(this.panel.getBackground());
+    g.fillRect(r.x - x, r.y - y, r.width, r.height);
+    g.translate(-x, -y);
+    FramePainter.paint(g, buffer, visibility, r, this.panel.getSpriteCache());
+    g.translate(x, y);
+    g.setClip(null);
+  }
+}
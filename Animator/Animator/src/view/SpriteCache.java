@@ -0,0 +1,253 @@
+package view;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import model.ShapeState;
+import util.AnimatorMetrics;
+
+/**
+ * This class represents a bounded cache of shapes rasterized into small images, or sprites, keyed
+ * by size and color. Drawing a shape whose sprite is cached is a single image copy instead
+ * of an outline and a fill, which pays off in scenes with many identical shapes. When the sprites
+ * held would use more pixels than the budget, the least recently used sprites are evicted first.
+ *
+ * <p>Only ovals are cached: Java2D fills an axis-aligned rectangle faster than it can copy an
+ * image of the same size, so rectangles are always drawn directly.</p>
+ *
+ * <p>A shape is only rasterized the second time its key is drawn, so shapes that change size on
+ * every frame are drawn directly instead of filling the cache with sprites that are never used
+ * again. Only opaque colors are cached, which makes a sprite look exactly like the shape drawn
+ * directly at the same whole-pixel position. All methods are synchronized, so one cache can be
+ * shared between threads, and images are copied outside the lock. Every lookup still takes the
+ * lock, so threads that draw many shapes at once should each have their own cache.</p>
+ */
+public final class SpriteCache {
+
+  /**
+   * The budget used when none is given, in pixels.
+   */
+  public static final long DEFAULT_BUDGET_PIXELS = 4L * 1024 * 1024;
+
+  private static final int MAX_SIDE = (1 << 15) - 1;
+  private static final int SEEN_SLOTS = 4096;
+
+  private final long budgetPixels;
+  private final LinkedHashMap<Key, BufferedImage> sprites;
+  private final Key lookup;
+  private final long[] seen;
+  private long usedPixels;
+  private long hits;
+  private long misses;
+
+  /**
+   * The key of a sprite: its size and color packed into one long. The cache keeps one key
+   * for lookups that it changes in place, so looking up a sprite does not allocate.
+   */
+  private static final class Key {
+
+    private long value;
+
+    /**
+     * Constructor for Key that takes the packed key.
+     *
+     * @param value the packed key.
+     */
+    private Key(long value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Key && ((Key) other).value == this.value;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(this.value * 0x9E3779B97F4A7C15L);
+    }
+  }
+
+  /**
+   * Constructor for SpriteCache with the default pixel budget.
+   */
+  public SpriteCache() {
+    this(DEFAULT_BUDGET_PIXELS);
+  }
+
+  /**
+   * Constructor for SpriteCache that takes the pixel budget of the cache.
+   *
+   * @param budgetPixels the most pixels the cached sprites may use.
+   * @throws IllegalArgumentException if the budget is negative.
+   */
+  public SpriteCache(long budgetPixels) throws IllegalArgumentException {
+    if (budgetPixels < 0) {
+      throw new IllegalArgumentException("Budget cannot be negative.");
+    }
+    this.budgetPixels = budgetPixels;
+    this.sprites = new LinkedHashMap<>(16, 0.75f, true);
+    this.lookup = new Key(0);
+    this.seen = new long[SEEN_SLOTS];
+  }
+
+  /**
+   * Whether sprites can be copied to the given graphics without changing how the shapes look.
+   * Sprites are rasterized at one pixel per unit, so graphics that scale, rotate or shear, such
+   * as a panel on a high-density display, draw shapes directly instead.
+   *
+   * @param g the graphics to draw with.
+   * @return true if sprites can be used with the graphics.
+   */
+  public static boolean canBlit(Graphics g) {
+    if (!(g instanceof Graphics2D)) {
+      return false;
+    }
+    AffineTransform transform = ((Graphics2D) g).getTransform();
+    return (transform.getType() & ~AffineTransform.TYPE_TRANSLATION) == 0;
+  }
+
+  /**
+   * Draw a shape the same way {@link ShapeState#draw(Graphics, String, double, double, double,
+   * double, Color)} does, copying its sprite if it is cached.
+   *
+   * @param g      the graphics to draw with, which sprites can be copied to.
+   * @param type   the type of the shape.
+   * @param x      the x coordinate of the reference point of the shape.
+   * @param y      the y coordinate of the reference point of the shape.
+   * @param width  the width of the shape, which is the radius for a circle.
+   * @param height the height of the shape, which is the radius for a circle.
+   * @param color  the color of the shape.
+   */
+  public void draw(Graphics g, String type, double x, double y, double width, double height,
+                   Color color) {
+    BufferedImage sprite = this.sprite(type, (int) width, (int) height, color);
+    if (sprite == null) {
+      ShapeState.draw(g, type, x, y, width, height, color);
+    } else {
+      g.drawImage(sprite, (int) x, (int) y, null);
+    }
+  }
+
+  /**
+   * Helper method to find the sprite of a shape, rasterizing it if its key has been drawn before
+   * and is not cached.
+   *
+   * @param type   the type of the shape.
+   * @param width  the width of the shape in whole pixels.
+   * @param height the height of the shape in whole pixels.
+   * @param color  the color of the shape.
+   * @return the sprite of the shape, or null if the shape should be drawn directly.
+   */
+  private synchronized BufferedImage sprite(String type, int width, int height, Color color) {
+    if (!type.equals("circle") || width < 0 || height < 0 || width > MAX_SIDE
+            || height > MAX_SIDE || color.getAlpha() != 255) {
+      return null;
+    }
+    long key = (long) width << 47 | (long) height << 32 | (color.getRGB() & 0xFFFFFFFFL);
+    this.lookup.value = key;
+    BufferedImage sprite = this.sprites.get(this.lookup);
+    if (sprite != null) {
+      this.hits++;
+      AnimatorMetrics.increment(AnimatorMetrics.Counter.SPRITE_CACHE_HITS);
+      return sprite;
+    }
+    this.misses++;
+    AnimatorMetrics.increment(AnimatorMetrics.Counter.SPRITE_CACHE_MISSES);
+    int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 52) & (SEEN_SLOTS - 1);
+    long pixels = (width + 1L) * (height + 1L);
+    if (this.seen[slot] != key || pixels > this.budgetPixels) {
+      this.seen[slot] = key;
+      return null;
+    }
+    sprite = rasterize(type, width, height, color);
+    this.sprites.put(new Key(key), sprite);
+    this.usedPixels += pixels;
+    this.evict();
+    return sprite;
+  }
+
+  /**
+   * Helper method to rasterize a shape into a new sprite. The outline extends one pixel past the
+   * width and height, so the sprite is one pixel larger than the shape in each direction.
+   *
+   * @param type   the type of the shape.
+   * @param width  the width of the shape in whole pixels.
+   * @param height the height of the shape in whole pixels.
+   * @param color  the color of the shape.
+   * @return the sprite, transparent outside the shape.
+   */
+  private static BufferedImage rasterize(String type, int width, int height, Color color) {
+    BufferedImage sprite = new BufferedImage(width + 1, height + 1,
+            BufferedImage.TYPE_INT_ARGB_PRE);
+    Graphics2D g = sprite.createGraphics();
+    try {
+      ShapeState.draw(g, type, 0, 0, width, height, color);
+    } finally {
+      g.dispose();
+    }
+    return sprite;
+  }
+
+  /**
+   * Helper method to evict the least recently used sprites until the cache is within its budget.
+   */
+  private void evict() {
+    Iterator<Map.Entry<Key, BufferedImage>> entries = this.sprites.entrySet().iterator();
+    while (this.usedPixels > this.budgetPixels && entries.hasNext()) {
+      BufferedImage eldest = entries.next().getValue();
+      entries.remove();
+      this.usedPixels -= (long) eldest.getWidth() * eldest.getHeight();
+    }
+  }
+
+  /**
+   * Remove every sprite from the cache.
+   */
+  public synchronized void clear() {
+    this.sprites.clear();
+    this.usedPixels = 0;
+  }
+
+  /**
+   * Get the number of sprites in the cache.
+   *
+   * @return the number of cached sprites.
+   */
+  public synchronized int size() {
+    return this.sprites.size();
+  }
+
+  /**
+   * Get the number of pixels used by the sprites in the cache.
+   *
+   * @return the pixels used.
+   */
+  public synchronized long getUsedPixels() {
+    return this.usedPixels;
+  }
+
+  /**
+   * Get the number of shapes drawn from a cached sprite.
+   *
+   * @return the number of hits.
+   */
+  public synchronized long getHits() {
+    return this.hits;
+  }
+
+  /**
+   * Get the number of shapes whose sprite was not cached.
+   *
+   * @return the number of misses.
+   */
+  public synchronized long getMisses() {
+    return this.misses;
+  }
+}
@@ -0,0 +1,169 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import model.EasyAnimatorModel;
+import model.EasyAnimatorModelImpl;
+import util.AnimationTailer;
+
+/**
+ * Class to test that following an animation file while it is written gives the same animation as
+ * loading the finished file, however the writes split its records. The file has comments, blank
+ * lines and motions whose two halves are on different lines.
+ */
+public class AnimationTailerTest {
+
+  private static final int SHAPES = 12;
+  private static final int MOTIONS = 8;
+
+  @Test
+  public void testTailMatchesFullLoadForRandomWrites() throws IOException {
+    String text = this.scene();
+    Random random = new Random(3);
+    for (int run = 0; run < 5; run++) {
+      File file = File.createTempFile("tail", ".txt");
+      file.deleteOnExit();
+      try (AnimationTailer<EasyAnimatorModel> tailer = EasyAnimatorModelImpl.follow(file.getPath());
+           OutputStream out = new FileOutputStream(file, true)) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        for (int at = 0; at < bytes.length; ) {
+          int length = Math.min(bytes.length - at, random.nextBoolean() ? 1 + random.nextInt(4)
+                  : 1 + random.nextInt(200));
+          out.write(bytes, at, length);
+          out.flush();
+          at += length;
+          tailer.poll();
+        }
+        Assert.assertEquals(0, this.diffs(tailer.getDocument(), file));
+      }
+    }
+  }
+
+  @Test
+  public void testPartialRecordWaitsForTheRestOfItsTokens() throws IOException {
+    File file = File.createTempFile("tail", ".txt");
+    file.deleteOnExit();
+    String shape = "shape R rectangle\n";
+    String start = "motion R 1 0 0 10 10 255 0 0\n";
+    String comment = "# the end of the motion follows\n";
+    String end = "  20 50 50 10 10 0 0 255\n";
+    try (AnimationTailer<EasyAnimatorModel> tailer = EasyAnimatorModelImpl.follow(file.getPath());
+         OutputStream out = new FileOutputStream(file, true)) {
+      out.write((shape + start).getBytes(StandardCharsets.US_ASCII));
+      out.flush();
+      Assert.assertEquals(shape.length(), tailer.poll());
+      out.write(comment.getBytes(StandardCharsets.US_ASCII));
+      out.flush();
+      Assert.assertEquals(0, tailer.poll());
+      out.write(end.substring(0, 10).getBytes(StandardCharsets.US_ASCII));
+      out.flush();
+      Assert.assertEquals(0, tailer.poll());
+      out.write(end.substring(10).getBytes(StandardCharsets.US_ASCII));
+      out.flush();
+      Assert.assertEquals(start.length() + comment.length() + end.length(), tailer.poll());
+      Assert.assertEquals(0, this.diffs(tailer.getDocument(), file));
+    }
+  }
+
+  @Test
+  public void testCommentLinesAreIngestedWithoutARecord() throws IOException {
+    File file = File.createTempFile("tail", ".txt");
+    file.deleteOnExit();
+    String text = "# a comment before anything\ncanvas 0 0 100 100 # the canvas\n# shape X\n";
+    try (AnimationTailer<EasyAnimatorModel> tailer = EasyAnimatorModelImpl.follow(file.getPath());
+         OutputStream out = new FileOutputStream(file, true)) {
+      out.write(text.getBytes(StandardCharsets.US_ASCII));
+      out.flush();
+      Assert.assertEquals(text.length(), tailer.poll());
+      Assert.assertTrue(tailer.getDocument().getExactShapes().isEmpty());
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testTruncatedFileIsRejected() throws IOException {
+    File file = File.createTempFile("tail", ".txt");
+    file.deleteOnExit();
+    Files.write(file.toPath(), this.scene().getBytes(StandardCharsets.US_ASCII));
+    try (AnimationTailer<EasyAnimatorModel> tailer = EasyAnimatorModelImpl.follow(file.getPath())) {
+      Files.write(file.toPath(), "canvas 0 0 10 10\n".getBytes(StandardCharsets.US_ASCII));
+      tailer.poll();
+    }
+  }
+
+  /**
+   * Count the ticks at which a followed model differs from the finished file loaded in full.
+   *
+   * @param tailed the model built by following the file.
+   * @param file   the finished file.
+   * @return the number of ticks at which the states of the shapes differ.
+   * @throws IOException if the file cannot be read.
+   */
+  private int diffs(EasyAnimatorModel tailed, File file) throws IOException {
+    EasyAnimatorModelImpl full = new EasyAnimatorModelImpl(file.getPath());
+    Assert.assertEquals(full.getDurationTicks(), tailed.getDurationTicks(), 0);
+    int diffs = 0;
+    for (int tick = 0; tick <= full.getDurationTicks() + 1; tick++) {
+      if (!full.stateAt(tick).getShapeStates().equals(tailed.stateAt(tick).getShapeStates())) {
+        diffs++;
+      }
+    }
+    return diffs;
+  }
+
+  /**
+   * Build the text of an animation whose shapes move in consecutive motions. Comments follow
+   * some records and stand on lines of their own, and some motions are written with their start
+   * and end on separate lines, sometimes with a comment or a blank line between them.
+   *
+   * @return the text of the animation.
+   */
+  private String scene() {
+    Random random = new Random(17);
+    StringBuilder text = new StringBuilder("# generated scene\ncanvas 0 0 400 300\n");
+    for (int s = 0; s < SHAPES; s++) {
+      text.append("shape S").append(s).append(s % 2 == 0 ? " rectangle" : " ellipse");
+      text.append(s % 3 == 0 ? " # declared\n" : "\n");
+    }
+    for (int s = 0; s < SHAPES; s++) {
+      int t = 1 + random.nextInt(5);
+      int x = random.nextInt(300);
+      int y = random.nextInt(200);
+      for (int m = 0; m < MOTIONS; m++) {
+        int end = t + 1 + random.nextInt(10);
+        int toX = x + random.nextInt(41) - 20;
+        int toY = y + random.nextInt(41) - 20;
+        text.append("motion S").append(s).append(' ')
+                .append(t).append(' ').append(x).append(' ').append(y).append(" 20 10 0 0 255");
+        switch (random.nextInt(4)) {
+          case 0:
+            text.append("\n    ");
+            break;
+          case 1:
+            text.append(" # first half\n# between the halves\n    ");
+            break;
+          case 2:
+            text.append("\n\n");
+            break;
+          default:
+            text.append("    ");
+        }
+        text.append(end).append(' ').append(toX).append(' ').append(toY).append(" 20 10 0 0 255")
+                .append(random.nextInt(5) == 0 ? " # moved\n" : "\n");
+        t = end;
+        x = toX;
+        y = toY;
+      }
+      if (random.nextBoolean()) {
+        text.append("# shape S").append(s).append(" is done\n");
+      }
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,242 @@
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import model.BinaryAnimationFile;
+import model.Circle;
+import model.ColorChange;
+import model.EasyAnimatorModelImpl;
+import model.Point2D;
+import model.PositionChange;
+import model.Rectangle;
+import model.Shape;
+import model.SizeChange;
+
+/**
+ * Class to test that binary animations load back exactly as they were written, and that a file
+ * that is cut short or whose counts do not agree is rejected with an IllegalStateException rather
+ * than loaded wrongly or failing some other way.
+ */
+public class BinaryAnimationFileTest {
+
+  private static final int HEADER_BYTES = 64;
+
+  /**
+   * A rectangle with no height, which the constructor rejects but a text animation can declare.
+   */
+  private static final class FlatRectangle extends Rectangle {
+
+    /**
+     * Constructor for FlatRectangle with the given width and no height.
+     *
+     * @param name  the name of the rectangle.
+     * @param width the width of the rectangle.
+     */
+    FlatRectangle(String name, double width) {
+      super(name, Color.GREEN, 3.25, 4.5, 1, 1, new ArrayList<>(), new ArrayList<>(),
+              new ArrayList<>(), 0, 0);
+      this.setWidth(width);
+      this.setHeight(0);
+    }
+  }
+
+  /**
+   * A circle with no radius, which the constructor rejects but a text animation can declare.
+   */
+  private static final class Dot extends Circle {
+
+    /**
+     * Constructor for Dot with the given name.
+     *
+     * @param name the name of the circle.
+     */
+    Dot(String name) {
+      super(name, Color.RED, 1, 2, 1, new ArrayList<>(), new ArrayList<>(), new ArrayList<>(),
+              0, 0);
+      this.setRadius(0);
+    }
+  }
+
+  @Test
+  public void testRoundTripKeepsEveryTick() throws IOException {
+    EasyAnimatorModelImpl original = new EasyAnimatorModelImpl(this.scene(new Random(5), 30));
+    EasyAnimatorModelImpl loaded = this.roundTrip(original);
+    Assert.assertEquals(original.view_window_x, loaded.view_window_x);
+    Assert.assertEquals(original.view_window_y, loaded.view_window_y);
+    Assert.assertEquals(original.view_window_width, loaded.view_window_width);
+    Assert.assertEquals(original.view_window_height, loaded.view_window_height);
+    Assert.assertEquals(original.getExactShapes().size(), loaded.getExactShapes().size());
+    for (int tick = 0; tick <= original.getDurationTicks() + 1; tick++) {
+      Assert.assertEquals("State differs at tick " + tick,
+              original.stateAt(tick).getShapeStates(), loaded.stateAt(tick).getShapeStates());
+    }
+  }
+
+  @Test
+  public void testZeroSizesAreRestoredExactly() throws IOException {
+    List<Shape> shapes = new ArrayList<>();
+    shapes.add(new FlatRectangle("flat", 2.5));
+    shapes.add(new FlatRectangle("empty", 0));
+    shapes.add(new Dot("dot"));
+    EasyAnimatorModelImpl loaded = this.roundTrip(new EasyAnimatorModelImpl(shapes));
+    List<Shape> read = loaded.getExactShapes();
+    Assert.assertEquals(Arrays.asList(2.5, 0.0), read.get(0).getSpecs());
+    Assert.assertEquals(Arrays.asList(0.0, 0.0), read.get(1).getSpecs());
+    Assert.assertEquals(Arrays.asList(0.0), read.get(2).getSpecs());
+  }
+
+  @Test
+  public void testEveryTruncationIsRejected() throws IOException {
+    byte[] bytes = this.bytes(new EasyAnimatorModelImpl(this.scene(new Random(7), 4)));
+    for (int length = 0; length < bytes.length; length++) {
+      this.assertRejected(Arrays.copyOf(bytes, length), "cut to " + length + " bytes");
+    }
+  }
+
+  @Test
+  public void testInconsistentCountsAreRejected() throws IOException {
+    EasyAnimatorModelImpl model = new EasyAnimatorModelImpl(this.scene(new Random(9), 6));
+    byte[] bytes = this.bytes(model);
+    int shapes = model.getExactShapes().size();
+    int moves = ByteBuffer.wrap(bytes).getInt(7 * Integer.BYTES);
+    int sizes = ByteBuffer.wrap(bytes).getInt(8 * Integer.BYTES);
+    int colors = ByteBuffer.wrap(bytes).getInt(9 * Integer.BYTES);
+    for (int field = 6; field <= 9; field++) {
+      for (int value : new int[]{-1, Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+        this.assertRejected(this.withInt(bytes, field * Integer.BYTES, value),
+                "header count " + field + " set to " + value);
+      }
+      int count = ByteBuffer.wrap(bytes).getInt(field * Integer.BYTES);
+      this.assertRejected(this.withInt(bytes, field * Integer.BYTES, count + 1),
+              "header count " + field + " one too many");
+    }
+    // The moves of each shape follow its color and type, after every double column.
+    int shapeMoves = HEADER_BYTES + Double.BYTES * (6 * shapes + 6 * moves + 3 * sizes + colors)
+            + 2 * Integer.BYTES * shapes;
+    for (int column = 0; column < 3; column++) {
+      int at = shapeMoves + column * shapes * Integer.BYTES;
+      int count = ByteBuffer.wrap(bytes).getInt(at);
+      this.assertRejected(this.withInt(bytes, at, count + 1), "column " + column + " too many");
+      this.assertRejected(this.withInt(bytes, at, -1), "column " + column + " negative");
+    }
+    this.assertRejected(this.withInt(bytes, 0, 0), "magic number missing");
+  }
+
+  /**
+   * Write a model to a binary file and load it back.
+   *
+   * @param model the model to write.
+   * @return the model loaded from the file.
+   * @throws IOException if the file cannot be written or read.
+   */
+  private EasyAnimatorModelImpl roundTrip(EasyAnimatorModelImpl model) throws IOException {
+    File file = File.createTempFile("round", BinaryAnimationFile.EXTENSION);
+    file.deleteOnExit();
+    BinaryAnimationFile.write(model, file);
+    return new EasyAnimatorModelImpl(file.getPath());
+  }
+
+  /**
+   * Get the bytes of a model written as a binary file.
+   *
+   * @param model the model to write.
+   * @return the bytes of the file.
+   * @throws IOException if the file cannot be written or read.
+   */
+  private byte[] bytes(EasyAnimatorModelImpl model) throws IOException {
+    File file = File.createTempFile("bytes", BinaryAnimationFile.EXTENSION);
+    file.deleteOnExit();
+    BinaryAnimationFile.write(model, file);
+    return Files.readAllBytes(file.toPath());
+  }
+
+  /**
+   * Copy the bytes of a file with one int replaced.
+   *
+   * @param bytes  the bytes of the file.
+   * @param offset the position of the int.
+   * @param value  the value to write there.
+   * @return the changed copy.
+   */
+  private byte[] withInt(byte[] bytes, int offset, int value) {
+    byte[] copy = bytes.clone();
+    ByteBuffer.wrap(copy).putInt(offset, value);
+    return copy;
+  }
+
+  /**
+   * Check that loading the given bytes as a binary animation fails with an IllegalStateException.
+   *
+   * @param bytes the bytes of the file.
+   * @param what  what was done to the file, for the failure message.
+   * @throws IOException if the file cannot be written.
+   */
+  private void assertRejected(byte[] bytes, String what) throws IOException {
+    File file = File.createTempFile("broken", BinaryAnimationFile.EXTENSION);
+    file.deleteOnExit();
+    Files.write(file.toPath(), bytes);
+    try {
+      new EasyAnimatorModelImpl(file.getPath());
+      Assert.fail("Loaded a file with its " + what + ".");
+    } catch (IllegalStateException e) {
+      // Expected.
+    }
+  }
+
+  /**
+   * Build a random scene whose shapes move, resize and change color at fractional times and
+   * positions, some for part of the animation and some for all of it.
+   *
+   * @param random the source of randomness.
+   * @param count  the number of shapes.
+   * @return the shapes of the scene.
+   */
+  private List<Shape> scene(Random random, int count) {
+    List<Shape> shapes = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      List<PositionChange> moves = new ArrayList<>();
+      double x = random.nextDouble() * 500;
+      double y = random.nextDouble() * 500;
+      double t = random.nextInt(10);
+      for (int m = random.nextInt(5); m > 0; m--) {
+        double end = t + 0.5 + random.nextDouble() * 10;
+        double toX = x + random.nextGaussian() * 30;
+        double toY = y + random.nextGaussian() * 30;
+        moves.add(new PositionChange(new Point2D(x, y), toX, toY, t, end));
+        x = toX;
+        y = toY;
+        t = end;
+      }
+      List<SizeChange> sizes = new ArrayList<>();
+      if (random.nextBoolean()) {
+        sizes.add(new SizeChange(0.25 + random.nextDouble() * 2, 1.5, 9.75));
+      }
+      List<ColorChange> colors = new ArrayList<>();
+      for (int c = random.nextInt(3); c > 0; c--) {
+        colors.add(new ColorChange(new Color(random.nextInt(0x1000000)), c * 3.5));
+      }
+      double appears = random.nextInt(3) == 0 ? 0 : random.nextDouble() * 10;
+      double disappears = appears + (random.nextInt(3) == 0 ? 0 : random.nextDouble() * 40);
+      Point2D start = moves.isEmpty() ? new Point2D(x, y) : moves.get(0).getFrom();
+      if (random.nextBoolean()) {
+        shapes.add(new Circle("c\u00edrculo " + i, new Color(random.nextInt(0x1000000)),
+                start.getX(), start.getY(), 1 + random.nextDouble() * 20, moves, sizes, colors,
+                appears, disappears));
+      } else {
+        shapes.add(new Rectangle("R" + i, new Color(random.nextInt(0x1000000)), start.getX(),
+                start.getY(), 1 + random.nextDouble() * 30, 1 + random.nextDouble() * 30, moves,
+                sizes, colors, appears, disappears));
+      }
+    }
+    return shapes;
+  }
+}
@@ -0,0 +1,98 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import model.Circle;
+import model.ColorChange;
+import model.EasyAnimatorModelImpl;
+import model.Point2D;
+import model.PositionChange;
+import model.Rectangle;
+import model.Shape;
+import model.SizeChange;
+
+/**
+ * Class to test that compacting keyframes never changes how an animation looks. Each scene is
+ * built twice, one copy is compacted, and the state of every shape is compared at every tick.
+ */
+public class KeyframeCompactorTest {
+
+  private static final int MOVES = 300;
+  private static final int TICKS_PER_MOVE = 3;
+
+  @Test
+  public void testWholeStepsAreMergedWithoutChangingAnyTick() {
+    this.assertSameAtEveryTick(4);
+  }
+
+  /**
+   * Steps of a third of a pixel round differently over one long move than over many short ones,
+   * so some runs have to be split.
+   */
+  @Test
+  public void testFractionalStepsAreMergedWithoutChangingAnyTick() {
+    this.assertSameAtEveryTick(10.0 / 3);
+  }
+
+  @Test
+  public void testCompactingTwiceRemovesNothingMore() {
+    EasyAnimatorModelImpl model = new EasyAnimatorModelImpl(this.scene(10.0 / 3));
+    model.compactKeyframes();
+    Assert.assertEquals(0, model.compactKeyframes());
+  }
+
+  /**
+   * Compact one copy of a scene and compare it with the other at every tick.
+   *
+   * @param step the distance each move covers along the x axis.
+   */
+  private void assertSameAtEveryTick(double step) {
+    EasyAnimatorModelImpl original = new EasyAnimatorModelImpl(this.scene(step));
+    EasyAnimatorModelImpl compacted = new EasyAnimatorModelImpl(this.scene(step));
+    int removed = compacted.compactKeyframes();
+    Assert.assertTrue("Removed " + removed + " keyframes.", removed > MOVES);
+    for (int tick = 0; tick <= original.getDurationTicks() + 1; tick++) {
+      Assert.assertEquals("State differs at tick " + tick,
+              original.stateAt(tick).getShapeStates(), compacted.stateAt(tick).getShapeStates());
+    }
+  }
+
+  /**
+   * Build a scene whose keyframes can be compacted: a rectangle moving in a straight line as many
+   * short moves, with a turn halfway, a pause and a resize interrupted by a factor of 1, and a
+   * circle that repeats its color on every move.
+   *
+   * @param step the distance each move covers along the x axis.
+   * @return the shapes of the scene.
+   */
+  private List<Shape> scene(double step) {
+    List<PositionChange> moves = new ArrayList<>();
+    List<ColorChange> colors = new ArrayList<>();
+    double x = 0;
+    double y = 0;
+    for (int i = 0; i < MOVES; i++) {
+      double dy = i < MOVES / 2 ? step / 2 : -step;
+      int start = i * TICKS_PER_MOVE + (i >= MOVES - 10 ? TICKS_PER_MOVE : 0);
+      moves.add(new PositionChange(new Point2D(x, y), x + step, y + dy, start,
+              start + TICKS_PER_MOVE));
+      colors.add(new ColorChange(i % 100 == 99 ? Color.GREEN : Color.BLUE, start));
+      x += step;
+      y += dy;
+    }
+    int end = (MOVES + 1) * TICKS_PER_MOVE;
+    List<SizeChange> sizes = new ArrayList<>();
+    sizes.add(new SizeChange(2, 10, 40));
+    sizes.add(new SizeChange(1, 20, 30));
+    sizes.add(new SizeChange(1, 50, 60));
+
+    List<Shape> shapes = new ArrayList<>();
+    shapes.add(new Rectangle("R", Color.RED, 0, 0, 30, 15, moves, sizes, new ArrayList<>(), 0,
+            end));
+    shapes.add(new Circle("C", Color.BLUE, 0, 0, 20, new ArrayList<>(moves), new ArrayList<>(),
+            colors, 0, end));
+    return shapes;
+  }
+}
@@ -0,0 +1,136 @@
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import model.LifetimeIndex;
+
+/**
+ * Class to test that the lifetime index finds exactly the shapes a scan of every lifetime finds,
+ * in drawing order, for random lifetimes that include shapes that exist at every tick, lifetimes
+ * without an end and queries at fractional times.
+ */
+public class LifetimeIndexTest {
+
+  private static final int INDEXES = 300;
+  private static final int QUERIES = 60;
+
+  @Test
+  public void testAliveAtMatchesScan() {
+    Random random = new Random(11);
+    for (int i = 0; i < INDEXES; i++) {
+      double[] appears = new double[random.nextInt(150)];
+      double[] disappears = new double[appears.length];
+      this.lifetimes(random, appears, disappears);
+      LifetimeIndex index = new LifetimeIndex(appears, disappears);
+      int[] result = new int[appears.length];
+      for (int q = 0; q < QUERIES; q++) {
+        double time = this.time(random);
+        int count = index.aliveAt(time, result);
+        Assert.assertArrayEquals("Shapes alive at " + time,
+                this.scan(appears, disappears, time, time), Arrays.copyOf(result, count));
+      }
+    }
+  }
+
+  @Test
+  public void testAliveInMatchesScan() {
+    Random random = new Random(13);
+    for (int i = 0; i < INDEXES; i++) {
+      double[] appears = new double[random.nextInt(150)];
+      double[] disappears = new double[appears.length];
+      this.lifetimes(random, appears, disappears);
+      LifetimeIndex index = new LifetimeIndex(appears, disappears);
+      int[] result = new int[appears.length];
+      for (int q = 0; q < QUERIES; q++) {
+        double from = this.time(random);
+        double to = random.nextBoolean() ? from : from + random.nextDouble() * 15;
+        int count = index.aliveIn(from, to, result);
+        Assert.assertArrayEquals("Shapes alive from " + from + " to " + to,
+                this.scan(appears, disappears, from, to), Arrays.copyOf(result, count));
+      }
+    }
+  }
+
+  @Test
+  public void testIdenticalLifetimesAreAllFound() {
+    double[] appears = new double[40];
+    double[] disappears = new double[40];
+    Arrays.fill(appears, 5);
+    Arrays.fill(disappears, 9);
+    LifetimeIndex index = new LifetimeIndex(appears, disappears);
+    int[] result = new int[40];
+    Assert.assertEquals(40, index.aliveAt(9, result));
+    Assert.assertEquals(0, index.aliveAt(9.5, result));
+    Assert.assertEquals(40, index.aliveIn(0, 5, result));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmptyRangeIsRejected() {
+    new LifetimeIndex(new double[]{0}, new double[]{10}).aliveIn(5, 4, new int[1]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSmallResultIsRejected() {
+    new LifetimeIndex(new double[]{0, 1}, new double[]{10, 11}).aliveAt(5, new int[1]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMismatchedTimesAreRejected() {
+    new LifetimeIndex(new double[]{0, 1}, new double[]{10});
+  }
+
+  /**
+   * Fill in random lifetimes on whole ticks. Some shapes disappear when they appear, so they
+   * exist at every tick, and some appear at negative infinity or never disappear.
+   *
+   * @param random     the source of randomness.
+   * @param appears    where the time each shape appears is written.
+   * @param disappears where the time each shape disappears is written.
+   */
+  private void lifetimes(Random random, double[] appears, double[] disappears) {
+    for (int s = 0; s < appears.length; s++) {
+      appears[s] = random.nextInt(50);
+      disappears[s] = random.nextInt(4) == 0 ? appears[s] : appears[s] + random.nextInt(20);
+      if (random.nextInt(20) == 0) {
+        appears[s] = Double.NEGATIVE_INFINITY;
+      }
+      if (random.nextInt(20) == 0) {
+        disappears[s] = Double.POSITIVE_INFINITY;
+      }
+    }
+  }
+
+  /**
+   * Pick a query time, a whole tick or halfway between two, a little before and after every
+   * lifetime.
+   *
+   * @param random the source of randomness.
+   * @return the time.
+   */
+  private double time(Random random) {
+    return random.nextInt(90) - 10 + (random.nextBoolean() ? 0.5 : 0);
+  }
+
+  /**
+   * Find the shapes that exist at some point in a range by checking every lifetime.
+   *
+   * @param appears    the time each shape appears.
+   * @param disappears the time each shape disappears.
+   * @param from       the first tick.
+   * @param to         the last tick.
+   * @return the indexes of the shapes, in order.
+   */
+  private int[] scan(double[] appears, double[] disappears, double from, double to) {
+    int[] found = new int[appears.length];
+    int count = 0;
+    for (int s = 0; s < appears.length; s++) {
+      boolean always = disappears[s] <= appears[s];
+      if (always || (appears[s] <= to && disappears[s] >= from)) {
+        found[count++] = s;
+      }
+    }
+    return Arrays.copyOf(found, count);
+  }
+}
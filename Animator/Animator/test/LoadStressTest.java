@@ -0,0 +1,125 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import model.EasyAnimatorModelImpl;
+import util.AnimationGenerator;
+import view.EasyAnimatorViewOffscreen;
+
+/**
+ * Class to stress loading and rendering with generated animations of production size. Each test
+ * generates an animation with one overlap pattern, loads it through the file constructor of the
+ * model, renders frames spread over the animation, and prints the timings and the peak heap. A
+ * test fails when loading costs more per motion, or rendering more per frame, than its budget.
+ *
+ * <p>The size of the animations and the budgets are read from system properties, so a larger
+ * load can be run without changing the test: {@code stress.shapes}, {@code stress.motions},
+ * {@code stress.frames}, {@code stress.maxNanosPerMotion} and
+ * {@code stress.maxMillisPerFrame}.</p>
+ */
+public class LoadStressTest {
+
+  private static final int SHAPES = Integer.getInteger("stress.shapes", 2000);
+  private static final int MOTIONS = Integer.getInteger("stress.motions", 50);
+  private static final int FRAMES = Integer.getInteger("stress.frames", 20);
+  private static final long MAX_NANOS_PER_MOTION =
+          Long.getLong("stress.maxNanosPerMotion", 25_000);
+  private static final long MAX_MILLIS_PER_FRAME = Long.getLong("stress.maxMillisPerFrame", 250);
+  private static final int CANVAS_WIDTH = 800;
+  private static final int CANVAS_HEIGHT = 600;
+
+  @Test
+  public void testSpreadScene() throws IOException {
+    this.stress(AnimationGenerator.Overlap.SPREAD);
+  }
+
+  @Test
+  public void testClusteredScene() throws IOException {
+    this.stress(AnimationGenerator.Overlap.CLUSTERED);
+  }
+
+  @Test
+  public void testStackedScene() throws IOException {
+    this.stress(AnimationGenerator.Overlap.STACKED);
+  }
+
+  /**
+   * Generate, load and render an animation, and check the costs against the budgets.
+   *
+   * @param overlap how the shapes of the animation are placed.
+   * @throws IOException if the animation cannot be written or read.
+   */
+  private void stress(AnimationGenerator.Overlap overlap) throws IOException {
+    File file = File.createTempFile("stress-" + overlap.name().toLowerCase(), ".txt");
+    file.deleteOnExit();
+    try {
+      new AnimationGenerator(SHAPES, MOTIONS, CANVAS_WIDTH, CANVAS_HEIGHT, overlap, 1)
+              .write(file);
+      long motions = (long) SHAPES * MOTIONS;
+
+      System.gc();
+      resetPeakHeap();
+      long start = System.nanoTime();
+      EasyAnimatorModelImpl model = new EasyAnimatorModelImpl(file.getPath());
+      long loadNanos = System.nanoTime() - start;
+      long loadPeak = peakHeap();
+
+      EasyAnimatorViewOffscreen view = new EasyAnimatorViewOffscreen(model,
+              file.getParent());
+      int lastTick = (int) Math.ceil(model.getDurationTicks());
+      view.renderFrame(0);
+      resetPeakHeap();
+      start = System.nanoTime();
+      for (int frame = 0; frame < FRAMES; frame++) {
+        view.renderFrame((int) ((long) lastTick * frame / Math.max(1, FRAMES - 1)));
+      }
+      long renderNanos = System.nanoTime() - start;
+      long renderPeak = peakHeap();
+
+      long nanosPerMotion = loadNanos / motions;
+      double millisPerFrame = renderNanos / 1e6 / FRAMES;
+      System.out.printf("%s: %,d motions loaded in %.1f ms (%,d ns per motion, peak heap %,d KB),"
+                      + " %d frames in %.1f ms (%.2f ms per frame, peak heap %,d KB)%n",
+              overlap, motions, loadNanos / 1e6, nanosPerMotion, loadPeak / 1024, FRAMES,
+              renderNanos / 1e6, millisPerFrame, renderPeak / 1024);
+
+      Assert.assertTrue("Loading took " + nanosPerMotion + " ns per motion.",
+              nanosPerMotion <= MAX_NANOS_PER_MOTION);
+      Assert.assertTrue("Rendering took " + millisPerFrame + " ms per frame.",
+              millisPerFrame <= MAX_MILLIS_PER_FRAME);
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Forget the peak usage of every heap pool, so the next peak covers only what follows.
+   */
+  private static void resetPeakHeap() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+  }
+
+  /**
+   * Get the sum of the peak usage of every heap pool since the last reset.
+   *
+   * @return the peak heap in bytes.
+   */
+  private static long peakHeap() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+}
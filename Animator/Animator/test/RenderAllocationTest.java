@@ -0,0 +1,189 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JPanel;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import model.Circle;
+import model.ColorChange;
+import model.EasyAnimatorModelImpl;
+import model.FrameBuffer;
+import model.Point2D;
+import model.PositionChange;
+import model.Rectangle;
+import model.Shape;
+import model.SizeChange;
+import view.EasyAnimatorPanel;
+
+/**
+ * Class to test that the steady-state render loop does not allocate. Allocation is measured with
+ * the per-thread allocated bytes counter of the HotSpot ThreadMXBean, after enough warmup for the
+ * reusable buffers to reach their final size and for the JIT to compile the loop.
+ */
+public class RenderAllocationTest {
+
+  private static final int SHAPES = 200;
+  private static final int TICKS = 100;
+  private static final int WARMUP_PASSES = 50;
+  private static final long MAX_BYTES_PER_TICK = 64;
+
+  private com.sun.management.ThreadMXBean threads;
+
+  /**
+   * Panel that lets the test call its paintComponent directly.
+   */
+  private static class PaintablePanel extends EasyAnimatorPanel {
+
+    PaintablePanel(EasyAnimatorModelImpl model) {
+      super(model);
+    }
+
+    void draw(Graphics g) {
+      this.paintComponent(g);
+    }
+  }
+
+  /**
+   * Empty panel whose paintComponent does only what Swing does for every panel.
+   */
+  private static class EmptyPanel extends JPanel {
+
+    void draw(Graphics g) {
+      this.paintComponent(g);
+    }
+  }
+
+  @Before
+  public void setUp() {
+    this.threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+  }
+
+  @Test
+  public void testStateAtIntoBufferDoesNotAllocate() {
+    EasyAnimatorModelImpl model = this.scene(true);
+    FrameBuffer buffer = new FrameBuffer();
+    for (int pass = 0; pass < WARMUP_PASSES; pass++) {
+      for (int tick = 0; tick < TICKS; tick++) {
+        model.stateAt(tick, buffer);
+      }
+    }
+
+    long before = this.allocatedBytes();
+    for (int tick = 0; tick < TICKS; tick++) {
+      model.stateAt(tick, buffer);
+    }
+    long perTick = (this.allocatedBytes() - before) / TICKS;
+    Assert.assertTrue("Allocated " + perTick + " bytes per tick.",
+            perTick <= MAX_BYTES_PER_TICK);
+  }
+
+  @Test
+  public void testShowTickDoesNotAllocate() {
+    PaintablePanel panel = new PaintablePanel(this.scene(true));
+    panel.setSize(600, 400);
+    for (int pass = 0; pass < WARMUP_PASSES; pass++) {
+      for (int tick = 0; tick < TICKS; tick++) {
+        panel.showTick(tick);
+      }
+    }
+
+    long before = this.allocatedBytes();
+    for (int tick = 0; tick < TICKS; tick++) {
+      panel.showTick(tick);
+    }
+    long perTick = (this.allocatedBytes() - before) / TICKS;
+    Assert.assertTrue("Allocated " + perTick + " bytes per tick.",
+            perTick <= MAX_BYTES_PER_TICK);
+  }
+
+  /**
+   * Painting is compared with an empty panel, since Swing copies the graphics for every panel it
+   * paints. The scene has only rectangles: Java2D's software pipeline allocates a shape for every
+   * oval it draws, which is outside the panel.
+   */
+  @Test
+  public void testPaintDoesNotAllocate() {
+    PaintablePanel panel = new PaintablePanel(this.scene(false));
+    panel.setSize(600, 400);
+    EmptyPanel empty = new EmptyPanel();
+    empty.setSize(600, 400);
+    BufferedImage image = new BufferedImage(600, 400, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = image.createGraphics();
+    g.setClip(0, 0, 300, 200);
+    for (int pass = 0; pass < WARMUP_PASSES; pass++) {
+      for (int tick = 0; tick < TICKS; tick++) {
+        panel.showTick(tick);
+        panel.draw(g);
+        empty.draw(g);
+      }
+    }
+
+    long before = this.allocatedBytes();
+    for (int tick = 0; tick < TICKS; tick++) {
+      panel.showTick(tick);
+      panel.draw(g);
+    }
+    long painted = this.allocatedBytes() - before;
+    before = this.allocatedBytes();
+    for (int tick = 0; tick < TICKS; tick++) {
+      empty.draw(g);
+    }
+    long baseline = this.allocatedBytes() - before;
+    g.dispose();
+    long perTick = (painted - baseline) / TICKS;
+    Assert.assertTrue("Allocated " + perTick + " bytes per tick.",
+            perTick <= MAX_BYTES_PER_TICK);
+  }
+
+  @Test
+  public void testBufferMatchesStateAt() {
+    EasyAnimatorModelImpl model = this.scene(true);
+    FrameBuffer buffer = new FrameBuffer();
+    for (int tick = 0; tick < TICKS; tick++) {
+      model.stateAt(tick, buffer);
+      Assert.assertEquals(model.stateAt(tick).getShapeStates(),
+              buffer.toFrame().getShapeStates());
+    }
+  }
+
+  /**
+   * Build a scene of shapes that move, change color and grow during the animation.
+   *
+   * @param circles whether every other shape is a circle rather than a rectangle.
+   * @return the model of the scene.
+   */
+  private EasyAnimatorModelImpl scene(boolean circles) {
+    List<Shape> shapes = new ArrayList<>();
+    for (int i = 0; i < SHAPES; i++) {
+      List<PositionChange> moves = new ArrayList<>();
+      List<SizeChange> sizes = new ArrayList<>();
+      List<ColorChange> colors = new ArrayList<>();
+      double x = (i * 37) % 500;
+      double y = (i * 53) % 300;
+      for (int t = 0; t < TICKS; t += 10) {
+        moves.add(new PositionChange(new Point2D(x + t, y), x + t + 10, y + 5, t, t + 10));
+        colors.add(new ColorChange(new Color(t * 2, i % 256, 100), t));
+      }
+      sizes.add(new SizeChange(1.5, 20, 60));
+      if (circles && i % 2 == 0) {
+        shapes.add(new Circle("C" + i, Color.BLUE, x, y, 20, moves, sizes, colors, 0, TICKS));
+      } else {
+        shapes.add(new Rectangle("R" + i, Color.RED, x, y, 30, 15, moves, sizes, colors, 0,
+                TICKS));
+      }
+    }
+    return new EasyAnimatorModelImpl(shapes);
+  }
+
+  private long allocatedBytes() {
+    return this.threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
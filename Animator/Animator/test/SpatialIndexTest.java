@@ -0,0 +1,182 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import model.Circle;
+import model.ColorChange;
+import model.EasyAnimatorModelImpl;
+import model.FrameBuffer;
+import model.Point2D;
+import model.PositionChange;
+import model.Rectangle;
+import model.Shape;
+import model.ShapeState;
+import model.SizeChange;
+import model.SpatialIndex;
+
+/**
+ * Class to test that computing a frame for a region of the animation finds every shape that
+ * touches the region, by comparing it with every shape of the whole frame at random ticks and
+ * regions of random scenes.
+ */
+public class SpatialIndexTest {
+
+  private static final int SCENES = 20;
+  private static final int QUERIES = 300;
+
+  @Test
+  public void testRegionHoldsEveryShapeThatTouchesIt() {
+    Random random = new Random(7);
+    FrameBuffer buffer = new FrameBuffer();
+    for (int scene = 0; scene < SCENES; scene++) {
+      EasyAnimatorModelImpl model = new EasyAnimatorModelImpl(this.scene(random, 200));
+      for (int q = 0; q < QUERIES; q++) {
+        double tick = random.nextInt(4) == 0 ? random.nextDouble() * 120 : random.nextInt(120);
+        int x = random.nextInt(1200) - 200;
+        int y = random.nextInt(1200) - 200;
+        int width = 1 + random.nextInt(400);
+        int height = 1 + random.nextInt(400);
+        model.stateAt(tick, x, y, width, height, buffer);
+        List<ShapeState> found = buffer.toFrame().getShapeStates();
+        List<ShapeState> all = model.stateAt(tick).getShapeStates();
+        Assert.assertTrue(all.containsAll(found));
+        for (ShapeState state : all) {
+          if (touches(state, x, y, width, height)) {
+            Assert.assertTrue(state + " touches the region at " + tick, found.contains(state));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRangeHoldsEveryShapeThatTouchesItAtSomeTick() {
+    Random random = new Random(11);
+    for (int scene = 0; scene < SCENES; scene++) {
+      List<Shape> shapes = this.scene(random, 100);
+      EasyAnimatorModelImpl model = new EasyAnimatorModelImpl(shapes);
+      for (int q = 0; q < QUERIES / 10; q++) {
+        int from = random.nextInt(100);
+        int to = from + random.nextInt(20);
+        int x = random.nextInt(1000);
+        int y = random.nextInt(1000);
+        Set<Shape> found = new HashSet<>(model.getExactShapes(from, to, x, y, 200, 200));
+        Assert.assertTrue(model.getExactShapes(from, to).containsAll(found));
+        for (int tick = from; tick <= to; tick++) {
+          List<ShapeState> states = model.stateAt(tick).getShapeStates();
+          for (ShapeState state : states) {
+            if (touches(state, x, y, 200, 200)) {
+              Assert.assertTrue(found.contains(shapes.get(indexOf(shapes, state.getName()))));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testShortStepsAreMergedIntoFewBoxes() {
+    List<PositionChange> moves = new ArrayList<>();
+    for (int t = 0; t < 1000; t++) {
+      moves.add(new PositionChange(new Point2D(t / 10.0, 0), (t + 1) / 10.0, 0, t, t + 1));
+    }
+    List<Shape> shapes = new ArrayList<>();
+    shapes.add(new Rectangle("R", Color.RED, 0, 0, 5, 5, moves, new ArrayList<>(),
+            new ArrayList<>(), 0, 1000));
+    SpatialIndex index = new EasyAnimatorModelImpl(shapes).compile().getSpatialIndex();
+    Assert.assertEquals(1, index.getBoxCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmptyRangeIsRejected() {
+    new SpatialIndex.Builder(1, 1).build().shapesIn(2, 1, 0, 0, 10, 10, new int[1]);
+  }
+
+  /**
+   * Whether the pixels a shape covers intersect a region, the same bounds the views test.
+   *
+   * @param state  the state of the shape.
+   * @param x      the leftmost pixel of the region.
+   * @param y      the topmost pixel of the region.
+   * @param width  the width of the region.
+   * @param height the height of the region.
+   * @return true if the shape touches the region.
+   */
+  private static boolean touches(ShapeState state, int x, int y, int width, int height) {
+    int left = (int) state.getX();
+    int top = (int) state.getY();
+    int right = left + (int) state.getWidth() + 1;
+    int bottom = top + (int) state.getHeight() + 1;
+    return left < x + width && x < right && top < y + height && y < bottom;
+  }
+
+  /**
+   * Find the position of the shape with a name.
+   *
+   * @param shapes the shapes to search.
+   * @param name   the name of the shape.
+   * @return the position of the shape, or -1 if no shape has the name.
+   */
+  private static int indexOf(List<Shape> shapes, String name) {
+    for (int i = 0; i < shapes.size(); i++) {
+      if (shapes.get(i).getName().equals(name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Build a random scene of shapes that move in steps of any length, some of them off the
+   * canvas, grow and shrink, and exist for part of the animation or for all of it.
+   *
+   * @param random the source of randomness.
+   * @param count  the number of shapes.
+   * @return the shapes of the scene.
+   */
+  private List<Shape> scene(Random random, int count) {
+    List<Shape> shapes = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      List<PositionChange> moves = new ArrayList<>();
+      List<SizeChange> sizes = new ArrayList<>();
+      double x = random.nextInt(1000) - 100;
+      double y = random.nextInt(1000) - 100;
+      int t = random.nextInt(20);
+      int steps = random.nextInt(8);
+      for (int m = 0; m < steps; m++) {
+        int duration = 1 + random.nextInt(15);
+        double step = random.nextInt(10) == 0 ? 600 : 40;
+        double toX = x + (random.nextDouble() - 0.5) * step;
+        double toY = y + (random.nextDouble() - 0.5) * step;
+        moves.add(new PositionChange(new Point2D(x, y), toX, toY, t, t + duration));
+        x = toX;
+        y = toY;
+        t += duration + random.nextInt(5);
+      }
+      if (random.nextBoolean()) {
+        int start = random.nextInt(60);
+        sizes.add(new SizeChange(0.5 + random.nextDouble() * 3, start,
+                start + random.nextInt(30)));
+      }
+      List<ColorChange> colors = new ArrayList<>();
+      int appears = random.nextInt(3) == 0 ? 0 : random.nextInt(60);
+      int disappears = appears + (random.nextInt(3) == 0 ? 0 : random.nextInt(80));
+      Point2D start = moves.isEmpty() ? new Point2D(x, y) : moves.get(0).getFrom();
+      if (random.nextBoolean()) {
+        shapes.add(new Circle("C" + i, Color.BLUE, start.getX(), start.getY(),
+                1 + random.nextInt(40), moves, sizes, colors, appears, disappears));
+      } else {
+        shapes.add(new Rectangle("R" + i, Color.RED, start.getX(), start.getY(),
+                1 + random.nextInt(60), 1 + random.nextInt(60), moves, sizes, colors, appears,
+                disappears));
+      }
+    }
+    return shapes;
+  }
+}